@@ -0,0 +1,68 @@
+package gov.nsf.psm.documentcompliance.benchmark;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+ * Fails when the extraction listener allocates more per glyph than the budget. Runs
+ * PdfExtractionListenerBenchmark with the GC profiler and divides the allocation per operation
+ * by the glyphs of the replayed page. Exits with 1 over budget, failing the verify phase of this
+ * module, which runs it with the allocation.budget.bytes-per-glyph property:
+ *   java -cp benchmarks.jar gov.nsf.psm.documentcompliance.benchmark.AllocationBudgetCheck [bytes]
+ */
+public class AllocationBudgetCheck {
+
+    // Bytes per glyph. Leaves room for what is allocated once per text event (its text, baseline
+    // and line state) spread over the glyphs of the event, but not for allocations made per glyph.
+    // Not yet measured: set it, and the property in the pom, a little above the first measured run
+    public static final double MAX_BYTES_PER_GLYPH = 256;
+
+    private static final String ALLOCATION_RESULT = "gc.alloc.rate.norm";
+
+    private AllocationBudgetCheck() {
+        // Private constructor
+    }
+
+    public static void main(String[] args) throws IOException, RunnerException {
+        double budget = args.length > 0 ? Double.parseDouble(args[0]) : MAX_BYTES_PER_GLYPH;
+        int glyphs = getGlyphCount();
+        OptionsBuilder options = new OptionsBuilder();
+        options.include(PdfExtractionListenerBenchmark.class.getName() + ".replayPage");
+        options.addProfiler(GCProfiler.class);
+        double bytesPerOperation = -1;
+        for (RunResult result : new Runner(options.build()).run()) {
+            // The profiler prefixes its result names with a separator character
+            for (Map.Entry<String, Result> secondary : result.getSecondaryResults().entrySet()) {
+                if (secondary.getKey().endsWith(ALLOCATION_RESULT)) {
+                    bytesPerOperation = secondary.getValue().getScore();
+                }
+            }
+        }
+        if (bytesPerOperation < 0) {
+            System.err.println("No " + ALLOCATION_RESULT + " result, the GC profiler is not supported by this JVM");
+            System.exit(2);
+        }
+        double bytesPerGlyph = bytesPerOperation / glyphs;
+        System.out.println(String.format("%.1f bytes per glyph (%.0f bytes for %d glyphs), budget %.1f",
+                bytesPerGlyph, bytesPerOperation, glyphs, budget));
+        System.exit(bytesPerGlyph > budget ? 1 : 0);
+    }
+
+    private static int getGlyphCount() throws IOException {
+        PdfExtractionListenerBenchmark benchmark = new PdfExtractionListenerBenchmark();
+        benchmark.setUp();
+        try {
+            return benchmark.getGlyphCount();
+        } finally {
+            benchmark.tearDown();
+        }
+    }
+
+}
@@ -0,0 +1,145 @@
+package gov.nsf.psm.documentcompliance.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.Random;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CreationHelper;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import com.itextpdf.io.font.constants.StandardFonts;
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.action.PdfAction;
+import com.itextpdf.layout.Document;
+import com.itextpdf.layout.element.AreaBreak;
+import com.itextpdf.layout.element.Link;
+import com.itextpdf.layout.element.Paragraph;
+import com.itextpdf.layout.element.Text;
+
+import gov.nsf.psm.documentcompliance.regression.CorpusGenerator;
+import gov.nsf.psm.documentcompliance.regression.PdfSpec;
+
+/*
+ * Builds the benchmark inputs in memory, from a fixed seed so every run sees the same bytes: PDFs
+ * with headings, body text in several fonts, superscripts and links, and workbooks of text,
+ * number and date cells
+ */
+public class BenchmarkDocuments {
+
+    public static final String FORMAT_XLSX = "xlsx";
+    public static final String FORMAT_XLS = "xls";
+
+    private static final long SEED = 20180601L;
+    private static final int PARAGRAPHS_PER_PAGE = 6;
+    private static final String[] WORDS = { "proposal", "research", "budget", "investigator", "project",
+            "summary", "broader", "impacts", "intellectual", "merit", "facilities", "equipment", "data",
+            "management", "collaboration", "results", "prior", "support", "mentoring", "plan" };
+
+    private BenchmarkDocuments() {
+        // Private constructor
+    }
+
+    public static byte[] createPdf(int pages) throws IOException {
+        Random random = new Random(SEED);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PdfDocument pdf = new PdfDocument(new PdfWriter(out));
+        Document document = new Document(pdf);
+        PdfFont bold = PdfFontFactory.createFont(StandardFonts.HELVETICA_BOLD);
+        PdfFont[] bodyFonts = { PdfFontFactory.createFont(StandardFonts.TIMES_ROMAN),
+                PdfFontFactory.createFont(StandardFonts.HELVETICA),
+                PdfFontFactory.createFont(StandardFonts.COURIER) };
+        for (int page = 1; page <= pages; page++) {
+            if (page > 1) {
+                document.add(new AreaBreak());
+            }
+            document.add(new Paragraph(page + ". " + getSentence(random, 4)).setFont(bold).setFontSize(14));
+            for (int i = 0; i < PARAGRAPHS_PER_PAGE; i++) {
+                Paragraph paragraph = new Paragraph().setFont(bodyFonts[(page + i) % bodyFonts.length])
+                        .setFontSize(11);
+                paragraph.add(getSentence(random, 40));
+                paragraph.add(new Text(String.valueOf(i + 1)).setTextRise(4).setFontSize(7));
+                paragraph.add(" " + getSentence(random, 30) + " ");
+                if (i == 0) {
+                    paragraph.add(new Link("www.nsf.gov", PdfAction.createURI("https://www.nsf.gov/" + page)));
+                }
+                document.add(paragraph);
+            }
+        }
+        document.close();
+        return out.toByteArray();
+    }
+
+    // A regression corpus document, which can also use the Type 3 fonts LaTeX writes
+    public static byte[] createPdf(int pages, PdfSpec.FontSet fontSet) throws IOException {
+        PdfSpec spec = new PdfSpec("benchmark-" + fontSet.name().toLowerCase() + "-" + pages + "p");
+        spec.setPages(pages);
+        spec.setFontSet(fontSet);
+        spec.setSuperscripts(true);
+        spec.setLinks(true);
+        return CorpusGenerator.createPdf(spec);
+    }
+
+    public static byte[] createWorkbook(String format, int sheets, int rows, int columns) throws IOException {
+        Random random = new Random(SEED);
+        Workbook wb = FORMAT_XLS.equals(format) ? new HSSFWorkbook() : new XSSFWorkbook();
+        try {
+            CreationHelper helper = wb.getCreationHelper();
+            CellStyle dateStyle = wb.createCellStyle();
+            dateStyle.setDataFormat(helper.createDataFormat().getFormat("m/d/yyyy"));
+            Calendar calendar = Calendar.getInstance();
+            for (int s = 0; s < sheets; s++) {
+                Sheet sheet = wb.createSheet("Sheet " + (s + 1));
+                Row header = sheet.createRow(0);
+                for (int c = 0; c < columns; c++) {
+                    header.createCell(c).setCellValue("Column " + (c + 1));
+                }
+                for (int r = 1; r <= rows; r++) {
+                    Row row = sheet.createRow(r);
+                    for (int c = 0; c < columns; c++) {
+                        Cell cell = row.createCell(c);
+                        switch (c % 3) {
+                        case 0:
+                            cell.setCellValue(getSentence(random, 3));
+                            break;
+                        case 1:
+                            cell.setCellValue(random.nextInt(100000) / 100d);
+                            break;
+                        default:
+                            calendar.set(2010 + random.nextInt(10), random.nextInt(12), 1 + random.nextInt(28));
+                            cell.setCellValue(calendar.getTime());
+                            cell.setCellStyle(dateStyle);
+                            break;
+                        }
+                    }
+                }
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            wb.write(out);
+            return out.toByteArray();
+        } finally {
+            wb.close();
+        }
+    }
+
+    private static String getSentence(Random random, int words) {
+        StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sentence.append(' ');
+            }
+            sentence.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sentence.toString();
+    }
+
+}
@@ -0,0 +1,36 @@
+package gov.nsf.psm.documentcompliance.benchmark;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+ * Runs the benchmarks matching the JMH command line, always with the GC profiler so the results
+ * include the allocation rate per operation. For example: java -jar benchmarks.jar Pdf -rf json
+ */
+public class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+        // Private constructor
+    }
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException, IOException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp() || commandLine.shouldList()) {
+            // Help and listing are left to the JMH launcher
+            Main.main(args);
+            return;
+        }
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(commandLine);
+        options.addProfiler(GCProfiler.class);
+        new Runner(options.build()).run();
+    }
+
+}
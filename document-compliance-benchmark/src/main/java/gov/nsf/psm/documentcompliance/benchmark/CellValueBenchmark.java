@@ -0,0 +1,65 @@
+package gov.nsf.psm.documentcompliance.benchmark;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gov.nsf.psm.documentcompliance.compliance.common.utility.DateUtils;
+import gov.nsf.psm.documentcompliance.compliance.ss.utility.SpreadsheetModelBuilderUtils;
+import gov.nsf.psm.foundation.model.compliance.ss.CellModel;
+
+/*
+ * The per cell work of the spreadsheet pass: the charset check of a text value, and date
+ * parsing of values in each accepted format and of a value that is not a date
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CellValueBenchmark {
+
+    public static final String DEFAULT_ENCODING = "cp850";
+
+    @State(Scope.Benchmark)
+    public static class TextValue {
+
+        @Param({ "Broader impacts of the proposed research",
+                "R\u00e9sum\u00e9 \u2013 \u201cSenior Personnel\u201d \u20ac" })
+        public String text;
+
+    }
+
+    @State(Scope.Benchmark)
+    public static class DateValue {
+
+        @Param({ "6/15/2018", "15.6.2018", "6/15/2018 09:30:00 AM", "15-Jun-2018", "not a date" })
+        public String date;
+
+    }
+
+    @Benchmark
+    public CellModel enforceCharset(TextValue value) {
+        // The cell value is replaced, so each invocation checks a new cell
+        CellModel cell = new CellModel();
+        cell.setRow(1);
+        cell.setValue(value.text);
+        return SpreadsheetModelBuilderUtils.enforceCharset(cell, DEFAULT_ENCODING);
+    }
+
+    @Benchmark
+    public Date convertToDate(DateValue value) {
+        return DateUtils.convertToDate(value.date);
+    }
+
+}
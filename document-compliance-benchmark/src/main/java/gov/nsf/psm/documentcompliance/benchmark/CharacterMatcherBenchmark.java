@@ -0,0 +1,64 @@
+package gov.nsf.psm.documentcompliance.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gov.nsf.psm.documentcompliance.compliance.pdf.utility.CharacterMatcher;
+
+/*
+ * The ignored characters check made for every text event: the pattern compiled on each call, as
+ * PdfUtils.characterMatches(String, String) does, the precompiled pattern, and the CharacterMatcher.
+ * The default setting is matched against a bit set, a class with a property falls back to the pattern
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CharacterMatcherBenchmark {
+
+    @Param({ PdfModelBuilderBenchmark.SPECIAL_CHARACTERS, "[\\u200B\\p{Zs}]" })
+    public String regex;
+
+    // A glyph, a chunk without an ignored character and a chunk ending in one
+    @Param({ "a", "intellectual merit of the proposed research", "broader impacts\u00A0" })
+    public String input;
+
+    private Pattern pattern;
+    private CharacterMatcher matcher;
+
+    @Setup
+    public void setUp() {
+        pattern = Pattern.compile(regex);
+        matcher = CharacterMatcher.compile(regex);
+    }
+
+    @Benchmark
+    public boolean compileEachCall() {
+        return Pattern.compile(regex).matcher(input).find();
+    }
+
+    @Benchmark
+    public boolean precompiledPattern() {
+        return pattern.matcher(input).find();
+    }
+
+    @Benchmark
+    public boolean characterMatcher() {
+        return matcher.matches(input);
+    }
+
+}
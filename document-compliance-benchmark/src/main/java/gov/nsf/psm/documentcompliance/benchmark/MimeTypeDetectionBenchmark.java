@@ -0,0 +1,74 @@
+package gov.nsf.psm.documentcompliance.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.tika.config.TikaConfig;
+import org.apache.tika.detect.Detector;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.itextpdf.io.source.IRandomAccessSource;
+
+import gov.nsf.psm.documentcompliance.compliance.common.io.MagicByteDetector;
+import gov.nsf.psm.documentcompliance.compliance.common.io.UploadBuffer;
+
+/*
+ * Both paths of MIME type detection: the magic byte probe, and the Tika detector it falls
+ * back to, each over the same upload buffer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MimeTypeDetectionBenchmark {
+
+    private static final int PROBE_SIZE = 8 * 1024;
+
+    @Param({ "pdf", BenchmarkDocuments.FORMAT_XLSX, BenchmarkDocuments.FORMAT_XLS })
+    public String format;
+
+    private UploadBuffer upload;
+    private Detector detector;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] bytes = "pdf".equals(format) ? BenchmarkDocuments.createPdf(1)
+                : BenchmarkDocuments.createWorkbook(format, 1, 10, 3);
+        upload = UploadBuffer.wrap(bytes);
+        detector = TikaConfig.getDefaultConfig().getDetector();
+    }
+
+    @Benchmark
+    public String magicBytes() throws IOException {
+        IRandomAccessSource source = upload.newRandomAccessSource();
+        try {
+            return MagicByteDetector.detect(source, PROBE_SIZE);
+        } finally {
+            source.close();
+        }
+    }
+
+    @Benchmark
+    public String tika() throws IOException {
+        Metadata metadata = new Metadata();
+        metadata.set(Metadata.RESOURCE_NAME_KEY, "benchmark." + format);
+        try (TikaInputStream stream = TikaInputStream.get(upload.newInputStream())) {
+            return detector.detect(stream, metadata).toString();
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+package gov.nsf.psm.documentcompliance.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.canvas.parser.EventType;
+import com.itextpdf.kernel.pdf.canvas.parser.PdfCanvasProcessor;
+import com.itextpdf.kernel.pdf.canvas.parser.data.IEventData;
+import com.itextpdf.kernel.pdf.canvas.parser.data.TextRenderInfo;
+import com.itextpdf.kernel.pdf.canvas.parser.listener.IEventListener;
+import com.itextpdf.kernel.pdf.canvas.parser.listener.FilteredEventListener;
+import com.itextpdf.kernel.pdf.canvas.parser.listener.TextMarginFinder;
+
+import gov.nsf.psm.documentcompliance.compliance.pdf.BufferedEventListener;
+import gov.nsf.psm.documentcompliance.compliance.pdf.PdfExtractionListener;
+import gov.nsf.psm.documentcompliance.compliance.pdf.TextRenderInfoListener;
+import gov.nsf.psm.documentcompliance.compliance.pdf.filter.TextEventFilter;
+import gov.nsf.psm.documentcompliance.service.parameter.PdfParameters;
+
+/*
+ * Replays the recorded text and image events of one page into a new extraction listener, set up
+ * the way the extraction pass sets it up. The events counter gives the throughput per event, and
+ * AllocationBudgetCheck holds the allocation per operation against the glyphs of the page
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdfExtractionListenerBenchmark {
+
+    private PdfDocument doc;
+    private BufferedEventListener pageEvents;
+    private TextRenderInfoListener textListener;
+    private TextMarginFinder finder;
+    private PdfParameters params;
+    private int glyphCount;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class EventCounter {
+
+        public long events;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            events = 0;
+        }
+
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        params = PdfModelBuilderBenchmark.newParameters(true, true);
+        doc = new PdfDocument(new PdfReader(new ByteArrayInputStream(BenchmarkDocuments.createPdf(1))));
+        finder = new TextMarginFinder();
+        textListener = new TextRenderInfoListener(new FilteredEventListener(finder, new TextEventFilter()));
+        textListener.setChunkEvents(true);
+        pageEvents = new BufferedEventListener(textListener);
+        new PdfCanvasProcessor(pageEvents).processPageContent(doc.getPage(1));
+        GlyphCounter glyphCounter = new GlyphCounter();
+        pageEvents.replay(glyphCounter);
+        glyphCount = glyphCounter.glyphs;
+    }
+
+    @TearDown
+    public void tearDown() {
+        pageEvents.release();
+        doc.close();
+    }
+
+    @Benchmark
+    public PdfExtractionListener replayPage(EventCounter counter) {
+        PdfExtractionListener info = new PdfExtractionListener();
+        info.setFontDetectionIgnoreBlankSpaces(params.getFontDetectionIgnoreBlankSpaces());
+        info.setFontDetectionIgnoreSuperSubscript(params.getFontDetectionIgnoreSuperSubscript());
+        info.setSpecialCharacterMatcher(params.getSpecialCharacterMatcher());
+        info.setPageNumber(1);
+        info.setLastBlockCount(textListener.getBlockCount());
+        info.setAvgSingleSpaceWidth(textListener.getAverageSingleSpaceWidth());
+        info.setLastTextBlockOnSameLine(textListener.isLastBlockOnSameLine());
+        if (finder.getTextRectangle() != null) {
+            info.setTextWidth(finder.getTextRectangle().getWidth());
+        }
+        pageEvents.replay(info);
+        counter.events += pageEvents.getEventCount();
+        return info;
+    }
+
+    // Characters in the text events of the page, known once set up
+    public int getGlyphCount() {
+        return glyphCount;
+    }
+
+    private static class GlyphCounter implements IEventListener {
+
+        private int glyphs;
+
+        @Override
+        public void eventOccurred(IEventData data, EventType type) {
+            glyphs += ((TextRenderInfo) data).getText().length();
+        }
+
+        @Override
+        public Set<EventType> getSupportedEvents() {
+            return Collections.singleton(EventType.RENDER_TEXT);
+        }
+
+    }
+
+}
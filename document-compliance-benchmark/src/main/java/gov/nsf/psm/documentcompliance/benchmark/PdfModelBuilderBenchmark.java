@@ -0,0 +1,136 @@
+package gov.nsf.psm.documentcompliance.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import gov.nsf.psm.documentcompliance.compliance.common.io.UploadBuffer;
+import gov.nsf.psm.documentcompliance.compliance.common.utility.DocComplianceUtils;
+import gov.nsf.psm.documentcompliance.compliance.pdf.utility.SystemFontIndex;
+import gov.nsf.psm.documentcompliance.model.builder.pdf.PdfModelBuilder;
+import gov.nsf.psm.documentcompliance.regression.PdfSpec;
+import gov.nsf.psm.documentcompliance.service.parameter.PdfParameters;
+import gov.nsf.psm.foundation.exception.CommonUtilException;
+import gov.nsf.psm.foundation.model.compliance.doc.DocumentModel;
+
+/*
+ * Whole document PDF analysis with the service defaults, on one thread and spread over a worker
+ * pool, and the metadata read with the trailer scan and with the document opened. Documents use
+ * the standard fonts, the Computer Modern and Sans Serif Type 3 fonts of LaTeX output, or both
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdfModelBuilderBenchmark {
+
+    public static final String FONT_FILTER = "CM+CM,LM+LM,SFBX+SF,SFRM+SF,SFTI+SF,SFTT+SF";
+    public static final String SPECIAL_CHARACTERS = "[\\u200B\\u00A0]";
+
+    @Param({ "10", "100" })
+    public int pages;
+
+    @Param({ "STANDARD", "LATEX", "MIXED" })
+    public PdfSpec.FontSet fonts;
+
+    private UploadBuffer upload;
+
+    @Setup
+    public void setUp() throws IOException {
+        SystemFontIndex.refresh();
+        upload = UploadBuffer.wrap(BenchmarkDocuments.createPdf(pages, fonts));
+    }
+
+    @State(Scope.Benchmark)
+    public static class Extraction {
+
+        @Param({ "true", "false" })
+        public boolean singlePass;
+
+        // Text area measured per text chunk or per glyph
+        @Param({ "true", "false" })
+        public boolean chunkEvents;
+
+    }
+
+    @State(Scope.Benchmark)
+    public static class ParallelExtraction {
+
+        // Every worker gets a run of at least one page, so the 10 page document is spread too
+        private static final int MIN_PAGES_PER_WORKER = 1;
+        private static final int POOL_SIZE = 8;
+
+        @Param({ "1", "2", "4", "8" })
+        public int parallelism;
+
+        private ExecutorService executor;
+
+        @Setup
+        public void setUp() {
+            executor = Executors.newFixedThreadPool(POOL_SIZE,
+                    new ThreadFactoryBuilder().setNameFormat("pdf-extraction-%d").setDaemon(true).build());
+        }
+
+        @TearDown
+        public void tearDown() {
+            executor.shutdownNow();
+        }
+
+    }
+
+    @Benchmark
+    public DocumentModel buildModel(Extraction extraction) throws CommonUtilException {
+        return new PdfModelBuilder(newParameters(extraction.singlePass, extraction.chunkEvents)).buildModel(upload,
+                "benchmark.pdf");
+    }
+
+    @Benchmark
+    public DocumentModel buildModelParallel(ParallelExtraction extraction) throws CommonUtilException {
+        PdfParameters params = newParameters(false, true);
+        params.setExtractionExecutor(extraction.executor);
+        params.setExtractionParallelism(extraction.parallelism);
+        params.setExtractionMinPagesPerWorker(ParallelExtraction.MIN_PAGES_PER_WORKER);
+        return new PdfModelBuilder(params).buildModel(upload, "benchmark.pdf");
+    }
+
+    @Benchmark
+    public DocumentModel buildMetadataScan() throws CommonUtilException {
+        PdfModelBuilder builder = new PdfModelBuilder(newParameters(false, true));
+        builder.setMetadataScan(true);
+        return builder.buildMetadata(upload, "benchmark.pdf");
+    }
+
+    @Benchmark
+    public DocumentModel buildMetadataFull() throws CommonUtilException {
+        PdfModelBuilder builder = new PdfModelBuilder(newParameters(false, true));
+        builder.setMetadataScan(false);
+        return builder.buildMetadata(upload, "benchmark.pdf");
+    }
+
+    public static PdfParameters newParameters(boolean singlePass, boolean chunkEvents) {
+        PdfParameters params = new PdfParameters(true, true, false, SPECIAL_CHARACTERS,
+                DocComplianceUtils.convertToMap(FONT_FILTER));
+        params.setSinglePassExtraction(singlePass);
+        params.setChunkEvents(chunkEvents);
+        return params;
+    }
+
+}
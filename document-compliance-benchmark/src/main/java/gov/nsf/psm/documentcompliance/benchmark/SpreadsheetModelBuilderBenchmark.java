@@ -0,0 +1,63 @@
+package gov.nsf.psm.documentcompliance.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gov.nsf.psm.documentcompliance.compliance.common.io.UploadBuffer;
+import gov.nsf.psm.documentcompliance.model.builder.ss.SpreadsheetModelBuilder;
+import gov.nsf.psm.documentcompliance.service.parameter.SpreadsheetParameters;
+import gov.nsf.psm.foundation.model.compliance.ss.SpreadsheetModel;
+
+/*
+ * Whole workbook analysis of generated XLSX and XLS files, with the charset check on, loading the
+ * workbook or reading it row by row
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpreadsheetModelBuilderBenchmark {
+
+    private static final int SHEETS = 3;
+    private static final int COLUMNS = 12;
+
+    @Param({ BenchmarkDocuments.FORMAT_XLSX, BenchmarkDocuments.FORMAT_XLS })
+    public String format;
+
+    @Param({ "1000", "10000" })
+    public int rows;
+
+    @Param({ "false", "true" })
+    public boolean streaming;
+
+    private UploadBuffer upload;
+
+    @Setup
+    public void setUp() throws IOException {
+        upload = UploadBuffer.wrap(BenchmarkDocuments.createWorkbook(format, SHEETS, rows, COLUMNS));
+    }
+
+    @Benchmark
+    public SpreadsheetModel buildModel() {
+        SpreadsheetParameters params = new SpreadsheetParameters(true, CellValueBenchmark.DEFAULT_ENCODING);
+        params.setStreamingThresholdKb(streaming ? 0 : -1);
+        SpreadsheetModelBuilder builder = new SpreadsheetModelBuilder(false, new ArrayList<String>(), params);
+        return builder.buildModel(upload, "benchmark." + format);
+    }
+
+}
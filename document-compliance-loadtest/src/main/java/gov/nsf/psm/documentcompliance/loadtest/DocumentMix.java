@@ -0,0 +1,98 @@
+package gov.nsf.psm.documentcompliance.loadtest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.google.common.base.Splitter;
+
+import gov.nsf.psm.documentcompliance.regression.CorpusGenerator;
+import gov.nsf.psm.documentcompliance.regression.PdfSpec;
+import gov.nsf.psm.documentcompliance.regression.SpreadsheetSpec;
+
+/*
+ * The documents sent by the load test, each picked in proportion to its weight
+ */
+public class DocumentMix {
+
+    private final List<Document> documents = new ArrayList<>();
+    private int totalWeight;
+
+    // Entries are type:size:weight, for example pdf:12:30,xlsx:500:10
+    public static DocumentMix parse(String mix) throws IOException {
+        DocumentMix documentMix = new DocumentMix();
+        for (String entry : Splitter.on(',').trimResults().omitEmptyStrings().split(mix)) {
+            List<String> fields = Splitter.on(':').trimResults().splitToList(entry);
+            if (fields.size() != 3) {
+                throw new IllegalArgumentException("Document mix entries are type:size:weight, not " + entry);
+            }
+            String type = fields.get(0);
+            int size = Integer.parseInt(fields.get(1));
+            int weight = Integer.parseInt(fields.get(2));
+            String name = "loadtest-" + type + "-" + size;
+            byte[] bytes;
+            if ("pdf".equals(type)) {
+                PdfSpec spec = new PdfSpec(name);
+                spec.setPages(size);
+                spec.setFontSet(PdfSpec.FontSet.MIXED);
+                spec.setSuperscripts(true);
+                spec.setImages(true);
+                spec.setLinks(true);
+                bytes = CorpusGenerator.createPdf(spec);
+            } else if (SpreadsheetSpec.FORMAT_XLSX.equals(type) || SpreadsheetSpec.FORMAT_XLS.equals(type)) {
+                SpreadsheetSpec spec = new SpreadsheetSpec(name);
+                spec.setFormat(type);
+                spec.setRows(size);
+                bytes = CorpusGenerator.createWorkbook(spec);
+            } else {
+                throw new IllegalArgumentException("Unknown document type " + type);
+            }
+            documentMix.documents.add(new Document(name + "." + type, bytes, weight));
+            documentMix.totalWeight += weight;
+        }
+        return documentMix;
+    }
+
+    public Document next(Random random) {
+        int pick = random.nextInt(totalWeight);
+        for (Document document : documents) {
+            pick -= document.getWeight();
+            if (pick < 0) {
+                return document;
+            }
+        }
+        return documents.get(documents.size() - 1);
+    }
+
+    public List<Document> getDocuments() {
+        return documents;
+    }
+
+    public static class Document {
+
+        private final String fileName;
+        private final byte[] bytes;
+        private final int weight;
+
+        public Document(String fileName, byte[] bytes, int weight) {
+            this.fileName = fileName;
+            this.bytes = bytes;
+            this.weight = weight;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+
+    }
+
+}
@@ -0,0 +1,213 @@
+package gov.nsf.psm.documentcompliance.loadtest;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.embedded.EmbeddedWebApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.client.HttpStatusCodeException;
+
+import gov.nsf.psm.documentcompliance.DocumentComplianceServiceApplication;
+import gov.nsf.psm.documentcompliance.DocumentComplianceServiceClient;
+import gov.nsf.psm.documentcompliance.DocumentComplianceServiceClientImpl;
+import gov.nsf.psm.documentcompliance.compliance.common.utility.Constants;
+import gov.nsf.psm.foundation.exception.CommonUtilException;
+import gov.nsf.psm.foundation.model.compliance.ComplianceConfig;
+import gov.nsf.psm.foundation.model.compliance.ComplianceModel;
+
+/*
+ * Starts the service on a random port and drives /complianceModel and /complianceModel/metadata
+ * through the service client, one step per concurrency level. Every client sends its next request
+ * as soon as the last one returns. Results are cached by content, so the caches are turned off to
+ * measure the extraction itself
+ */
+public class LoadTestRunner {
+
+    private static final List<String> MIME_TYPES = Arrays.asList(ComplianceModel.MIME_TYPE_PDF,
+            ComplianceModel.MIME_TYPE_XLS, ComplianceModel.MIME_TYPE_XLSX);
+
+    private final LoadTestSettings settings;
+    private final DocumentMix documentMix;
+    private final DocumentComplianceServiceClient client;
+    private final ComplianceConfig config;
+
+    public LoadTestRunner(LoadTestSettings settings, DocumentMix documentMix, String serverURL) {
+        this.settings = settings;
+        this.documentMix = documentMix;
+        this.client = new DocumentComplianceServiceClientImpl();
+        client.setServerURL(serverURL);
+        client.setServiceEnabled(true);
+        client.setAuthenticationRequired(false);
+        client.setRequestTimeout((int) TimeUnit.SECONDS.toMillis(settings.getTimeoutSeconds()));
+        this.config = new ComplianceConfig();
+        config.setMimeTypes(MIME_TYPES);
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        DocumentMix documentMix = DocumentMix.parse(settings.getMix());
+        for (DocumentMix.Document document : documentMix.getDocuments()) {
+            System.out.println(document.getFileName() + ": " + document.getBytes().length / 1024 + " KB, weight "
+                    + document.getWeight());
+        }
+        System.setProperty("spring.config.name", Constants.CONFIG_FILE_DEFAULT_NAME);
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(
+                DocumentComplianceServiceApplication.class)
+                        .properties("server.port=0", "server.context-path=" + Constants.CONTEXT_DEFAULT_NAME,
+                                "cache.results.max-size-mb=0", "cache.pages.max-size-mb=0")
+                        .run(args);
+        try {
+            int port = ((EmbeddedWebApplicationContext) context).getEmbeddedServletContainer().getPort();
+            String serverURL = "http://localhost:" + port + Constants.CONTEXT_DEFAULT_NAME + "/api/v1";
+            new LoadTestRunner(settings, documentMix, serverURL).run();
+        } finally {
+            context.close();
+        }
+    }
+
+    public void run() throws Exception {
+        int maxConcurrency = 1;
+        for (int concurrency : settings.getConcurrency()) {
+            maxConcurrency = Math.max(maxConcurrency, concurrency);
+        }
+        ExecutorService clients = Executors.newFixedThreadPool(maxConcurrency);
+        try {
+            if (settings.getWarmupSeconds() > 0) {
+                System.out.println("Warming up for " + settings.getWarmupSeconds() + " s");
+                runStep(clients, settings.getConcurrency().get(0), settings.getWarmupSeconds());
+            }
+            System.out.println(StepResult.HEADER);
+            List<StepResult> results = new ArrayList<>();
+            for (int concurrency : settings.getConcurrency()) {
+                StepResult result = runStep(clients, concurrency, settings.getDurationSeconds());
+                results.add(result);
+                System.out.println(result);
+            }
+            StepResult peak = null;
+            for (StepResult result : results) {
+                if (peak == null || result.getThroughput() > peak.getThroughput()) {
+                    peak = result;
+                }
+            }
+            if (peak != null) {
+                System.out.println(String.format("Peak throughput %.2f req/s at concurrency %d",
+                        peak.getThroughput(), peak.getConcurrency()));
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    private StepResult runStep(ExecutorService clients, int concurrency, int seconds) throws Exception {
+        // Each step starts from a collected heap
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+        long gcCount = getGcCount();
+        long gcMillis = getGcMillis();
+        AtomicLong errors = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            final long seed = i;
+            futures.add(clients.submit(() -> runClient(new Random(seed), deadline, errors, rejected)));
+        }
+        List<long[]> clientLatencies = new ArrayList<>();
+        int count = 0;
+        for (Future<long[]> future : futures) {
+            long[] latencies = future.get();
+            clientLatencies.add(latencies);
+            count += latencies.length;
+        }
+        long elapsed = System.nanoTime() - start;
+        long[] latencies = new long[count];
+        int offset = 0;
+        for (long[] clientLatency : clientLatencies) {
+            System.arraycopy(clientLatency, 0, latencies, offset, clientLatency.length);
+            offset += clientLatency.length;
+        }
+        // Pool peaks do not peak together, so their sum is an upper bound
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peakHeap += pool.getPeakUsage().getUsed();
+        }
+        return new StepResult(concurrency, elapsed, latencies, errors.get(), rejected.get(), getGcCount() - gcCount,
+                getGcMillis() - gcMillis, peakHeap);
+    }
+
+    // Latencies of the successful requests of one client
+    private long[] runClient(Random random, long deadline, AtomicLong errors, AtomicLong rejected) {
+        long[] latencies = new long[1024];
+        int count = 0;
+        while (System.nanoTime() < deadline) {
+            DocumentMix.Document document = documentMix.next(random);
+            boolean metadata = random.nextDouble() < settings.getMetadataRatio();
+            long start = System.nanoTime();
+            try {
+                if (metadata) {
+                    client.getMetadata(document.getFileName(), document.getBytes(), config);
+                } else {
+                    client.getComplianceModel(document.getFileName(), document.getBytes(), config);
+                }
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = System.nanoTime() - start;
+            } catch (CommonUtilException e) {
+                if (isRejection(e)) {
+                    rejected.incrementAndGet();
+                } else {
+                    errors.incrementAndGet();
+                }
+            }
+        }
+        return Arrays.copyOf(latencies, count);
+    }
+
+    // Admission control answers 503 when the service is saturated
+    private static boolean isRejection(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpStatusCodeException
+                    && ((HttpStatusCodeException) cause).getStatusCode().value() == 503) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long getGcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long getGcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+
+}
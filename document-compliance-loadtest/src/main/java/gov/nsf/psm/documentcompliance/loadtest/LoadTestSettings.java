@@ -0,0 +1,65 @@
+package gov.nsf.psm.documentcompliance.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.base.Splitter;
+
+/*
+ * Load test settings, read from system properties:
+ *
+ *   loadtest.concurrency     concurrent clients of each step, e.g. 1,2,4,8
+ *   loadtest.duration        seconds measured per step
+ *   loadtest.warmup          seconds run before the first step and not measured
+ *   loadtest.mix             documents as type:size:weight, where size is pages for pdf and rows for xlsx and xls
+ *   loadtest.metadata-ratio  fraction of requests sent to /complianceModel/metadata
+ *   loadtest.timeout         request timeout in seconds
+ */
+public class LoadTestSettings {
+
+    private List<Integer> concurrency = new ArrayList<>();
+    private int durationSeconds;
+    private int warmupSeconds;
+    private String mix;
+    private double metadataRatio;
+    private int timeoutSeconds;
+
+    public static LoadTestSettings fromSystemProperties() {
+        LoadTestSettings settings = new LoadTestSettings();
+        for (String level : Splitter.on(',').trimResults().omitEmptyStrings()
+                .split(System.getProperty("loadtest.concurrency", "1,2,4,8,16,32"))) {
+            settings.concurrency.add(Integer.valueOf(level));
+        }
+        settings.durationSeconds = Integer.getInteger("loadtest.duration", 60);
+        settings.warmupSeconds = Integer.getInteger("loadtest.warmup", 20);
+        settings.mix = System.getProperty("loadtest.mix", "pdf:1:40,pdf:12:30,pdf:60:10,xlsx:500:15,xls:500:5");
+        settings.metadataRatio = Double.parseDouble(System.getProperty("loadtest.metadata-ratio", "0.2"));
+        settings.timeoutSeconds = Integer.getInteger("loadtest.timeout", 300);
+        return settings;
+    }
+
+    public List<Integer> getConcurrency() {
+        return concurrency;
+    }
+
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    public String getMix() {
+        return mix;
+    }
+
+    public double getMetadataRatio() {
+        return metadataRatio;
+    }
+
+    public int getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+}
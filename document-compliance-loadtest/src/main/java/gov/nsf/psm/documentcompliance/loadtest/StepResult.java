@@ -0,0 +1,73 @@
+package gov.nsf.psm.documentcompliance.loadtest;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/*
+ * Measurements of one concurrency step. Latencies are in nanoseconds, GC and heap figures cover
+ * the whole JVM, driver included
+ */
+public class StepResult {
+
+    public static final String HEADER = String.format(Locale.US, "%6s %8s %9s %9s %9s %9s %9s %7s %8s %7s %9s %7s %9s",
+            "conc", "requests", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "err %", "rejected", "gc",
+            "gc ms", "gc %", "heap MB");
+
+    private final int concurrency;
+    private final long elapsedNanos;
+    private final long[] latencies;
+    private final long errors;
+    private final long rejected;
+    private final long gcCount;
+    private final long gcMillis;
+    private final long peakHeapBytes;
+
+    public StepResult(int concurrency, long elapsedNanos, long[] latencies, long errors, long rejected,
+            long gcCount, long gcMillis, long peakHeapBytes) {
+        this.concurrency = concurrency;
+        this.elapsedNanos = elapsedNanos;
+        this.latencies = latencies;
+        this.errors = errors;
+        this.rejected = rejected;
+        this.gcCount = gcCount;
+        this.gcMillis = gcMillis;
+        this.peakHeapBytes = peakHeapBytes;
+        Arrays.sort(this.latencies);
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    // Successful requests per second
+    public double getThroughput() {
+        return latencies.length / (elapsedNanos / 1e9);
+    }
+
+    public double getPercentileMillis(double percentile) {
+        if (latencies.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+        return latencies[Math.max(0, Math.min(index, latencies.length - 1))] / 1e6;
+    }
+
+    public double getErrorRate() {
+        long total = latencies.length + errors + rejected;
+        return total == 0 ? 0 : 100d * (errors + rejected) / total;
+    }
+
+    // Share of the step spent in collections
+    public double getGcShare() {
+        return 100d * gcMillis / (elapsedNanos / 1e6);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%6d %8d %9.2f %9.1f %9.1f %9.1f %9.1f %7.2f %8d %7d %9d %7.2f %9d",
+                concurrency, latencies.length, getThroughput(), getPercentileMillis(50), getPercentileMillis(90),
+                getPercentileMillis(99), getPercentileMillis(100), getErrorRate(), rejected, gcCount, gcMillis,
+                getGcShare(), peakHeapBytes / (1024 * 1024));
+    }
+
+}
@@ -0,0 +1,90 @@
+package gov.nsf.psm.documentcompliance.regression;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * The regression corpus: every font set and column layout, each with and without the page
+ * features, at one and several pages, and workbooks of both formats over the sheet, table,
+ * non-text column and character parameters. Names are stable, since they seed the content and
+ * name the baselines
+ */
+public class Corpus {
+
+    private static final int[] PAGE_COUNTS = { 1, 12 };
+    private static final int[] COLUMN_COUNTS = { 1, 2 };
+
+    private Corpus() {
+        // Private constructor
+    }
+
+    public static List<PdfSpec> getPdfSpecs() {
+        List<PdfSpec> specs = new ArrayList<>();
+        for (PdfSpec.FontSet fontSet : PdfSpec.FontSet.values()) {
+            for (int columns : COLUMN_COUNTS) {
+                for (int pages : PAGE_COUNTS) {
+                    for (boolean features : new boolean[] { false, true }) {
+                        String name = "pdf-" + fontSet.name().toLowerCase() + "-" + columns + "col-" + pages + "p"
+                                + (features ? "-features" : "");
+                        PdfSpec spec = new PdfSpec(name);
+                        spec.setFontSet(fontSet);
+                        spec.setColumns(columns);
+                        spec.setPages(pages);
+                        spec.setSuperscripts(features);
+                        spec.setImages(features);
+                        spec.setLinks(features);
+                        spec.setRotatedText(features);
+                        specs.add(spec);
+                    }
+                }
+            }
+        }
+        PdfSpec hybrid = new PdfSpec("pdf-standard-1col-12p-hybrid");
+        hybrid.setPages(12);
+        hybrid.setHybridXref(true);
+        specs.add(hybrid);
+        return specs;
+    }
+
+    public static List<SpreadsheetSpec> getSpreadsheetSpecs() {
+        List<SpreadsheetSpec> specs = new ArrayList<>();
+        for (String format : new String[] { SpreadsheetSpec.FORMAT_XLSX, SpreadsheetSpec.FORMAT_XLS }) {
+            SpreadsheetSpec plain = new SpreadsheetSpec("ss-" + format + "-plain");
+            plain.setFormat(format);
+            specs.add(plain);
+
+            SpreadsheetSpec sheets = new SpreadsheetSpec("ss-" + format + "-sheets");
+            sheets.setFormat(format);
+            sheets.setSheets(3);
+            sheets.setRows(200);
+            specs.add(sheets);
+
+            SpreadsheetSpec nonText = new SpreadsheetSpec("ss-" + format + "-nontext");
+            nonText.setFormat(format);
+            nonText.setNonTextColumns(Arrays.asList("ID", "AMOUNT", "DATE"));
+            specs.add(nonText);
+
+            SpreadsheetSpec charset = new SpreadsheetSpec("ss-" + format + "-charset");
+            charset.setFormat(format);
+            charset.setNonCp850Characters(true);
+            specs.add(charset);
+
+            SpreadsheetSpec blanks = new SpreadsheetSpec("ss-" + format + "-blanks");
+            blanks.setFormat(format);
+            blanks.setBlankCells(true);
+            specs.add(blanks);
+        }
+        for (boolean tablesOnly : new boolean[] { false, true }) {
+            SpreadsheetSpec tables = new SpreadsheetSpec("ss-xlsx-tables" + (tablesOnly ? "-only" : ""));
+            tables.setSheets(2);
+            tables.setTables(2);
+            tables.setTablesOnly(tablesOnly);
+            tables.setNonTextColumns(Arrays.asList("AMOUNT"));
+            tables.setNonCp850Characters(true);
+            specs.add(tables);
+        }
+        return specs;
+    }
+
+}
@@ -0,0 +1,345 @@
+package gov.nsf.psm.documentcompliance.regression;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.AreaReference;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFTable;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTTable;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTTableColumn;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTTableColumns;
+
+import com.itextpdf.io.font.constants.StandardFonts;
+import com.itextpdf.io.image.ImageDataFactory;
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import com.itextpdf.kernel.font.PdfType3Font;
+import com.itextpdf.kernel.font.Type3Glyph;
+import com.itextpdf.kernel.geom.PageSize;
+import com.itextpdf.kernel.geom.Rectangle;
+import com.itextpdf.kernel.pdf.PdfDictionary;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfIndirectReference;
+import com.itextpdf.kernel.pdf.PdfName;
+import com.itextpdf.kernel.pdf.PdfObject;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.WriterProperties;
+import com.itextpdf.kernel.pdf.action.PdfAction;
+import com.itextpdf.layout.ColumnDocumentRenderer;
+import com.itextpdf.layout.Document;
+import com.itextpdf.layout.element.AreaBreak;
+import com.itextpdf.layout.element.Image;
+import com.itextpdf.layout.element.Link;
+import com.itextpdf.layout.element.Paragraph;
+import com.itextpdf.layout.element.Text;
+import com.itextpdf.layout.property.AreaBreakType;
+import com.itextpdf.layout.property.TextAlignment;
+import com.itextpdf.layout.property.VerticalAlignment;
+
+/*
+ * Builds the corpus documents. The content of each document comes from a random sequence seeded
+ * with its name, so a document is the same on every run
+ */
+public class CorpusGenerator {
+
+    public static final String[] COLUMN_NAMES = { "ID", "NAME", "AMOUNT", "START DATE", "NOTES" };
+
+    private static final float MARGIN = 72;
+    private static final float GUTTER = 18;
+    private static final int PARAGRAPHS_PER_PAGE = 4;
+    private static final String[] WORDS = { "proposal", "research", "budget", "investigator", "project",
+            "summary", "broader", "impacts", "intellectual", "merit", "facilities", "equipment", "data",
+            "management", "collaboration", "results", "prior", "support", "mentoring", "plan", "students",
+            "outreach", "evaluation", "objectives" };
+    // Accented letters in CP850, and punctuation and symbols outside it
+    private static final String[] CP850_WORDS = { "r\u00e9sum\u00e9", "na\u00efve", "se\u00f1or", "\u00fcber" };
+    private static final String[] NON_CP850_WORDS = { "\u201cquoted\u201d", "en\u2013dash", "\u20ac100",
+            "\u2122", "\u0141\u00f3d\u017a" };
+    // Subset font names as LaTeX writes them, matched by pdf.font.filter.name-family
+    private static final String[] LATEX_FONTS = { "AAAAAA+CMR10", "AAAAAB+CMBX12", "AAAAAC+SFRM1000",
+            "AAAAAD+SFBX1200", "AAAAAE+LMRoman10-Regular" };
+
+    private CorpusGenerator() {
+        // Private constructor
+    }
+
+    public static byte[] createPdf(PdfSpec spec) throws IOException {
+        Random random = new Random(spec.getName().hashCode());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PdfDocument pdf = new PdfDocument(
+                new PdfWriter(out, new WriterProperties().setFullCompressionMode(spec.isHybridXref())));
+        pdf.getDocumentInfo().setTitle(spec.getName()).setAuthor("Document Compliance Regression");
+        Document document = new Document(pdf, PageSize.LETTER);
+        document.setMargins(MARGIN, MARGIN, MARGIN, MARGIN);
+        if (spec.getColumns() > 1) {
+            document.setRenderer(new ColumnDocumentRenderer(document, getColumns(spec.getColumns())));
+        }
+        PdfFont[] headingFonts = getFonts(pdf, spec.getFontSet(), true);
+        PdfFont[] bodyFonts = getFonts(pdf, spec.getFontSet(), false);
+        for (int page = 1; page <= spec.getPages(); page++) {
+            if (page > 1) {
+                document.add(new AreaBreak(AreaBreakType.NEXT_PAGE));
+            }
+            document.add(new Paragraph(page + ". " + getWords(random, WORDS, 4))
+                    .setFont(headingFonts[page % headingFonts.length]).setFontSize(14));
+            for (int i = 0; i < PARAGRAPHS_PER_PAGE; i++) {
+                Paragraph paragraph = new Paragraph().setFont(bodyFonts[(page + i) % bodyFonts.length])
+                        .setFontSize(11);
+                paragraph.add(getWords(random, WORDS, 25 + random.nextInt(20)));
+                if (spec.isSuperscripts()) {
+                    paragraph.add(new Text(String.valueOf(i + 1)).setTextRise(4).setFontSize(7));
+                }
+                paragraph.add(" " + getWords(random, WORDS, 10 + random.nextInt(20)) + " ");
+                if (spec.isLinks() && i == 0) {
+                    paragraph.add(new Link("www.nsf.gov/" + page, PdfAction.createURI("https://www.nsf.gov/" + page)));
+                }
+                document.add(paragraph);
+            }
+            if (spec.isImages()) {
+                document.add(new Image(ImageDataFactory.create(createImage(random))).setWidth(72));
+            }
+            if (spec.isRotatedText()) {
+                document.showTextAligned(new Paragraph(getWords(random, WORDS, 5)).setFont(bodyFonts[0]),
+                        MARGIN / 2, PageSize.LETTER.getHeight() / 2, pdf.getNumberOfPages(), TextAlignment.CENTER,
+                        VerticalAlignment.MIDDLE, (float) (Math.PI / 2));
+            }
+        }
+        document.close();
+        return spec.isHybridXref() ? toHybridXref(out.toByteArray()) : out.toByteArray();
+    }
+
+    // Appends a cross-reference table whose /XRefStm points at the cross-reference stream of a fully
+    // compressed document. As in the hybrid-reference files written for older readers, the table
+    // leaves out the objects in object streams, so they can only be found through the stream
+    private static byte[] toHybridXref(byte[] bytes) throws IOException {
+        PdfDocument pdf = new PdfDocument(new PdfReader(new ByteArrayInputStream(bytes)));
+        StringBuilder section = new StringBuilder("xref\n");
+        try {
+            int size = pdf.getNumberOfPdfObjects();
+            List<String> entries = new ArrayList<>();
+            entries.add("0000000000 65535 f\r\n");
+            int start = 0;
+            for (int number = 1; number <= size; number++) {
+                PdfObject object = number < size ? pdf.getPdfObject(number) : null;
+                PdfIndirectReference reference = object != null ? object.getIndirectReference() : null;
+                if (reference != null && reference.getObjStreamNumber() == 0) {
+                    entries.add(String.format("%010d %05d n\r\n", reference.getOffset(), reference.getGenNumber()));
+                } else {
+                    // A run of objects in the table ends here
+                    appendSubsection(section, start, entries);
+                    start = number + 1;
+                }
+            }
+            PdfDictionary trailer = pdf.getTrailer();
+            section.append("trailer\n<< /Size ").append(size);
+            section.append(" /Root ").append(getReference(trailer, PdfName.Root));
+            section.append(" /Info ").append(getReference(trailer, PdfName.Info));
+            section.append(" /XRefStm ").append(pdf.getReader().getLastXref()).append(" >>\n");
+            section.append("startxref\n").append(bytes.length).append("\n%%EOF\n");
+        } finally {
+            pdf.close();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(bytes);
+        out.write(section.toString().getBytes(StandardCharsets.US_ASCII));
+        return out.toByteArray();
+    }
+
+    private static void appendSubsection(StringBuilder section, int start, List<String> entries) {
+        if (!entries.isEmpty()) {
+            section.append(start).append(' ').append(entries.size()).append('\n');
+            for (String entry : entries) {
+                section.append(entry);
+            }
+            entries.clear();
+        }
+    }
+
+    private static String getReference(PdfDictionary dictionary, PdfName key) {
+        PdfObject value = dictionary.get(key, false);
+        PdfIndirectReference reference = value.isIndirectReference() ? (PdfIndirectReference) value
+                : value.getIndirectReference();
+        return reference.getObjNumber() + " " + reference.getGenNumber() + " R";
+    }
+
+    public static byte[] createWorkbook(SpreadsheetSpec spec) throws IOException {
+        Random random = new Random(spec.getName().hashCode());
+        Workbook wb = SpreadsheetSpec.FORMAT_XLS.equals(spec.getFormat()) ? new HSSFWorkbook() : new XSSFWorkbook();
+        try {
+            CellStyle dateStyle = wb.createCellStyle();
+            dateStyle.setDataFormat(wb.getCreationHelper().createDataFormat().getFormat("m/d/yyyy"));
+            CellStyle blankStyle = null;
+            if (spec.isBlankCells()) {
+                blankStyle = wb.createCellStyle();
+                blankStyle.setBorderBottom(BorderStyle.THIN);
+            }
+            Calendar calendar = Calendar.getInstance();
+            calendar.clear();
+            for (int s = 0; s < spec.getSheets(); s++) {
+                Sheet sheet = wb.createSheet("Sheet " + (s + 1));
+                int tables = sheet instanceof XSSFSheet ? Math.max(spec.getTables(), 1) : 1;
+                int firstRow = 0;
+                for (int t = 0; t < tables; t++) {
+                    int lastRow = addRows(sheet, firstRow, spec, random, dateStyle, blankStyle, calendar);
+                    if (t < spec.getTables() && sheet instanceof XSSFSheet) {
+                        addTable((XSSFSheet) sheet, firstRow, lastRow, s * tables + t + 1);
+                    }
+                    // A blank row between tables
+                    firstRow = lastRow + 2;
+                }
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            wb.write(out);
+            return out.toByteArray();
+        } finally {
+            wb.close();
+        }
+    }
+
+    // Header row and data rows from firstRow, returning the last row
+    private static int addRows(Sheet sheet, int firstRow, SpreadsheetSpec spec, Random random, CellStyle dateStyle,
+            CellStyle blankStyle, Calendar calendar) {
+        Row header = sheet.createRow(firstRow);
+        for (int c = 0; c < COLUMN_NAMES.length; c++) {
+            header.createCell(c).setCellValue(COLUMN_NAMES[c]);
+        }
+        int lastRow = firstRow + spec.getRows();
+        for (int r = firstRow + 1; r <= lastRow; r++) {
+            Row row = sheet.createRow(r);
+            row.createCell(0).setCellValue(r);
+            row.createCell(1).setCellValue(getWords(random, WORDS, 2) + (random.nextInt(4) == 0
+                    ? " " + getWords(random, CP850_WORDS, 1) : ""));
+            row.createCell(2).setCellValue(random.nextInt(1000000) / 100d);
+            calendar.set(2010 + random.nextInt(10), random.nextInt(12), 1 + random.nextInt(28));
+            Cell date = row.createCell(3);
+            date.setCellValue(calendar.getTime());
+            date.setCellStyle(dateStyle);
+            String notes = getWords(random, WORDS, 1 + random.nextInt(6));
+            if (spec.isNonCp850Characters() && random.nextInt(3) == 0) {
+                notes += " " + getWords(random, NON_CP850_WORDS, 1);
+            }
+            row.createCell(4).setCellValue(notes);
+            if (blankStyle != null && random.nextInt(3) == 0) {
+                // A formatted run of empty cells, which an XLS file holds as one multiple blank record
+                for (int c = COLUMN_NAMES.length; c < COLUMN_NAMES.length + 3; c++) {
+                    row.createCell(c).setCellStyle(blankStyle);
+                }
+            }
+        }
+        return lastRow;
+    }
+
+    private static void addTable(XSSFSheet sheet, int firstRow, int lastRow, int id) {
+        XSSFTable table = sheet.createTable();
+        CTTable ctTable = table.getCTTable();
+        AreaReference area = new AreaReference(new CellReference(firstRow, 0),
+                new CellReference(lastRow, COLUMN_NAMES.length - 1));
+        ctTable.setRef(area.formatAsString());
+        ctTable.setId(id);
+        ctTable.setName("Table" + id);
+        ctTable.setDisplayName("Table" + id);
+        CTTableColumns columns = ctTable.addNewTableColumns();
+        columns.setCount(COLUMN_NAMES.length);
+        for (int c = 0; c < COLUMN_NAMES.length; c++) {
+            CTTableColumn column = columns.addNewTableColumn();
+            column.setId(c + 1L);
+            column.setName(COLUMN_NAMES[c]);
+        }
+    }
+
+    private static Rectangle[] getColumns(int count) {
+        float width = (PageSize.LETTER.getWidth() - 2 * MARGIN - (count - 1) * GUTTER) / count;
+        float height = PageSize.LETTER.getHeight() - 2 * MARGIN;
+        Rectangle[] columns = new Rectangle[count];
+        for (int i = 0; i < count; i++) {
+            columns[i] = new Rectangle(MARGIN + i * (width + GUTTER), MARGIN, width, height);
+        }
+        return columns;
+    }
+
+    private static PdfFont[] getFonts(PdfDocument pdf, PdfSpec.FontSet fontSet, boolean heading)
+            throws IOException {
+        PdfFont[] standard = heading
+                ? new PdfFont[] { PdfFontFactory.createFont(StandardFonts.HELVETICA_BOLD) }
+                : new PdfFont[] { PdfFontFactory.createFont(StandardFonts.TIMES_ROMAN),
+                        PdfFontFactory.createFont(StandardFonts.HELVETICA),
+                        PdfFontFactory.createFont(StandardFonts.COURIER) };
+        if (fontSet == PdfSpec.FontSet.STANDARD) {
+            return standard;
+        }
+        PdfFont[] latex = heading
+                ? new PdfFont[] { createType3Font(pdf, LATEX_FONTS[1]), createType3Font(pdf, LATEX_FONTS[3]) }
+                : new PdfFont[] { createType3Font(pdf, LATEX_FONTS[0]), createType3Font(pdf, LATEX_FONTS[2]),
+                        createType3Font(pdf, LATEX_FONTS[4]) };
+        if (fontSet == PdfSpec.FontSet.LATEX) {
+            return latex;
+        }
+        PdfFont[] mixed = new PdfFont[standard.length + latex.length];
+        System.arraycopy(standard, 0, mixed, 0, standard.length);
+        System.arraycopy(latex, 0, mixed, standard.length, latex.length);
+        return mixed;
+    }
+
+    // Printable ASCII drawn as boxes, under the given font name
+    private static PdfFont createType3Font(PdfDocument pdf, String fontName) {
+        PdfType3Font font = PdfFontFactory.createType3Font(pdf, false);
+        font.setFontName(fontName);
+        for (int code = 32; code < 127; code++) {
+            int width = code == ' ' ? 250 : 500;
+            int height = Character.isUpperCase(code) || Character.isDigit(code) ? 700 : 500;
+            Type3Glyph glyph = font.addGlyph((char) code, width, 0, 0, width, height);
+            if (code != ' ') {
+                glyph.rectangle(50, 0, width - 100, height).fill();
+            }
+        }
+        return font;
+    }
+
+    private static byte[] createImage(Random random) throws IOException {
+        BufferedImage image = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setColor(new Color(random.nextInt(0xffffff)));
+            graphics.fillRect(0, 0, 64, 48);
+        } finally {
+            graphics.dispose();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private static String getWords(Random random, String[] words, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(words[random.nextInt(words.length)]);
+        }
+        return text.toString();
+    }
+
+}
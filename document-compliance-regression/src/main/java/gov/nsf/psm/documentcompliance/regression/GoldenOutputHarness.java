@@ -0,0 +1,310 @@
+package gov.nsf.psm.documentcompliance.regression;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import gov.nsf.psm.documentcompliance.compliance.common.io.UploadBuffer;
+import gov.nsf.psm.documentcompliance.compliance.common.utility.DocComplianceUtils;
+import gov.nsf.psm.documentcompliance.service.parameter.PdfParameters;
+import gov.nsf.psm.documentcompliance.service.parameter.SpreadsheetParameters;
+import gov.nsf.psm.foundation.exception.CommonUtilException;
+import gov.nsf.psm.foundation.model.compliance.ComplianceModel;
+
+/*
+ * Analyses the corpus and compares each serialized ComplianceModel with its committed baseline.
+ * Documents are analysed once per extraction variant. The reference variant takes none of the
+ * optimized paths: text events are measured glyph by glyph, pages are read in two passes and one
+ * after the other. Every other variant must match the output of the reference one, so an
+ * optimized path is only accepted when its output is identical.
+ *
+ *   record <dir>    writes the baselines from the reference variant
+ *   verify <dir>    reports every difference from the baselines and exits with 1 on any. The
+ *                   metadata read by the scanner is also compared with the metadata of the opened
+ *                   document
+ *   generate <dir>  writes the corpus documents themselves, for inspection
+ */
+public class GoldenOutputHarness {
+
+    public static final String MODE_RECORD = "record";
+    public static final String MODE_VERIFY = "verify";
+    public static final String MODE_GENERATE = "generate";
+
+    private static final String FONT_FILTER = "CM+CM,LM+LM,SFBX+SF,SFRM+SF,SFTI+SF,SFTT+SF";
+    private static final String SPECIAL_CHARACTERS = "[\\u200B\\u00A0]";
+    private static final String DEFAULT_ENCODING = "cp850";
+    private static final List<String> MIME_TYPES = Arrays.asList(ComplianceModel.MIME_TYPE_PDF,
+            ComplianceModel.MIME_TYPE_XLS, ComplianceModel.MIME_TYPE_XLSX);
+    private static final String VARIANT_REFERENCE = "reference";
+    private static final int PARALLELISM = 4;
+    private static final int MAX_REPORTED_DIFFERENCES = 20;
+
+    // Values that depend on the host or the clock rather than on the extraction
+    private static final Set<String> VOLATILE_FIELDS = new TreeSet<>(
+            Arrays.asList("processingTime", "compatibleLibraryAvailableOnServer"));
+
+    // The corpus is written with iText, so its producer changes with the iText version. Only the
+    // version and copyright years are replaced, the rest of the producer is still compared
+    private static final String PRODUCER_FIELD = "producer";
+    private static final Pattern ITEXT_VERSION = Pattern.compile("(iText\\S*\\s)\\d[\\w.-]*(\\s\\u00A9\\d{4}-\\d{4})?");
+    private static final String ITEXT_VERSION_REPLACEMENT = "$1<version>";
+
+    private final File directory;
+    private final ObjectMapper mapper;
+    private final ExecutorService executor;
+    private int failures;
+
+    public GoldenOutputHarness(File directory) {
+        this.directory = directory;
+        this.mapper = new ObjectMapper();
+        mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        mapper.configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true);
+        mapper.configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+        mapper.configure(SerializationFeature.INDENT_OUTPUT, true);
+        this.executor = Executors.newFixedThreadPool(PARALLELISM);
+    }
+
+    public static void main(String[] args) throws IOException, CommonUtilException {
+        if (args.length < 1) {
+            System.err.println("Usage: GoldenOutputHarness record|verify|generate [directory]");
+            System.exit(2);
+        }
+        File directory = new File(args.length > 1 ? args[1] : "baselines");
+        GoldenOutputHarness harness = new GoldenOutputHarness(directory);
+        try {
+            harness.run(args[0]);
+        } finally {
+            harness.executor.shutdownNow();
+        }
+        System.exit(harness.failures > 0 ? 1 : 0);
+    }
+
+    public void run(String mode) throws IOException, CommonUtilException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        for (PdfSpec spec : Corpus.getPdfSpecs()) {
+            byte[] bytes = CorpusGenerator.createPdf(spec);
+            if (MODE_GENERATE.equals(mode)) {
+                Files.write(new File(directory, spec.getName() + ".pdf").toPath(), bytes);
+                continue;
+            }
+            if (MODE_VERIFY.equals(mode)) {
+                checkMetadata(spec.getName(), bytes);
+            }
+            JsonNode reference = null;
+            for (Map.Entry<String, PdfParameters> variant : getPdfVariants().entrySet()) {
+                if (MODE_RECORD.equals(mode) && !VARIANT_REFERENCE.equals(variant.getKey())) {
+                    continue;
+                }
+                ComplianceModel compliance = new ComplianceModel();
+                compliance.setMimeType(ComplianceModel.MIME_TYPE_PDF);
+                try (UploadBuffer upload = UploadBuffer.wrap(bytes)) {
+                    compliance = DocComplianceUtils.getDocumentModel(compliance, MIME_TYPES, upload,
+                            spec.getName() + ".pdf", variant.getValue());
+                }
+                reference = check(mode, spec.getName(), variant.getKey(), compliance, reference);
+            }
+        }
+        for (SpreadsheetSpec spec : Corpus.getSpreadsheetSpecs()) {
+            byte[] bytes = CorpusGenerator.createWorkbook(spec);
+            String fileName = spec.getName() + "." + spec.getFormat();
+            if (MODE_GENERATE.equals(mode)) {
+                Files.write(new File(directory, fileName).toPath(), bytes);
+                continue;
+            }
+            String mimeType = SpreadsheetSpec.FORMAT_XLS.equals(spec.getFormat()) ? ComplianceModel.MIME_TYPE_XLS
+                    : ComplianceModel.MIME_TYPE_XLSX;
+            JsonNode reference = null;
+            for (Map.Entry<String, SpreadsheetParameters> variant : getSpreadsheetVariants().entrySet()) {
+                if (MODE_RECORD.equals(mode) && !VARIANT_REFERENCE.equals(variant.getKey())) {
+                    continue;
+                }
+                ComplianceModel compliance = new ComplianceModel();
+                compliance.setMimeType(mimeType);
+                try (UploadBuffer upload = UploadBuffer.wrap(bytes)) {
+                    compliance = DocComplianceUtils.getSpreadsheetModel(compliance, MIME_TYPES, mimeType,
+                            spec.getNonTextColumns(), upload, fileName, variant.getValue(), spec.isTablesOnly());
+                }
+                reference = check(mode, spec.getName(), variant.getKey(), compliance, reference);
+            }
+        }
+        if (!MODE_GENERATE.equals(mode)) {
+            System.out.println(failures == 0 ? "All outputs match" : failures + " outputs differ");
+        }
+    }
+
+    // The extraction variants that must all produce the recorded output. Each optimized path is
+    // checked on its own, then all of them together
+    private Map<String, PdfParameters> getPdfVariants() {
+        Map<String, PdfParameters> variants = new LinkedHashMap<>();
+        variants.put(VARIANT_REFERENCE, newPdfParameters(false, false));
+        variants.put("chunkEvents", newPdfParameters(false, true));
+        variants.put("singlePass", newPdfParameters(true, false));
+        variants.put("parallel", setParallel(newPdfParameters(false, false)));
+        variants.put("optimized", setParallel(newPdfParameters(true, true)));
+        return variants;
+    }
+
+    // The workbook is loaded whole by default and read row by row when streaming
+    private static Map<String, SpreadsheetParameters> getSpreadsheetVariants() {
+        Map<String, SpreadsheetParameters> variants = new LinkedHashMap<>();
+        variants.put(VARIANT_REFERENCE, new SpreadsheetParameters(true, DEFAULT_ENCODING));
+        SpreadsheetParameters streaming = new SpreadsheetParameters(true, DEFAULT_ENCODING);
+        streaming.setStreamingThresholdKb(0);
+        variants.put("streaming", streaming);
+        return variants;
+    }
+
+    private static PdfParameters newPdfParameters(boolean singlePass, boolean chunkEvents) {
+        PdfParameters params = new PdfParameters(true, true, false, SPECIAL_CHARACTERS,
+                DocComplianceUtils.convertToMap(FONT_FILTER));
+        params.setSinglePassExtraction(singlePass);
+        params.setChunkEvents(chunkEvents);
+        return params;
+    }
+
+    private PdfParameters setParallel(PdfParameters params) {
+        params.setExtractionExecutor(executor);
+        params.setExtractionParallelism(PARALLELISM);
+        params.setExtractionMinPagesPerWorker(1);
+        return params;
+    }
+
+    // The reference variant is compared with the baseline and every other variant with the reference
+    // output of the same run, so the variants are still checked against each other when a baseline
+    // is missing. Returns the output to compare the next variants with
+    private JsonNode check(String mode, String name, String variant, ComplianceModel compliance, JsonNode reference)
+            throws IOException {
+        JsonNode actual = mapper.valueToTree(compliance);
+        removeVolatileFields(actual);
+        File baseline = new File(directory, name + ".json");
+        if (MODE_RECORD.equals(mode)) {
+            mapper.writeValue(baseline, actual);
+            System.out.println("Recorded " + baseline.getName());
+            return actual;
+        }
+        if (reference != null) {
+            report(name, variant + " vs " + VARIANT_REFERENCE, reference, actual);
+            return reference;
+        }
+        if (!baseline.isFile()) {
+            failures++;
+            System.out.println("MISSING " + name + " [" + variant + "]: no baseline " + baseline
+                    + ", run record with a build of the service to write it");
+            return actual;
+        }
+        report(name, variant, mapper.readTree(baseline), actual);
+        return actual;
+    }
+
+    private void report(String name, String variant, JsonNode expected, JsonNode actual) {
+        List<String> differences = new ArrayList<>();
+        compare("", expected, actual, differences);
+        if (differences.isEmpty()) {
+            System.out.println("OK      " + name + " [" + variant + "]");
+            return;
+        }
+        failures++;
+        System.out.println("DIFFERS " + name + " [" + variant + "]: " + differences.size() + " differences");
+        for (String difference : differences.subList(0, Math.min(differences.size(), MAX_REPORTED_DIFFERENCES))) {
+            System.out.println("    " + difference);
+        }
+    }
+
+    // The metadata read by the scanner must be what opening the document gives
+    private void checkMetadata(String name, byte[] bytes) throws CommonUtilException {
+        JsonNode scanned = getMetadata(name, bytes, true);
+        JsonNode opened = getMetadata(name, bytes, false);
+        List<String> differences = new ArrayList<>();
+        compare("", opened, scanned, differences);
+        if (differences.isEmpty()) {
+            System.out.println("OK      " + name + " [metadataScan]");
+            return;
+        }
+        failures++;
+        System.out.println("DIFFERS " + name + " [metadataScan]: " + differences.size() + " differences");
+        for (String difference : differences.subList(0, Math.min(differences.size(), MAX_REPORTED_DIFFERENCES))) {
+            System.out.println("    " + difference);
+        }
+    }
+
+    private JsonNode getMetadata(String name, byte[] bytes, boolean metadataScan) throws CommonUtilException {
+        ComplianceModel compliance = new ComplianceModel();
+        try (UploadBuffer upload = UploadBuffer.wrap(bytes)) {
+            compliance = DocComplianceUtils.getDocumentMetadata(compliance, MIME_TYPES,
+                    ComplianceModel.MIME_TYPE_PDF, upload, name + ".pdf", metadataScan);
+        }
+        JsonNode metadata = mapper.valueToTree(compliance);
+        removeVolatileFields(metadata);
+        return metadata;
+    }
+
+    private static void removeVolatileFields(JsonNode node) {
+        if (node.isObject()) {
+            ObjectNode object = (ObjectNode) node;
+            object.remove(VOLATILE_FIELDS);
+            JsonNode producer = object.get(PRODUCER_FIELD);
+            if (producer != null && producer.isTextual()) {
+                object.set(PRODUCER_FIELD, new TextNode(
+                        ITEXT_VERSION.matcher(producer.asText()).replaceAll(ITEXT_VERSION_REPLACEMENT)));
+            }
+        }
+        for (JsonNode child : node) {
+            removeVolatileFields(child);
+        }
+    }
+
+    private static void compare(String path, JsonNode expected, JsonNode actual, List<String> differences) {
+        if (expected.isObject() && actual.isObject()) {
+            Set<String> names = new TreeSet<>();
+            addFieldNames(expected, names);
+            addFieldNames(actual, names);
+            for (String name : names) {
+                JsonNode expectedChild = expected.get(name);
+                JsonNode actualChild = actual.get(name);
+                if (expectedChild == null || actualChild == null) {
+                    differences.add(path + "/" + name + ": expected " + expectedChild + ", actual " + actualChild);
+                } else {
+                    compare(path + "/" + name, expectedChild, actualChild, differences);
+                }
+            }
+        } else if (expected.isArray() && actual.isArray()) {
+            if (expected.size() != actual.size()) {
+                differences.add(path + ": expected " + expected.size() + " elements, actual " + actual.size());
+            }
+            for (int i = 0; i < Math.min(expected.size(), actual.size()); i++) {
+                compare(path + "/" + i, expected.get(i), actual.get(i), differences);
+            }
+        } else if (!expected.equals(actual)) {
+            differences.add(path + ": expected " + expected + ", actual " + actual);
+        }
+    }
+
+    private static void addFieldNames(JsonNode node, Set<String> names) {
+        Iterator<String> fieldNames = node.fieldNames();
+        while (fieldNames.hasNext()) {
+            names.add(fieldNames.next());
+        }
+    }
+
+}
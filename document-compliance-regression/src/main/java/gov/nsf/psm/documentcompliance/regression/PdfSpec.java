@@ -0,0 +1,99 @@
+package gov.nsf.psm.documentcompliance.regression;
+
+/*
+ * Parameters of a generated PDF
+ */
+public class PdfSpec {
+
+    public enum FontSet {
+        // Times, Helvetica and Courier
+        STANDARD,
+        // Type 3 fonts named like the subset Computer Modern and Sans Serif fonts of LaTeX output
+        LATEX,
+        MIXED
+    }
+
+    private String name;
+    private int pages = 1;
+    private FontSet fontSet = FontSet.STANDARD;
+    private int columns = 1;
+    private boolean superscripts;
+    private boolean images;
+    private boolean links;
+    private boolean rotatedText;
+    // Cross-reference table pointing at a cross-reference stream, with the objects in object streams
+    private boolean hybridXref;
+
+    public PdfSpec(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getPages() {
+        return pages;
+    }
+
+    public void setPages(int pages) {
+        this.pages = pages;
+    }
+
+    public FontSet getFontSet() {
+        return fontSet;
+    }
+
+    public void setFontSet(FontSet fontSet) {
+        this.fontSet = fontSet;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public void setColumns(int columns) {
+        this.columns = columns;
+    }
+
+    public boolean isSuperscripts() {
+        return superscripts;
+    }
+
+    public void setSuperscripts(boolean superscripts) {
+        this.superscripts = superscripts;
+    }
+
+    public boolean isImages() {
+        return images;
+    }
+
+    public void setImages(boolean images) {
+        this.images = images;
+    }
+
+    public boolean isLinks() {
+        return links;
+    }
+
+    public void setLinks(boolean links) {
+        this.links = links;
+    }
+
+    public boolean isRotatedText() {
+        return rotatedText;
+    }
+
+    public void setRotatedText(boolean rotatedText) {
+        this.rotatedText = rotatedText;
+    }
+
+    public boolean isHybridXref() {
+        return hybridXref;
+    }
+
+    public void setHybridXref(boolean hybridXref) {
+        this.hybridXref = hybridXref;
+    }
+
+}
@@ -0,0 +1,97 @@
+package gov.nsf.psm.documentcompliance.regression;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Parameters of a generated workbook, and of its analysis
+ */
+public class SpreadsheetSpec {
+
+    public static final String FORMAT_XLSX = "xlsx";
+    public static final String FORMAT_XLS = "xls";
+
+    private String name;
+    private String format = FORMAT_XLSX;
+    private int sheets = 1;
+    private int rows = 20;
+    // Tables per sheet, XLSX only
+    private int tables;
+    private boolean tablesOnly;
+    private List<String> nonTextColumns = new ArrayList<>();
+    private boolean nonCp850Characters;
+    private boolean blankCells;
+
+    public SpreadsheetSpec(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public void setFormat(String format) {
+        this.format = format;
+    }
+
+    public int getSheets() {
+        return sheets;
+    }
+
+    public void setSheets(int sheets) {
+        this.sheets = sheets;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public void setRows(int rows) {
+        this.rows = rows;
+    }
+
+    public int getTables() {
+        return tables;
+    }
+
+    public void setTables(int tables) {
+        this.tables = tables;
+    }
+
+    public boolean isTablesOnly() {
+        return tablesOnly;
+    }
+
+    public void setTablesOnly(boolean tablesOnly) {
+        this.tablesOnly = tablesOnly;
+    }
+
+    public List<String> getNonTextColumns() {
+        return nonTextColumns;
+    }
+
+    public void setNonTextColumns(List<String> nonTextColumns) {
+        this.nonTextColumns = nonTextColumns;
+    }
+
+    public boolean isNonCp850Characters() {
+        return nonCp850Characters;
+    }
+
+    public void setNonCp850Characters(boolean nonCp850Characters) {
+        this.nonCp850Characters = nonCp850Characters;
+    }
+
+    public boolean isBlankCells() {
+        return blankCells;
+    }
+
+    public void setBlankCells(boolean blankCells) {
+        this.blankCells = blankCells;
+    }
+
+}
@@ -0,0 +1,33 @@
+package gov.nsf.psm.documentcompliance;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import gov.nsf.psm.foundation.model.compliance.ComplianceModel;
+
+/*
+ * Results of a batch request keyed by file name. A file that could not be processed has an
+ * entry in the errors instead of a compliance model
+ */
+public class ComplianceModelBatch {
+
+    private Map<String, ComplianceModel> complianceModels = new LinkedHashMap<>();
+    private Map<String, String> errors = new LinkedHashMap<>();
+
+    public Map<String, ComplianceModel> getComplianceModels() {
+        return complianceModels;
+    }
+
+    public void setComplianceModels(Map<String, ComplianceModel> complianceModels) {
+        this.complianceModels = complianceModels;
+    }
+
+    public Map<String, String> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(Map<String, String> errors) {
+        this.errors = errors;
+    }
+
+}
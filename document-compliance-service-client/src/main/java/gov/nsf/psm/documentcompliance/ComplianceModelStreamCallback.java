@@ -0,0 +1,16 @@
+package gov.nsf.psm.documentcompliance;
+
+import gov.nsf.psm.foundation.exception.CommonUtilException;
+import gov.nsf.psm.foundation.model.compliance.ComplianceModel;
+import gov.nsf.psm.foundation.model.compliance.doc.PageModel;
+
+/*
+ * Receives the records of a streamed compliance model in the order the service writes them
+ */
+public interface ComplianceModelStreamCallback {
+
+    public void onPage(int pageNumber, PageModel page) throws CommonUtilException;
+
+    public void onComplete(ComplianceModel complianceModel) throws CommonUtilException;
+
+}
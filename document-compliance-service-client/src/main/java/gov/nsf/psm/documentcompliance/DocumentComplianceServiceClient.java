@@ -1,5 +1,7 @@
 package gov.nsf.psm.documentcompliance;
 
+import java.util.Map;
+
 import gov.nsf.psm.foundation.exception.CommonUtilException;
 import gov.nsf.psm.foundation.model.compliance.ComplianceConfig;
 import gov.nsf.psm.foundation.model.compliance.ComplianceModel;
@@ -12,6 +14,17 @@ public interface DocumentComplianceServiceClient {
     public ComplianceModel getComplianceModel(String origFileName, byte[] bytes, ComplianceConfig config)
             throws CommonUtilException;
 
+    // Every file is checked with the same configuration
+    public ComplianceModelBatch getComplianceModels(Map<String, byte[]> files, ComplianceConfig config)
+            throws CommonUtilException;
+
+    // Files without a configuration of their own are checked with the default configuration
+    public ComplianceModelBatch getComplianceModels(Map<String, byte[]> files, Map<String, ComplianceConfig> configs,
+            ComplianceConfig defaultConfig) throws CommonUtilException;
+
+    public void streamComplianceModel(String origFileName, byte[] bytes, ComplianceConfig config,
+            ComplianceModelStreamCallback callback) throws CommonUtilException;
+
     public String getServerURL();
 
     public Boolean getServiceEnabled();
@@ -1,31 +1,55 @@
 package gov.nsf.psm.documentcompliance;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.converter.support.AllEncompassingFormHttpMessageConverter;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.RestTemplate;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import gov.nsf.psm.foundation.exception.CommonUtilException;
 import gov.nsf.psm.foundation.model.compliance.ComplianceConfig;
 import gov.nsf.psm.foundation.model.compliance.ComplianceModel;
+import gov.nsf.psm.foundation.model.compliance.doc.PageModel;
 import gov.nsf.psm.foundation.restclient.NsfRestTemplate;
 
 public class DocumentComplianceServiceClientImpl implements DocumentComplianceServiceClient {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DocumentComplianceServiceClientImpl.class);
+    private static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+    private static final String BATCH_FILE_PART = "FILE";
+
+    // Page records also carry the page fact model, which this client does not map
+    private static final ObjectMapper STREAM_MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
 
     private boolean authenticationRequired;
     private int requestTimeout;
     private String serverURL;
     private String inputStreamURL = "/complianceModel";
     private String metadataURL = "/metadata";
+    private String streamURL = "/stream";
+    private String batchURL = "/complianceModels";
     private Boolean serviceEnabled;
     private String username;
     private String password;
@@ -132,6 +156,99 @@ public class DocumentComplianceServiceClientImpl implements DocumentComplianceSe
         }
     }
 
+    @Override
+    public ComplianceModelBatch getComplianceModels(Map<String, byte[]> files, ComplianceConfig config)
+            throws CommonUtilException {
+        return getComplianceModels(files, Collections.<String, ComplianceConfig>emptyMap(), config);
+    }
+
+    @Override
+    public ComplianceModelBatch getComplianceModels(Map<String, byte[]> files, Map<String, ComplianceConfig> configs,
+            ComplianceConfig defaultConfig) throws CommonUtilException {
+        try {
+            RestTemplate documentComplianceServiceClient = NsfRestTemplate.setupRestTemplate(authenticationRequired,
+                    requestTimeout);
+
+            MultiValueMap<String, Object> requestParts = new LinkedMultiValueMap<>();
+            int fileIndex = 0;
+            for (Map.Entry<String, byte[]> file : files.entrySet()) {
+                ComplianceConfig config = configs.containsKey(file.getKey()) ? configs.get(file.getKey())
+                        : defaultConfig;
+                addBatchRequestParts(requestParts, fileIndex++, file.getKey(), file.getValue(), config);
+            }
+            StringBuilder endpointURL = new StringBuilder(serverURL);
+            endpointURL.append(batchURL);
+            LOGGER.info(eUrl + endpointURL);
+
+            HttpHeaders headers = authenticationRequired ? createHttpHeaderswithAuth(username, password)
+                    : new HttpHeaders();
+            headers.set("Content-Type", "multipart/form-data");
+
+            return documentComplianceServiceClient.exchange(endpointURL.toString(), HttpMethod.POST,
+                    new HttpEntity<>(requestParts, headers), ComplianceModelBatch.class).getBody();
+        } catch (Exception e) {
+            throw new CommonUtilException(e);
+        }
+    }
+
+    @Override
+    public void streamComplianceModel(String origFileName, byte[] byteArr, ComplianceConfig config,
+            ComplianceModelStreamCallback callback) throws CommonUtilException {
+        try {
+            RestTemplate documentComplianceServiceClient = NsfRestTemplate.setupRestTemplate(authenticationRequired,
+                    requestTimeout);
+
+            MultiValueMap<String, Object> requestParts = getRequestParts(origFileName, byteArr, config.getMimeTypes(),
+                    config.getNonTextColumns(), config.isTablesOnly());
+            StringBuilder endpointURL = new StringBuilder(serverURL);
+            endpointURL.append(inputStreamURL);
+            endpointURL.append(streamURL);
+            LOGGER.info(eUrl + endpointURL);
+
+            documentComplianceServiceClient.execute(endpointURL.toString(), HttpMethod.POST,
+                    request -> writeRequestParts(request, requestParts),
+                    response -> readRecords(response, callback));
+        } catch (Exception e) {
+            throw new CommonUtilException(e);
+        }
+    }
+
+    private void writeRequestParts(ClientHttpRequest request, MultiValueMap<String, Object> requestParts)
+            throws IOException {
+        if (authenticationRequired) {
+            request.getHeaders().putAll(createHttpHeaderswithAuth(username, password));
+        }
+        request.getHeaders().setAccept(Collections.singletonList(MediaType.valueOf(NDJSON_MEDIA_TYPE)));
+        new AllEncompassingFormHttpMessageConverter().write(requestParts, MediaType.MULTIPART_FORM_DATA, request);
+    }
+
+    private static Void readRecords(ClientHttpResponse response, ComplianceModelStreamCallback callback)
+            throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(response.getBody(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    readRecord(STREAM_MAPPER.readTree(line), callback);
+                }
+            }
+        } catch (CommonUtilException e) {
+            throw new IOException(e);
+        }
+        return null;
+    }
+
+    private static void readRecord(JsonNode streamRecord, ComplianceModelStreamCallback callback)
+            throws IOException, CommonUtilException {
+        String type = streamRecord.path("type").asText();
+        if ("page".equals(type)) {
+            callback.onPage(streamRecord.path("pageNumber").asInt(),
+                    STREAM_MAPPER.treeToValue(streamRecord.get("page"), PageModel.class));
+        } else if ("complianceModel".equals(type)) {
+            callback.onComplete(STREAM_MAPPER.treeToValue(streamRecord.get("complianceModel"), ComplianceModel.class));
+        }
+    }
+
     private ResponseEntity<ComplianceModel> getEndpointURL(StringBuilder endpointURL,
             RestTemplate documentComplianceServiceClient, MultiValueMap<String, Object> requestParts) {
 
@@ -146,6 +263,34 @@ public class DocumentComplianceServiceClientImpl implements DocumentComplianceSe
                 new HttpEntity<>(requestParts, headers), ComplianceModel.class);
     }
 
+    // Parts of file k are suffixed with its index: FILE_k, TABLES_ONLY_k, MIME_TYPE_k_n and NONTEXT_COLUMN_k_n
+    private static void addBatchRequestParts(MultiValueMap<String, Object> requestParts, int fileIndex,
+            String origFileName, byte[] byteArr, ComplianceConfig config) {
+        String suffix = "_" + fileIndex;
+        requestParts.add(BATCH_FILE_PART + suffix, new ByteArrayResource(byteArr) {
+            @Override
+            public String getFilename() {
+                return origFileName;
+            }
+        });
+        if (config == null) {
+            return;
+        }
+        requestParts.add(ComplianceConfig.TABLES_ONLY + suffix, config.isTablesOnly());
+        List<String> mimeTypes = config.getMimeTypes();
+        if (mimeTypes != null) {
+            for (int i = 0; i < mimeTypes.size(); i++) {
+                requestParts.add(ComplianceConfig.MIME_TYPE + suffix + "_" + i, mimeTypes.get(i));
+            }
+        }
+        List<String> nonTextColumns = config.getNonTextColumns();
+        if (nonTextColumns != null) {
+            for (int i = 0; i < nonTextColumns.size(); i++) {
+                requestParts.add(ComplianceConfig.NONTEXT_COLUMN + suffix + "_" + i, nonTextColumns.get(i));
+            }
+        }
+    }
+
     private static MultiValueMap<String, Object> getRequestParts(String origFileName, byte[] byteArr, List<String> mimeTypes,
             List<String> nonTextColumns, boolean isTablesOnly) throws CommonUtilException {
         MultiValueMap<String, Object> requestParts = new LinkedMultiValueMap<>();
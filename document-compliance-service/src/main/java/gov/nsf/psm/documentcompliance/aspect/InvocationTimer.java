@@ -0,0 +1,37 @@
+package gov.nsf.psm.documentcompliance.aspect;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import gov.nsf.psm.documentcompliance.service.ComplianceMetrics;
+
+/*
+ * Times every public controller and service method, failures included, into a timer named
+ * timer.invocation.<class>.<method>
+ */
+@Aspect
+@Component
+public class InvocationTimer {
+
+    private static final String METRIC_PREFIX = "timer.invocation.";
+
+    @Autowired
+    private ComplianceMetrics complianceMetrics;
+
+    @Around("execution(public * gov.nsf.psm.documentcompliance.controller.*Controller.*(..))"
+            + " || execution(public * gov.nsf.psm.documentcompliance.service.*ServiceImpl.*(..))")
+    public Object time(final ProceedingJoinPoint proceedingJoinPoint) throws Throwable {
+        long start = System.nanoTime();
+        try {
+            return proceedingJoinPoint.proceed();
+        } finally {
+            complianceMetrics.recordTime(METRIC_PREFIX
+                    + proceedingJoinPoint.getSignature().getDeclaringType().getSimpleName() + "."
+                    + proceedingJoinPoint.getSignature().getName(), System.nanoTime() - start);
+        }
+    }
+
+}
@@ -0,0 +1,264 @@
+package gov.nsf.psm.documentcompliance.compliance.common.io;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import com.itextpdf.io.source.IRandomAccessSource;
+
+import gov.nsf.psm.foundation.model.compliance.ComplianceModel;
+
+/*
+ * Recognizes the accepted formats from their first bytes: the %PDF- header, an OLE2 compound file
+ * whose root holds a workbook stream, and a ZIP package whose [Content_Types].xml, stored as the
+ * first entry, names a spreadsheet as its main part. Returns null when the bytes alone do not
+ * settle the type, so the caller can use the full detector.
+ */
+public class MagicByteDetector {
+
+    private static final byte[] PDF_SIGNATURE = "%PDF-".getBytes(StandardCharsets.ISO_8859_1);
+    private static final byte[] OLE2_SIGNATURE = { (byte) 0xd0, (byte) 0xcf, 0x11, (byte) 0xe0, (byte) 0xa1,
+            (byte) 0xb1, 0x1a, (byte) 0xe1 };
+    private static final byte[] ZIP_SIGNATURE = { 0x50, 0x4b, 0x03, 0x04 };
+
+    private static final String CONTENT_TYPES_ENTRY = "[Content_Types].xml";
+    private static final String CONTENT_TYPE_ATTRIBUTE = "ContentType=\"";
+    private static final String MAIN_PART_SUFFIX = ".main+xml";
+    private static final int MAX_CONTENT_TYPES_LENGTH = 64 * 1024;
+
+    private static final int OLE2_HEADER_LENGTH = 512;
+    private static final int OLE2_HEADER_FAT_SECTORS = 109;
+    private static final int OLE2_DIRECTORY_ENTRY_LENGTH = 128;
+    private static final int OLE2_MAX_DIRECTORY_SECTORS = 16;
+    private static final int OLE2_END_OF_CHAIN = -2;
+    private static final int OLE2_NO_ENTRY = -1;
+
+    // Root names of compound files that hold a workbook stream but are not Excel workbooks
+    private static final String[] OLE2_NON_EXCEL_PREFIXES = { "Star", "SwDoc", "Wks" };
+
+    private MagicByteDetector() {
+        // Private constructor
+    }
+
+    public static String detect(IRandomAccessSource source, int probeSize) throws IOException {
+        int length = (int) Math.min(probeSize, source.length());
+        byte[] head = new byte[length];
+        int read = source.get(0, head, 0, length);
+        if (read < length) {
+            return null;
+        }
+        if (startsWith(head, PDF_SIGNATURE)) {
+            return ComplianceModel.MIME_TYPE_PDF;
+        }
+        if (startsWith(head, OLE2_SIGNATURE)) {
+            return isExcelWorkbook(source) ? ComplianceModel.MIME_TYPE_XLS : null;
+        }
+        if (startsWith(head, ZIP_SIGNATURE)) {
+            return getPackageType(head);
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] head, byte[] signature) {
+        if (head.length < signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if (head[i] != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ZIP
+
+    private static String getPackageType(byte[] head) {
+        if (head.length < 30) {
+            return null;
+        }
+        int flags = readUnsignedShort(head, 6);
+        int method = readUnsignedShort(head, 8);
+        long compressedSize = readInt(head, 18) & 0xffffffffL;
+        int nameLength = readUnsignedShort(head, 26);
+        int extraLength = readUnsignedShort(head, 28);
+        int dataStart = 30 + nameLength + extraLength;
+        if (dataStart > head.length) {
+            return null;
+        }
+        String name = new String(head, 30, nameLength, StandardCharsets.UTF_8);
+        if (!CONTENT_TYPES_ENTRY.equals(name)) {
+            return null;
+        }
+        byte[] contentTypes;
+        if (method == 0) {
+            // Stored entries only carry their size up front when there is no data descriptor
+            if ((flags & 0x08) != 0 || dataStart + compressedSize > head.length) {
+                return null;
+            }
+            contentTypes = new byte[(int) compressedSize];
+            System.arraycopy(head, dataStart, contentTypes, 0, contentTypes.length);
+        } else if (method == 8) {
+            contentTypes = inflate(head, dataStart);
+        } else {
+            return null;
+        }
+        return contentTypes == null ? null : getMainPartType(new String(contentTypes, StandardCharsets.UTF_8));
+    }
+
+    private static byte[] inflate(byte[] head, int dataStart) {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(head, dataStart, head.length - dataStart);
+            byte[] output = new byte[MAX_CONTENT_TYPES_LENGTH];
+            int length = 0;
+            while (!inflater.finished() && length < output.length) {
+                int count = inflater.inflate(output, length, output.length - length);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    // The entry runs past the probed bytes
+                    return null;
+                }
+                length += count;
+            }
+            if (!inflater.finished()) {
+                return null;
+            }
+            byte[] result = new byte[length];
+            System.arraycopy(output, 0, result, 0, length);
+            return result;
+        } catch (DataFormatException e) {
+            return null;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    // The package type is the content type of its single main part without the ".main+xml" suffix
+    private static String getMainPartType(String contentTypes) {
+        String mainPartType = null;
+        int idx = contentTypes.indexOf(CONTENT_TYPE_ATTRIBUTE);
+        while (idx > -1) {
+            int start = idx + CONTENT_TYPE_ATTRIBUTE.length();
+            int end = contentTypes.indexOf('"', start);
+            if (end < 0) {
+                return null;
+            }
+            String contentType = contentTypes.substring(start, end);
+            if (contentType.endsWith(MAIN_PART_SUFFIX)) {
+                String type = contentType.substring(0, contentType.length() - MAIN_PART_SUFFIX.length());
+                if (mainPartType != null && !mainPartType.equals(type)) {
+                    return null;
+                }
+                mainPartType = type;
+            }
+            idx = contentTypes.indexOf(CONTENT_TYPE_ATTRIBUTE, end);
+        }
+        return ComplianceModel.MIME_TYPE_XLSX.equals(mainPartType) ? mainPartType : null;
+    }
+
+    // OLE2
+
+    private static boolean isExcelWorkbook(IRandomAccessSource source) throws IOException {
+        byte[] header = new byte[OLE2_HEADER_LENGTH];
+        if (source.get(0, header, 0, header.length) < header.length) {
+            return false;
+        }
+        int sectorShift = readUnsignedShort(header, 0x1e);
+        if (sectorShift != 9 && sectorShift != 12) {
+            return false;
+        }
+        int sectorSize = 1 << sectorShift;
+        int[] fatSectors = new int[OLE2_HEADER_FAT_SECTORS];
+        for (int i = 0; i < fatSectors.length; i++) {
+            fatSectors[i] = readInt(header, 0x4c + i * 4);
+        }
+        Set<String> names = getRootEntryNames(source, readInt(header, 0x30), sectorShift, sectorSize, fatSectors);
+        if (names == null) {
+            return false;
+        }
+        for (String name : names) {
+            for (String prefix : OLE2_NON_EXCEL_PREFIXES) {
+                if (name.startsWith(prefix)) {
+                    return false;
+                }
+            }
+        }
+        return names.contains("Workbook") || names.contains("WORKBOOK") || names.contains("Book");
+    }
+
+    // Names of the entries directly under the root storage, or null if the directory is not in reach
+    private static Set<String> getRootEntryNames(IRandomAccessSource source, int firstDirectorySector,
+            int sectorShift, int sectorSize, int[] fatSectors) throws IOException {
+        byte[] directory = new byte[sectorSize * OLE2_MAX_DIRECTORY_SECTORS];
+        int directoryLength = 0;
+        int sector = firstDirectorySector;
+        while (sector != OLE2_END_OF_CHAIN) {
+            if (sector < 0 || directoryLength == directory.length) {
+                return null;
+            }
+            if (source.get(((long) sector + 1) << sectorShift, directory, directoryLength, sectorSize) < sectorSize) {
+                return null;
+            }
+            directoryLength += sectorSize;
+            sector = getNextSector(source, sector, sectorShift, sectorSize, fatSectors);
+        }
+        int entryCount = directoryLength / OLE2_DIRECTORY_ENTRY_LENGTH;
+        if (entryCount == 0) {
+            return null;
+        }
+        Set<String> names = new HashSet<>();
+        Set<Integer> visited = new HashSet<>();
+        Deque<Integer> pending = new ArrayDeque<>();
+        pending.push(readInt(directory, 0x4c));
+        while (!pending.isEmpty()) {
+            int entry = pending.pop();
+            if (entry == OLE2_NO_ENTRY) {
+                continue;
+            }
+            if (entry < 0 || entry >= entryCount || !visited.add(entry)) {
+                return null;
+            }
+            int offset = entry * OLE2_DIRECTORY_ENTRY_LENGTH;
+            int nameLength = readUnsignedShort(directory, offset + 0x40);
+            if (nameLength < 2 || nameLength > 64) {
+                return null;
+            }
+            names.add(new String(directory, offset, nameLength - 2, StandardCharsets.UTF_16LE));
+            // Siblings of the root's child are the other root entries; children are one level down
+            pending.push(readInt(directory, offset + 0x44));
+            pending.push(readInt(directory, offset + 0x48));
+        }
+        return names;
+    }
+
+    private static int getNextSector(IRandomAccessSource source, int sector, int sectorShift, int sectorSize,
+            int[] fatSectors) throws IOException {
+        int entriesPerSector = sectorSize / 4;
+        int fatIndex = sector / entriesPerSector;
+        if (fatIndex >= fatSectors.length || fatSectors[fatIndex] < 0) {
+            // Beyond the FAT sectors listed in the header
+            return -1;
+        }
+        byte[] next = new byte[4];
+        long position = (((long) fatSectors[fatIndex] + 1) << sectorShift) + (long) (sector % entriesPerSector) * 4;
+        if (source.get(position, next, 0, 4) < 4) {
+            return -1;
+        }
+        return readInt(next, 0);
+    }
+
+    private static int readUnsignedShort(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff) | (bytes[offset + 1] & 0xff) << 8;
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff) | (bytes[offset + 1] & 0xff) << 8 | (bytes[offset + 2] & 0xff) << 16
+                | (bytes[offset + 3] & 0xff) << 24;
+    }
+
+}
@@ -0,0 +1,184 @@
+package gov.nsf.psm.documentcompliance.compliance.common.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.itextpdf.io.source.IRandomAccessSource;
+
+/*
+ * An uploaded file read once from the request, either into a pooled direct buffer or into a
+ * memory-mapped temp file. MIME detection, iText and POI all read from the same region
+ * instead of copying the upload into their own byte arrays.
+ */
+public class UploadBuffer implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UploadBuffer.class);
+
+    private final ByteBuffer buffer;
+    private final File file;
+    private final UploadBufferPool pool;
+    private final ByteBuffer pooledBuffer;
+    private volatile boolean closed = false;
+
+    UploadBuffer(ByteBuffer buffer, File file, UploadBufferPool pool, ByteBuffer pooledBuffer) {
+        this.buffer = buffer.asReadOnlyBuffer();
+        this.file = file;
+        this.pool = pool;
+        this.pooledBuffer = pooledBuffer;
+    }
+
+    // Wraps bytes that are already on the heap
+    public static UploadBuffer wrap(byte[] bytes) {
+        return new UploadBuffer(ByteBuffer.wrap(bytes), null, null, null);
+    }
+
+    public long getLength() {
+        return buffer.limit();
+    }
+
+    public boolean isMapped() {
+        return file != null;
+    }
+
+    // The spooled file, or null if the upload is held in memory
+    public File getFile() {
+        return file;
+    }
+
+    public InputStream newInputStream() {
+        return new BufferInputStream(buffer.duplicate());
+    }
+
+    // Feeds the whole upload to the digest straight from the buffer
+    public void update(MessageDigest digest) {
+        digest.update(buffer.duplicate());
+    }
+
+    // A source for a single reader; closing it leaves the upload open
+    public IRandomAccessSource newRandomAccessSource() {
+        return new BufferSource(buffer.duplicate());
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (pooledBuffer != null && pool != null) {
+            pool.release(pooledBuffer);
+        }
+        if (file != null) {
+            try {
+                // The mapping stays valid until it is collected, on Unix the file can be removed now
+                Files.deleteIfExists(file.toPath());
+            } catch (IOException e) {
+                LOGGER.debug(e.getMessage(), e);
+                file.deleteOnExit();
+            }
+        }
+    }
+
+    private static class BufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(bytes, off, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(int readLimit) {
+            buffer.mark();
+        }
+
+        @Override
+        public synchronized void reset() {
+            buffer.reset();
+        }
+
+    }
+
+    private static class BufferSource implements IRandomAccessSource {
+
+        private final ByteBuffer buffer;
+
+        private BufferSource(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int get(long position) {
+            if (position >= buffer.limit()) {
+                return -1;
+            }
+            return buffer.get((int) position) & 0xFF;
+        }
+
+        @Override
+        public int get(long position, byte[] bytes, int off, int len) {
+            if (position >= buffer.limit()) {
+                return -1;
+            }
+            int count = (int) Math.min(len, buffer.limit() - position);
+            buffer.position((int) position);
+            buffer.get(bytes, off, count);
+            return count;
+        }
+
+        @Override
+        public long length() {
+            return buffer.limit();
+        }
+
+        @Override
+        public void close() {
+            // The buffer belongs to the upload
+        }
+
+    }
+
+}
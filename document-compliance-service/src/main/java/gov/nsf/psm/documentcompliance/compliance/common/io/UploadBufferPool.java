@@ -0,0 +1,148 @@
+package gov.nsf.psm.documentcompliance.compliance.common.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.catalina.core.ApplicationPart;
+
+import gov.nsf.psm.documentcompliance.service.ComplianceMetrics;
+import gov.nsf.psm.foundation.exception.CommonUtilException;
+
+/*
+ * Spools uploads into upload buffers. Uploads up to the memory threshold are read into
+ * direct buffers that are reused across requests; larger ones go to a temp file that is
+ * memory-mapped.
+ */
+public class UploadBufferPool {
+
+    private static final String SPOOL_FILE_PREFIX = "dcs-upload-";
+    private static final String SPOOL_FILE_SUFFIX = ".tmp";
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final int memoryThreshold;
+    private final int maxPooledBuffers;
+    private final File spoolDirectory;
+    private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooledBuffers = new AtomicInteger();
+    private ComplianceMetrics complianceMetrics;
+
+    public UploadBufferPool(int memoryThreshold, int maxPooledBuffers, File spoolDirectory) {
+        this.memoryThreshold = memoryThreshold;
+        this.maxPooledBuffers = maxPooledBuffers;
+        this.spoolDirectory = spoolDirectory;
+    }
+
+    public UploadBuffer spool(ApplicationPart part) throws CommonUtilException {
+        try (InputStream inputStream = part.getInputStream()) {
+            return spool(inputStream, part.getSize());
+        } catch (IOException e) {
+            throw new CommonUtilException(e);
+        }
+    }
+
+    public UploadBuffer spool(InputStream inputStream, long sizeInBytes) throws CommonUtilException {
+        try {
+            UploadBuffer upload;
+            if (sizeInBytes >= 0 && sizeInBytes <= memoryThreshold) {
+                upload = spoolToMemory(inputStream);
+            } else {
+                upload = spoolToFile(inputStream, null, -1);
+            }
+            if (complianceMetrics != null) {
+                complianceMetrics.bytesIngested(upload.getLength());
+            }
+            return upload;
+        } catch (IOException e) {
+            throw new CommonUtilException(e);
+        }
+    }
+
+    public int getMemoryThreshold() {
+        return memoryThreshold;
+    }
+
+    public void setComplianceMetrics(ComplianceMetrics complianceMetrics) {
+        this.complianceMetrics = complianceMetrics;
+    }
+
+    public int getPooledBufferCount() {
+        return buffers.size();
+    }
+
+    void release(ByteBuffer buffer) {
+        if (pooledBuffers.incrementAndGet() <= maxPooledBuffers) {
+            buffer.clear();
+            buffers.offer(buffer);
+        } else {
+            pooledBuffers.decrementAndGet();
+        }
+    }
+
+    private UploadBuffer spoolToMemory(InputStream inputStream) throws IOException {
+        ByteBuffer buffer = acquire();
+        ReadableByteChannel channel = Channels.newChannel(inputStream);
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            // Read until the buffer is full or the stream ends
+        }
+        int nextByte = buffer.hasRemaining() ? -1 : inputStream.read();
+        buffer.flip();
+        if (nextByte != -1) {
+            // The part is larger than reported, so it goes to a file starting with what was read
+            try {
+                return spoolToFile(inputStream, buffer, nextByte);
+            } finally {
+                release(buffer);
+            }
+        }
+        return new UploadBuffer(buffer, null, this, buffer);
+    }
+
+    private UploadBuffer spoolToFile(InputStream inputStream, ByteBuffer head, int nextByte) throws IOException {
+        File file = File.createTempFile(SPOOL_FILE_PREFIX, SPOOL_FILE_SUFFIX, spoolDirectory);
+        try {
+            try (OutputStream outputStream = new FileOutputStream(file)) {
+                if (head != null) {
+                    Channels.newChannel(outputStream).write(head);
+                }
+                if (nextByte != -1) {
+                    outputStream.write(nextByte);
+                }
+                byte[] copyBuffer = new byte[COPY_BUFFER_SIZE];
+                int count;
+                while ((count = inputStream.read(copyBuffer)) != -1) {
+                    outputStream.write(copyBuffer, 0, count);
+                }
+            }
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                return new UploadBuffer(mapped, file, this, null);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file.toPath());
+            throw e;
+        }
+    }
+
+    private ByteBuffer acquire() {
+        ByteBuffer buffer = buffers.poll();
+        if (buffer != null) {
+            pooledBuffers.decrementAndGet();
+            return buffer;
+        }
+        return ByteBuffer.allocateDirect(memoryThreshold);
+    }
+
+}
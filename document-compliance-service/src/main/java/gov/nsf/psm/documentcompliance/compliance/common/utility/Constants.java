@@ -49,6 +49,12 @@ public class Constants {
     public static final String CONTEXT_DEFAULT_NAME = "/document-compliance-service";
     public static final String CONFIG_FILE_DEFAULT_NAME = "document-compliance-service";
 
+    public static final String MEDIA_TYPE_NDJSON = "application/x-ndjson";
+    public static final String STREAM_RECORD_TYPE = "type";
+    public static final String STREAM_RECORD_TYPE_PAGE = "page";
+    public static final String STREAM_RECORD_TYPE_COMPLIANCE_MODEL = "complianceModel";
+    public static final String STREAM_RECORD_TYPE_ERROR = "error";
+
     public static final String CODE_BLOCK_SEPARATOR = "----------------------------------------------";
     public static final String DOUBLE_CODE_BLOCK_SEPARATOR = "=================";
 
@@ -62,6 +68,16 @@ public class Constants {
     public static final String PROGRAMMATIC_FILE_PLACEHOLDER = "file";
     
     public static final String HEADER_IS_TABLES_ONLY = "isTablesOnly";
+
+    public static final String PARAM_FILE = "FILE";
+    public static final String PARAM_PAGE_RANGES = "PAGE_RANGES";
+    public static final String PARAM_PAGE_SAMPLE = "PAGE_SAMPLE";
+    public static final String PARAM_PROFILE = "PROFILE";
+    public static final String HEADER_PROFILE = "X-Compliance-Profile";
+    public static final String HEADER_SERVER_TIMING = "Server-Timing";
+    public static final String PROFILE_DIAGNOSTICS = "diagnostics";
+    public static final String JSON_DIAGNOSTICS = "diagnostics";
+    public static final String DIAGNOSTICS_LOGGER = "gov.nsf.psm.documentcompliance.diagnostics";
     
     public static final String DEFAULT_CHARSET_PLACEHOLDER = "?";
     
@@ -0,0 +1,50 @@
+package gov.nsf.psm.documentcompliance.compliance.common.utility;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Per-page diagnostics of a single request, collected only when the request asked for them or
+ * was sampled. Pages are added from the request thread in page order
+ */
+public class DiagnosticsReport {
+
+    public static final String REASON_REQUESTED = "requested";
+    public static final String REASON_SAMPLED = "sampled";
+
+    private final String fileName;
+    private final String reason;
+    private final List<Map<String, Object>> pages = new ArrayList<>();
+
+    public DiagnosticsReport(String fileName, String reason) {
+        this.fileName = fileName;
+        this.reason = reason;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public List<Map<String, Object>> getPages() {
+        return pages;
+    }
+
+    public void addPage(Map<String, Object> page) {
+        pages.add(page);
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("fileName", fileName);
+        result.put("reason", reason);
+        result.put("pages", pages);
+        return result;
+    }
+
+}
@@ -1,8 +1,6 @@
 package gov.nsf.psm.documentcompliance.compliance.common.utility;
 
-import java.io.BufferedInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -15,14 +13,11 @@ import javax.servlet.http.Part;
 
 import org.apache.catalina.core.ApplicationPart;
 import org.apache.cxf.common.util.StringUtils;
-import org.apache.tika.config.TikaConfig;
-import org.apache.tika.detect.Detector;
-import org.apache.tika.io.TikaInputStream;
-import org.apache.tika.metadata.Metadata;
-import org.apache.tika.mime.MediaType;
 
 import com.google.common.base.Splitter;
 
+import gov.nsf.psm.documentcompliance.compliance.common.io.UploadBuffer;
+import gov.nsf.psm.documentcompliance.model.builder.pdf.PageModelListener;
 import gov.nsf.psm.documentcompliance.model.builder.pdf.PdfModelBuilder;
 import gov.nsf.psm.documentcompliance.model.builder.ss.SpreadsheetModelBuilder;
 import gov.nsf.psm.documentcompliance.service.parameter.PdfParameters;
@@ -45,19 +40,6 @@ public class DocComplianceUtils {
     private DocComplianceUtils() {
     }
 
-    public static String getMimeType(ApplicationPart part) throws IOException {
-        BufferedInputStream bis = new BufferedInputStream(part.getInputStream());
-        TikaConfig config = TikaConfig.getDefaultConfig();
-        Detector detector = config.getDetector();
-        TikaInputStream stream = TikaInputStream.get(bis);
-        Metadata metadata = new Metadata();
-        metadata.add(Metadata.RESOURCE_NAME_KEY, part.getName());
-        MediaType mediaType = detector.detect(stream, metadata);
-        String mimeType = mediaType.toString();
-        bis.close();
-        return mimeType;
-    }
-
     public static PageFactModel getPageFactModel(PageModel page, Map<String, String> fontMap) {
         PageFactModel pageFactModel = new PageFactModel();
         pageFactModel.setHeight(page.getHeight());
@@ -108,35 +90,34 @@ public class DocComplianceUtils {
     }
 
     public static ComplianceModel getDocumentMetadata(ComplianceModel compliance, List<String> mimeTypes,
-            String mimeType, ApplicationPart filePart) throws CommonUtilException {
+            String mimeType, UploadBuffer upload, String fileName, boolean metadataScan) throws CommonUtilException {
         if (mimeTypes.indexOf(mimeType) > -1) {
             PdfModelBuilder builder = new PdfModelBuilder();
-            InputStream inputStream;
-            try {
-                inputStream = filePart.getInputStream();
-                DocumentModel document = builder.buildMetadata(inputStream, getFileName(filePart), filePart.getSize());
-                compliance.setDocModel(document);
-                compliance.setCorrectMimeType(true);
-            } catch (IOException e) {
-                throw new CommonUtilException(e);
-            }
+            builder.setMetadataScan(metadataScan);
+            DocumentModel document = builder.buildMetadata(upload, fileName);
+            compliance.setDocModel(document);
+            compliance.setCorrectMimeType(true);
         }
         return compliance;
     }
 
     public static ComplianceModel getDocumentModel(ComplianceModel compliance, List<String> mimeTypes,
-            ApplicationPart filePart, PdfParameters params) throws CommonUtilException {
+            UploadBuffer upload, String fileName, PdfParameters params) throws CommonUtilException {
+        return getDocumentModel(compliance, mimeTypes, upload, fileName, params, null);
+    }
+
+    public static ComplianceModel getDocumentModel(ComplianceModel compliance, List<String> mimeTypes,
+            UploadBuffer upload, String fileName, PdfParameters params, PageModelListener listener)
+            throws CommonUtilException {
         DocumentModel document = null;
         if (mimeTypes.indexOf(compliance.getMimeType()) > -1) {
             PdfModelBuilder builder = new PdfModelBuilder(params);
-            InputStream inputStream;
-            try {
-                inputStream = filePart.getInputStream();
-                document = builder.buildModel(inputStream, getFileName(filePart), filePart.getSize());
-                compliance.setCorrectMimeType(true);
-            } catch (IOException e) {
-                throw new CommonUtilException(e);
+            if (listener != null) {
+                builder.setPageModelListener(listener);
+                builder.setRetainPages(listener.isRetainPages());
             }
+            document = builder.buildModel(upload, fileName);
+            compliance.setCorrectMimeType(true);
         }
         if (document != null) {
             compliance.setDocModel(document);
@@ -148,13 +129,12 @@ public class DocComplianceUtils {
     }
 
     public static ComplianceModel getSpreadsheetMetadata(ComplianceModel compliance, List<String> mimeTypes,
-            String mimeType, ApplicationPart filePart) throws CommonUtilException {
+            String mimeType, UploadBuffer upload, String fileName) throws CommonUtilException {
         if (mimeTypes.indexOf(mimeType) > -1) {
             SpreadsheetModelBuilder xlsBuilder = new SpreadsheetModelBuilder();
             SpreadsheetModel ssModel;
             try {
-                ssModel = xlsBuilder.buildMetadata(filePart.getInputStream(), getFileName(filePart),
-                        filePart.getSize());
+                ssModel = xlsBuilder.buildMetadata(upload, fileName);
                 compliance.setSsModel(ssModel);
                 compliance.setCorrectMimeType(true);
             } catch (Exception e) {
@@ -165,13 +145,13 @@ public class DocComplianceUtils {
     }
 
     public static ComplianceModel getSpreadsheetModel(ComplianceModel compliance, List<String> mimeTypes,
-            String mimeType, List<String> nonTextColumns, ApplicationPart filePart, SpreadsheetParameters params, boolean isTablesOnly)
-            throws CommonUtilException {
+            String mimeType, List<String> nonTextColumns, UploadBuffer upload, String fileName,
+            SpreadsheetParameters params, boolean isTablesOnly) throws CommonUtilException {
         if (mimeTypes.indexOf(mimeType) > -1) {
             SpreadsheetModelBuilder xlsBuilder = new SpreadsheetModelBuilder(isTablesOnly, nonTextColumns, params);
             SpreadsheetModel ssModel;
             try {
-                ssModel = xlsBuilder.buildModel(filePart.getInputStream(), getFileName(filePart), filePart.getSize());
+                ssModel = xlsBuilder.buildModel(upload, fileName);
                 compliance.setSsModel(ssModel);
                 compliance.setCorrectMimeType(true);
             } catch (Exception e) {
@@ -0,0 +1,210 @@
+package gov.nsf.psm.documentcompliance.compliance.common.utility;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Wall and CPU time per processing stage, and per page, of a single profiled request. The
+ * profiler is bound to the request thread, and to the extraction workers while they run pages
+ * of the request, so stages are recorded only when profiling was asked for
+ */
+public class StageProfiler {
+
+    public static final String STAGE_MULTIPART = "multipart";
+    public static final String STAGE_SPOOL = "spool";
+    public static final String STAGE_DETECT = "detect";
+    public static final String STAGE_ADMISSION = "admission";
+    public static final String STAGE_OPEN = "open";
+    public static final String STAGE_MARGIN = "margin";
+    public static final String STAGE_EXTRACTION = "extraction";
+    public static final String STAGE_PAGE_MODEL = "pageModel";
+    public static final String STAGE_FACTS = "facts";
+    public static final String STAGE_SHEETS = "sheets";
+    public static final String STAGE_SERIALIZE = "serialize";
+
+    private static final ThreadLocal<StageProfiler> CURRENT = new ThreadLocal<>();
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final Stage NO_STAGE = new Stage(null, null, 0);
+
+    private final long start = System.nanoTime();
+    private final boolean diagnostics;
+    private final Map<String, Timing> stages = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Integer, Map<String, Timing>> pages = new ConcurrentSkipListMap<>();
+    private final List<String> stageOrder = new ArrayList<>();
+    private volatile Map<String, Object> report;
+
+    public StageProfiler(boolean diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+
+    // Binds the profiler to the current thread until detach
+    public static void attach(StageProfiler profiler) {
+        CURRENT.set(profiler);
+    }
+
+    public static void detach() {
+        CURRENT.remove();
+    }
+
+    // Null unless the current request is profiled
+    public static StageProfiler current() {
+        return CURRENT.get();
+    }
+
+    public static Stage stage(String name) {
+        StageProfiler profiler = CURRENT.get();
+        return profiler == null ? NO_STAGE : new Stage(profiler, name, 0);
+    }
+
+    public static Stage stage(String name, int pageNumber) {
+        StageProfiler profiler = CURRENT.get();
+        return profiler == null ? NO_STAGE : new Stage(profiler, name, pageNumber);
+    }
+
+    // Times a stage that runs before it is known whether the request is profiled, see Stage.end
+    public static Stage begin(String name) {
+        return new Stage(null, name, 0);
+    }
+
+    public boolean isDiagnostics() {
+        return diagnostics;
+    }
+
+    // Structured diagnostics of the analysed document, returned with the stage timings
+    public void setReport(Map<String, Object> report) {
+        this.report = report;
+    }
+
+    // Server-Timing header value: wall time per stage as the duration, CPU time in the description
+    public String getServerTiming() {
+        StringBuilder serverTiming = new StringBuilder();
+        for (String name : getStageOrder()) {
+            Timing timing = stages.get(name);
+            serverTiming.append(name).append(";dur=").append(toMillis(timing.wallNanos.get())).append(";desc=\"cpu ")
+                    .append(toMillis(timing.cpuNanos.get())).append(" ms, ").append(timing.count.get())
+                    .append("x\", ");
+        }
+        serverTiming.append("total;dur=").append(toMillis(System.nanoTime() - start));
+        return serverTiming.toString();
+    }
+
+    public Map<String, Object> getDiagnostics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("totalMs", toMillis(System.nanoTime() - start));
+        Map<String, Object> stageResult = new LinkedHashMap<>();
+        for (String name : getStageOrder()) {
+            stageResult.put(name, stages.get(name).toMap());
+        }
+        result.put("stages", stageResult);
+        Map<String, Object> pageResult = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Map<String, Timing>> page : pages.entrySet()) {
+            Map<String, Object> pageStages = new LinkedHashMap<>();
+            for (Map.Entry<String, Timing> stage : page.getValue().entrySet()) {
+                pageStages.put(stage.getKey(), stage.getValue().toMap());
+            }
+            pageResult.put(String.valueOf(page.getKey()), pageStages);
+        }
+        result.put("pages", pageResult);
+        if (report != null) {
+            result.put("report", report);
+        }
+        return result;
+    }
+
+    private List<String> getStageOrder() {
+        synchronized (stageOrder) {
+            return new ArrayList<>(stageOrder);
+        }
+    }
+
+    private void record(String name, int pageNumber, long wallNanos, long cpuNanos) {
+        Timing timing = stages.get(name);
+        if (timing == null) {
+            synchronized (stageOrder) {
+                timing = stages.get(name);
+                if (timing == null) {
+                    timing = new Timing();
+                    stages.put(name, timing);
+                    stageOrder.add(name);
+                }
+            }
+        }
+        timing.add(wallNanos, cpuNanos);
+        if (pageNumber > 0 && diagnostics) {
+            pages.putIfAbsent(pageNumber, new ConcurrentSkipListMap<String, Timing>());
+            Timing pageTiming = new Timing();
+            pageTiming.add(wallNanos, cpuNanos);
+            pages.get(pageNumber).put(name, pageTiming);
+        }
+    }
+
+    private static long getCpuTime() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : 0L;
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format(Locale.US, "%.3f", nanos / 1000000d);
+    }
+
+    /*
+     * A running stage, recorded when closed
+     */
+    public static class Stage implements AutoCloseable {
+
+        private final StageProfiler profiler;
+        private final String name;
+        private final int pageNumber;
+        private final long wallStart;
+        private final long cpuStart;
+
+        Stage(StageProfiler profiler, String name, int pageNumber) {
+            this.profiler = profiler;
+            this.name = name;
+            this.pageNumber = pageNumber;
+            this.wallStart = System.nanoTime();
+            this.cpuStart = getCpuTime();
+        }
+
+        @Override
+        public void close() {
+            end(profiler);
+        }
+
+        public void end(StageProfiler target) {
+            if (target != null) {
+                target.record(name, pageNumber, System.nanoTime() - wallStart, getCpuTime() - cpuStart);
+            }
+        }
+
+    }
+
+    private static class Timing {
+
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong wallNanos = new AtomicLong();
+        private final AtomicLong cpuNanos = new AtomicLong();
+
+        void add(long wall, long cpu) {
+            count.incrementAndGet();
+            wallNanos.addAndGet(wall);
+            cpuNanos.addAndGet(cpu);
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("count", count.get());
+            result.put("wallMs", Double.valueOf(toMillis(wallNanos.get())));
+            result.put("cpuMs", Double.valueOf(toMillis(cpuNanos.get())));
+            return result;
+        }
+
+    }
+
+}
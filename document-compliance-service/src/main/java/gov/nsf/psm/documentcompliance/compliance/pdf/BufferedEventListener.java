@@ -0,0 +1,69 @@
+package gov.nsf.psm.documentcompliance.compliance.pdf;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.itextpdf.kernel.pdf.canvas.parser.EventType;
+import com.itextpdf.kernel.pdf.canvas.parser.data.AbstractRenderInfo;
+import com.itextpdf.kernel.pdf.canvas.parser.data.IEventData;
+import com.itextpdf.kernel.pdf.canvas.parser.listener.IEventListener;
+
+/*
+ * Forwards text events to the page statistics listener while keeping every text and image
+ * event of the page, so the extraction listener can be run over the same page without
+ * parsing its content stream a second time
+ */
+public class BufferedEventListener implements IEventListener {
+
+    private final IEventListener strategy;
+    private List<IEventData> events = new ArrayList<>();
+    private List<EventType> eventTypes = new ArrayList<>();
+
+    public BufferedEventListener(IEventListener strategy) {
+        this.strategy = strategy;
+    }
+
+    public void replay(IEventListener listener) {
+        Set<EventType> supportedEvents = listener.getSupportedEvents();
+        for (int i = 0; i < events.size(); i++) {
+            EventType type = eventTypes.get(i);
+            if (supportedEvents == null || supportedEvents.contains(type)) {
+                listener.eventOccurred(events.get(i), type);
+            }
+        }
+    }
+
+    public void release() {
+        for (IEventData data : events) {
+            ((AbstractRenderInfo) data).releaseGraphicsState();
+        }
+        events = new ArrayList<>();
+        eventTypes = new ArrayList<>();
+    }
+
+    public int getEventCount() {
+        return events.size();
+    }
+
+    @Override
+    public void eventOccurred(IEventData data, EventType type) {
+        if (type.equals(EventType.RENDER_TEXT)) {
+            strategy.eventOccurred(data, type);
+        }
+        // The processor discards the graphics state once the event has been dispatched
+        ((AbstractRenderInfo) data).preserveGraphicsState();
+        events.add(data);
+        eventTypes.add(type);
+    }
+
+    @Override
+    public Set<EventType> getSupportedEvents() {
+        HashSet<EventType> supportedEvents = new HashSet<>();
+        supportedEvents.add(EventType.RENDER_TEXT);
+        supportedEvents.add(EventType.RENDER_IMAGE);
+        return supportedEvents;
+    }
+
+}
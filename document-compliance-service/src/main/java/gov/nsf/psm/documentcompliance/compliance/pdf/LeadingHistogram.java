@@ -0,0 +1,160 @@
+package gov.nsf.psm.documentcompliance.compliance.pdf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import com.google.common.collect.Sets;
+
+/*
+ * Leading values seen on a page and the number of lines emitted with each of them. Values
+ * are kept in primitive arrays, indexed by an open addressing table over their bits, and
+ * can be quantized to a precision in points (0 keeps them exact).
+ */
+public class LeadingHistogram {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final double precision;
+    private double[] values = new double[INITIAL_CAPACITY];
+    private int[] lineCounts = new int[INITIAL_CAPACITY];
+    private long[] tableKeys = new long[INITIAL_CAPACITY * 2];
+    private int[] tableIndexes = new int[INITIAL_CAPACITY * 2];
+    private int size = 0;
+    private int maxLineCount = 0;
+
+    public LeadingHistogram() {
+        this(0.0);
+    }
+
+    public LeadingHistogram(double precision) {
+        this.precision = precision;
+        Arrays.fill(tableIndexes, -1);
+    }
+
+    // Registers a leading value, the first value of a quantized bin represents the bin
+    public void addValue(double leading) {
+        if (indexOf(leading) < 0) {
+            add(leading);
+        }
+    }
+
+    public void addLine(double leading) {
+        int index = indexOf(leading);
+        if (index >= 0) {
+            lineCounts[index]++;
+            if (lineCounts[index] > maxLineCount) {
+                maxLineCount = lineCounts[index];
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getMaxLineCount() {
+        return maxLineCount;
+    }
+
+    /*
+     * Values with the most lines. Ties are returned in the iteration order of a Guava hash
+     * set filled in ascending order, as the multimap that used to compute them did.
+     */
+    public List<Double> getPredominantValues() {
+        List<Double> predominantValues = new ArrayList<>();
+        if (size > 0) {
+            double[] tied = new double[size];
+            int noOfTied = 0;
+            for (int i = 0; i < size; i++) {
+                if (lineCounts[i] == maxLineCount) {
+                    tied[noOfTied++] = values[i];
+                }
+            }
+            Arrays.sort(tied, 0, noOfTied);
+            Set<Double> tiedValues = Sets.newHashSetWithExpectedSize(2);
+            for (int i = 0; i < noOfTied; i++) {
+                tiedValues.add(tied[i]);
+            }
+            predominantValues.addAll(tiedValues);
+        }
+        return predominantValues;
+    }
+
+    public List<Double> getValues() {
+        double[] sorted = Arrays.copyOf(values, size);
+        Arrays.sort(sorted);
+        List<Double> sortedValues = new ArrayList<>(size);
+        for (double value : sorted) {
+            sortedValues.add(value);
+        }
+        return sortedValues;
+    }
+
+    public SortedMap<Double, Integer> getDistribution() {
+        SortedMap<Double, Integer> distribution = new TreeMap<>();
+        for (int i = 0; i < size; i++) {
+            distribution.put(values[i], lineCounts[i]);
+        }
+        return distribution;
+    }
+
+    private long getKey(double leading) {
+        double key = precision > 0 ? Math.round(leading / precision) * precision : leading;
+        return Double.doubleToLongBits(key);
+    }
+
+    private int indexOf(double leading) {
+        long key = getKey(leading);
+        int mask = tableKeys.length - 1;
+        for (int slot = hash(key) & mask; tableIndexes[slot] >= 0; slot = (slot + 1) & mask) {
+            if (tableKeys[slot] == key) {
+                return tableIndexes[slot];
+            }
+        }
+        return -1;
+    }
+
+    private void add(double leading) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+            lineCounts = Arrays.copyOf(lineCounts, size * 2);
+            rehash(tableKeys.length * 2);
+        }
+        values[size] = leading;
+        insert(getKey(leading), size);
+        size++;
+    }
+
+    private void insert(long key, int index) {
+        int mask = tableKeys.length - 1;
+        int slot = hash(key) & mask;
+        while (tableIndexes[slot] >= 0) {
+            slot = (slot + 1) & mask;
+        }
+        tableKeys[slot] = key;
+        tableIndexes[slot] = index;
+    }
+
+    private void rehash(int capacity) {
+        tableKeys = new long[capacity];
+        tableIndexes = new int[capacity];
+        Arrays.fill(tableIndexes, -1);
+        for (int i = 0; i < size; i++) {
+            insert(getKey(values[i]), i);
+        }
+    }
+
+    private static int hash(long key) {
+        int h = (int) (key ^ (key >>> 32));
+        return h ^ (h >>> 16);
+    }
+
+}
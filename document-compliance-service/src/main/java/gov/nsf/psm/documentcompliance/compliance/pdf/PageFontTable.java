@@ -0,0 +1,133 @@
+package gov.nsf.psm.documentcompliance.compliance.pdf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import gov.nsf.psm.foundation.model.compliance.doc.FontModel;
+
+/*
+ * Fonts of a page keyed by name and size. Character counts are kept as primitives and
+ * written to the font models when the font list is requested. The list is ordered the way
+ * the listener used to maintain it: new fonts are appended and a font moves to the end
+ * whenever characters are counted for it.
+ */
+public class PageFontTable {
+
+    private final Map<FontKey, FontEntry> entries = new HashMap<>();
+    private final FontKey lookupKey = new FontKey();
+    private long sequence = 0;
+    private List<FontModel> fonts = null;
+
+    public FontModel get(String name, float size) {
+        FontEntry entry = getEntry(name, size);
+        return entry != null ? entry.font : null;
+    }
+
+    // Returns the font already held for the same name and size, adding the given one if there is none
+    public FontModel add(FontModel font) {
+        return getOrAddEntry(font).font;
+    }
+
+    public void addCharacters(FontModel font, long noOfChars) {
+        FontEntry entry = getOrAddEntry(font);
+        entry.noOfChars += noOfChars;
+        entry.position = ++sequence;
+        fonts = null;
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public List<FontModel> getFonts() {
+        if (fonts == null) {
+            FontEntry[] ordered = entries.values().toArray(new FontEntry[entries.size()]);
+            Arrays.sort(ordered, Comparator.comparingLong(e -> e.position));
+            fonts = new ArrayList<>(ordered.length);
+            for (FontEntry entry : ordered) {
+                entry.font.setNoOfChars(entry.noOfChars);
+                fonts.add(entry.font);
+            }
+        }
+        return fonts;
+    }
+
+    public void setFonts(List<FontModel> fonts) {
+        entries.clear();
+        sequence = 0;
+        for (FontModel font : fonts) {
+            getOrAddEntry(font);
+        }
+        this.fonts = fonts;
+    }
+
+    private FontEntry getEntry(String name, float size) {
+        lookupKey.name = name;
+        lookupKey.sizeBits = Float.floatToIntBits(size);
+        return entries.get(lookupKey);
+    }
+
+    private FontEntry getOrAddEntry(FontModel font) {
+        float size = (float) font.getSize();
+        FontEntry entry = getEntry(font.getName(), size);
+        if (entry == null) {
+            entry = new FontEntry(font);
+            entry.position = ++sequence;
+            entries.put(new FontKey(font.getName(), size), entry);
+            fonts = null;
+        }
+        return entry;
+    }
+
+    private static class FontKey {
+
+        private String name;
+        private int sizeBits;
+
+        private FontKey() {
+            // Lookup key
+        }
+
+        private FontKey(String name, float size) {
+            this.name = name;
+            this.sizeBits = Float.floatToIntBits(size);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (name == null ? 0 : name.hashCode()) + sizeBits;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof FontKey)) {
+                return false;
+            }
+            FontKey other = (FontKey) obj;
+            return sizeBits == other.sizeBits && (name == null ? other.name == null : name.equals(other.name));
+        }
+
+    }
+
+    private static class FontEntry {
+
+        private final FontModel font;
+        private long noOfChars;
+        private long position;
+
+        private FontEntry(FontModel font) {
+            this.font = font;
+            this.noOfChars = font.getNoOfChars();
+        }
+
+    }
+
+}
@@ -1,6 +1,5 @@
 package gov.nsf.psm.documentcompliance.compliance.pdf;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -12,6 +11,7 @@ import org.springframework.util.StringUtils;
 
 import com.itextpdf.kernel.geom.LineSegment;
 import com.itextpdf.kernel.geom.Matrix;
+import com.itextpdf.kernel.geom.Rectangle;
 import com.itextpdf.kernel.geom.Vector;
 import com.itextpdf.kernel.pdf.PdfDictionary;
 import com.itextpdf.kernel.pdf.PdfName;
@@ -23,6 +23,7 @@ import com.itextpdf.kernel.pdf.canvas.parser.listener.IEventListener;
 import com.itextpdf.kernel.pdf.xobject.PdfImageXObject;
 
 import gov.nsf.psm.documentcompliance.compliance.common.utility.Constants;
+import gov.nsf.psm.documentcompliance.compliance.pdf.utility.CharacterMatcher;
 import gov.nsf.psm.documentcompliance.compliance.pdf.utility.PdfUtils;
 import gov.nsf.psm.foundation.model.compliance.doc.FontModel;
 import gov.nsf.psm.foundation.model.compliance.doc.HeadingModel;
@@ -50,7 +51,8 @@ public class PdfExtractionListener implements IEventListener {
     private double lineHeight;
     private List<LineModel> lines;
     private List<SectionModel> headingLines = new ArrayList<>();
-    private List<Double> leadingValues;
+    private LeadingHistogram leadingHistogram;
+    private double leadingPrecision = 0.0;
     private double nextHeight;
     private double nextMaxY;
     private double prevMaxY;
@@ -58,17 +60,18 @@ public class PdfExtractionListener implements IEventListener {
     private double prevMaxX;
     private double nextMinX;
     private double prevMinX;
-    private List<FontModel> fonts;
+    private PageFontTable fontTable;
+    private boolean isNewFont = false;
     private List<LineModel> superscriptLines;
     private List<LineModel> subscriptLines;
     private double initLeading = 0.0;
     private Boolean fontDetectionIgnoreBlankSpaces;
     private Boolean fontDetectionIgnoreSuperSubscript;
     private String specialCharacters;
+    private CharacterMatcher specialCharacterMatcher = CharacterMatcher.compile(null);
     private StringBuilder lineText = new StringBuilder();
     private int pageNumber;
-    private List<Float> nonBlankTextAscentLines = new ArrayList<>();
-    private List<Float> nonBlankTextDescentLines = new ArrayList<>();
+    private int nonBlankTextCount = 0;
     private List<ImageModel> images = new ArrayList<>();
     private List<String> textLines = new ArrayList<>();
     private Vector lastStart;
@@ -82,23 +85,29 @@ public class PdfExtractionListener implements IEventListener {
         boolean ignoreBlankSpace = false;
         boolean isSupSubscript = false;
         float fontSize = 0F;
+        String text = renderInfo.getText();
+        boolean isBlankText = text.trim().isEmpty();
+
+        // Geometry is derived from the text matrix on every call, so it is only computed once
+        LineSegment segment = renderInfo.getBaseline();
+        Rectangle segmentRect = segment.getBoundingRectangle();
 
         // Fonts
-        if (fonts == null) {
-            fonts = new ArrayList<>();
+        if (fontTable == null) {
+            fontTable = new PageFontTable();
         }
 
         if (fontDetectionIgnoreBlankSpaces != null && fontDetectionIgnoreBlankSpaces
-                && (renderInfo.getText().trim().length() < 1
-                        || PdfUtils.characterMatches(specialCharacters, renderInfo.getText()))) {
+                && (isBlankText || PdfUtils.characterMatches(specialCharacterMatcher, text))) {
             ignoreBlankSpace = true;
         }
 
         if (!ignoreBlankSpace) {
             fontSize = PdfUtils.getFontSize(renderInfo);
             processFont(fontSize, renderInfo);
-            populateNonBlankTextAscentLines(renderInfo);
-            populateNonBlankTextDescentLines(renderInfo);
+            if (!isBlankText) {
+                nonBlankTextCount++;
+            }
         }
 
         if (Double.doubleToLongBits(nextHeight) == 0 && lines == null) { // Capture
@@ -110,35 +119,36 @@ public class PdfExtractionListener implements IEventListener {
         
         // Process superscript/subscript fonts 
         if (font != null) {
-            isSupSubscript = processSuperscriptSubscriptFonts(renderInfo, fontSize);
+            isSupSubscript = processSuperscriptSubscriptFonts(segment, segmentRect, fontSize, text);
         }
         
         // Check for rotated text
         isRotated = PdfUtils.isTextRotated(renderInfo);
         
         // Process leading (since iText does not always report)
-        LineSegment segment = renderInfo.getBaseline();
         Vector curBaseline = segment.getStartPoint();
-        processLeading(renderInfo, curBaseline, isSupSubscript);
+        processLeading(segmentRect, curBaseline, isBlankText, isSupSubscript);
 
         // Process Font character count
-        processFontCharacterCount(renderInfo);
+        processFontCharacterCount(text);
         
         // Make sure previous segment is populated
         setDefaultPreviousSegment(segment);
+        float upperY = prevSegment.getStartPoint().get(1);
+        float lowerY = prevSegment.getEndPoint().get(1);
         
         // Add line of text
-        addDefaultLine(renderInfo, prevSegment.getStartPoint().get(1), prevSegment.getEndPoint().get(1));
+        addDefaultLine(segmentRect, text, upperY, lowerY);
 
         Vector end = segment.getEndPoint();
 
-        correctForMultiColumnsAndNoSpaces(renderInfo, curBaseline);
+        correctForMultiColumnsAndNoSpaces(renderInfo, text, curBaseline);
 
-        lineText.append(renderInfo.getText());
-        lineWidth = lineWidth + renderInfo.getBaseline().getLength();
+        lineText.append(text);
+        lineWidth = lineWidth + segment.getLength();
         totalBlockCount++;
 
-        addLastLine(renderInfo, prevSegment.getStartPoint().get(1), prevSegment.getEndPoint().get(1)); // Add last Line
+        addLastLine(text, upperY, lowerY); // Add last Line
 
         prevMinX = nextMinX;
         prevMaxX = nextMaxX;
@@ -155,42 +165,34 @@ public class PdfExtractionListener implements IEventListener {
         }
     }
     
-    private void addDefaultLine(TextRenderInfo renderInfo, float upperY, float lowerY) {
-        LineSegment segment = renderInfo.getBaseline();
-        if (segment != null) {
-            nextMinX = segment.getBoundingRectangle().getLeft();
-            nextMaxX = segment.getBoundingRectangle().getRight();
-            if (PdfUtils.characterMatches(specialCharacters, renderInfo.getText().trim())) {
-                nextMaxX = prevMaxX;
-            }
-            
-            // Need to consider all scenarios for a new line since chunk sizes in PDFs can vary
-            
-            BigDecimal prevMaxXDec = BigDecimal.valueOf(prevMaxX);
-            BigDecimal prevMaxYDec = BigDecimal.valueOf(prevMaxY);
-            BigDecimal nextMaxYDec = BigDecimal.valueOf(nextMaxY);
-                        
-            if (getFirstNewLineCondition(prevMaxYDec, nextMaxYDec) || getSecondNewLineCondition(prevMaxYDec) || getThirdLineCondition(prevMaxXDec)) {
-                addLine(upperY, lowerY);
-            }
+    private void addDefaultLine(Rectangle segmentRect, String text, float upperY, float lowerY) {
+        nextMinX = segmentRect.getLeft();
+        nextMaxX = segmentRect.getRight();
+        if (PdfUtils.characterMatches(specialCharacterMatcher, text.trim())) {
+            nextMaxX = prevMaxX;
+        }
+
+        // Need to consider all scenarios for a new line since chunk sizes in PDFs can vary
+
+        if (getFirstNewLineCondition() || getSecondNewLineCondition() || getThirdLineCondition()) {
+            addLine(upperY, lowerY);
         }
     }
     
-    private boolean getFirstNewLineCondition(BigDecimal prevMaxYDec, BigDecimal nextMaxYDec) {
-        return prevMaxYDec.compareTo(BigDecimal.ZERO) == 0 && nextMaxYDec.compareTo(BigDecimal.ZERO) > 0 && nextMinX < prevMinX;    
+    private boolean getFirstNewLineCondition() {
+        return prevMaxY == 0 && nextMaxY > 0 && nextMinX < prevMinX;
     }
     
-    private boolean getSecondNewLineCondition(BigDecimal prevMaxYDec) {
-        return prevMaxYDec.compareTo(BigDecimal.ZERO) > 0 && prevMaxY > nextMaxY && nextMinX < prevMinX;
+    private boolean getSecondNewLineCondition() {
+        return prevMaxY > 0 && prevMaxY > nextMaxY && nextMinX < prevMinX;
     }
     
-    private boolean getThirdLineCondition(BigDecimal prevMaxXDec) {
-        return prevMaxXDec.compareTo(BigDecimal.ZERO) > 0 && nextMaxX < prevMaxX;
+    private boolean getThirdLineCondition() {
+        return prevMaxX > 0 && nextMaxX < prevMaxX;
     }
 
-    private void addLastLine(TextRenderInfo renderInfo, float upperY, float lowerY) {
-        LineSegment segment = renderInfo.getBaseline();
-        if (segment != null && !PdfUtils.characterMatches(specialCharacters, renderInfo.getText())) {
+    private void addLastLine(String text, float upperY, float lowerY) {
+        if (!PdfUtils.characterMatches(specialCharacterMatcher, text)) {
             if(totalBlockCount == (lastBlockCount - 1) && !lastTextBlockOnSameLine) {
                 addLine(upperY, lowerY);
             } else if (totalBlockCount == lastBlockCount) {
@@ -199,7 +201,7 @@ public class PdfExtractionListener implements IEventListener {
         }
     }
 
-    private void correctForMultiColumnsAndNoSpaces(TextRenderInfo renderInfo, Vector start) {
+    private void correctForMultiColumnsAndNoSpaces(TextRenderInfo renderInfo, String text, Vector start) {
 
         boolean firstRender = false;
         boolean hardReturn = false;
@@ -224,8 +226,8 @@ public class PdfExtractionListener implements IEventListener {
             lineText = new StringBuilder();
             // Handle missing space characters (Adapted
             // from iText code)
-        } else if (!firstRender && lineText.toString().charAt(lineText.toString().length() - 1) != ' '
-                && renderInfo.getText().length() > 0 && renderInfo.getText().charAt(0) != ' ') { // Only
+        } else if (!firstRender && lineText.charAt(lineText.length() - 1) != ' '
+                && text.length() > 0 && text.charAt(0) != ' ') { // Only
                                                                                                  // insert
                                                                                                  // a
             // blank space
@@ -263,20 +265,6 @@ public class PdfExtractionListener implements IEventListener {
         return divisor;
     }
 
-    // Handle non-blank text ascent lines for accurate determination of headers
-    private void populateNonBlankTextAscentLines(TextRenderInfo renderInfo) {
-        if (!StringUtils.isEmpty(renderInfo.getText()) && renderInfo.getText().trim().length() > 0) {
-            nonBlankTextAscentLines.add(new Float(renderInfo.getAscentLine().getStartPoint().get(1)));
-        }
-    }
-
-    // Handle non-blank text descent lines for accurate determination of footers
-    private void populateNonBlankTextDescentLines(TextRenderInfo renderInfo) {
-        if (!StringUtils.isEmpty(renderInfo.getText()) && renderInfo.getText().trim().length() > 0) {
-            nonBlankTextDescentLines.add(new Float(renderInfo.getDescentLine().getStartPoint().get(1)));
-        }
-    }
-
     private void addLine(float upperY, float lowerY) {
         boolean setLineText = true;
         LineModel line = new LineModel();
@@ -286,17 +274,11 @@ public class PdfExtractionListener implements IEventListener {
         line.setColBlockNo(colBlockNo);
         List<FontModel> lineFonts = new ArrayList<>();
         String currentLineText = lineText.toString().trim();
-        if (fonts.isEmpty()) {
-            lineFonts.add(font);
-            line.setFonts(lineFonts);
-        } else if (fonts.indexOf(font) > -1) {
-            lineFonts.add(fonts.get(fonts.indexOf(font)));
-            line.setFonts(lineFonts);
-        } else {
-            fonts.add(font);
-            lineFonts.add(font);
-            line.setFonts(lineFonts);
+        if (font != null) {
+            fontTable.add(font);
         }
+        lineFonts.add(font);
+        line.setFonts(lineFonts);
         if (!StringUtils.isEmpty(currentLineText) && PdfUtils.isHeading(currentLineText)) {
             SectionModel sectionModel = new SectionModel();
             sectionModel.setHeading(new HeadingModel(currentLineText));
@@ -313,6 +295,7 @@ public class PdfExtractionListener implements IEventListener {
             line.setTypeDensity(PdfUtils.getTypeDensity(currentLineText, lineWidth));
             line.setText(currentLineText);
             lines.add(line);
+            leadingHistogram.addLine(initLeading);
             textLines.add(currentLineText);
         }
         totalCharacterCount = totalCharacterCount + currentLineText.length();
@@ -320,38 +303,33 @@ public class PdfExtractionListener implements IEventListener {
         lineWidth = 0f;
     }
 
-    private void processFontCharacterCount(TextRenderInfo renderInfo) {
+    private void processFontCharacterCount(String text) {
         long charCount = fontDetectionIgnoreBlankSpaces != null && fontDetectionIgnoreBlankSpaces
-                ? renderInfo.getText().replaceAll(" ", "").length()
-                : renderInfo.getText().length();
-        if (charCount > 0) {
-            FontModel tempFont = null;
-            if (fonts.isEmpty()) {
-                tempFont = font;
-            } else if (fonts.indexOf(font) > -1) {
-                tempFont = fonts.get(fonts.indexOf(font));
-            } else {
-                fonts.add(font);
-                tempFont = font;
-            }
-            if (tempFont != null) {
-                tempFont.setNoOfChars(tempFont.getNoOfChars() + charCount);
-                if (!fonts.isEmpty() && fonts.indexOf(font) > -1) {
-                    fonts.remove(font);
-                    fonts.add(tempFont);
-                }
+                ? getNonSpaceCharacterCount(text)
+                : text.length();
+        if (charCount > 0 && font != null) {
+            fontTable.addCharacters(font, charCount);
+        }
+    }
+
+    private static int getNonSpaceCharacterCount(String text) {
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) != ' ') {
+                count++;
             }
         }
+        return count;
     }
 
     // Will detect most normal superscript and subscript font occurrences
-    private boolean processSuperscriptSubscriptFonts(TextRenderInfo renderInfo, float fontSize) {
+    private boolean processSuperscriptSubscriptFonts(LineSegment segment, Rectangle segmentRect, float fontSize,
+            String text) {
         boolean isSupSubscript = false;
-        LineSegment segment = renderInfo.getBaseline(); 
         float baseline = segment.getStartPoint().get(1);
-        double x = segment.getBoundingRectangle().getX();
+        double x = segmentRect.getX();
         if (fontSize > 0.0) {
-            isSupSubscript = identifySuperscriptSubscript(fontSize, baseline, x, renderInfo.getText());
+            isSupSubscript = identifySuperscriptSubscript(fontSize, baseline, x, text);
             previousFontSize = fontSize;
             previousBaseline = baseline;
         }
@@ -428,40 +406,38 @@ public class PdfExtractionListener implements IEventListener {
     private LineModel createLineModelForSuperSubscript() {
         LineModel line = new LineModel();
         List<FontModel> lineFonts = new ArrayList<>();
-        if (getFontDetectionIgnoreSuperSubscript() && font != null) {
-            font = PdfUtils.setIgnoreSuperSubScriptFont(font);
-        }
-        if (fonts.isEmpty()) {
-            lineFonts.add(font);
-        } else {
-            lineFonts.add(fonts.get(fonts.indexOf(font)));
+        // Repeated fonts were only ever flagged on a discarded copy, so only a new font is flagged
+        if (getFontDetectionIgnoreSuperSubscript() && font != null && isNewFont) {
+            PdfUtils.setIgnoreSuperSubScriptFont(font);
         }
+        lineFonts.add(font);
         line.setFonts(lineFonts);
         line.setNumber(PdfUtils.getLineNumber(lines));
         return line;
     }
 
-    private void processLeading(TextRenderInfo renderInfo, Vector curBaseline, boolean isSupSubscript) {
-        if (leadingValues == null)
-            leadingValues = new ArrayList<>();
+    private void processLeading(Rectangle segmentRect, Vector curBaseline, boolean isBlankText,
+            boolean isSupSubscript) {
+        if (leadingHistogram == null)
+            leadingHistogram = new LeadingHistogram(leadingPrecision);
         double tempLeading = 0;
         lineHeight = nextHeight;
         nextHeight = curBaseline.get(1);
-        processLineHeight(renderInfo, isSupSubscript);
+        processLineHeight(segmentRect, isBlankText, isSupSubscript);
         if (initLeading > 0) {
             tempLeading = initLeading;
         }
-        if (tempLeading > 0 && !leadingValues.contains(tempLeading)) {
-            leadingValues.add(tempLeading);
+        if (tempLeading > 0) {
+            leadingHistogram.addValue(tempLeading);
         }
     }
 
-    private void processLineHeight(TextRenderInfo renderInfo, boolean isSupSubscript) {
+    private void processLineHeight(Rectangle segmentRect, boolean isBlankText, boolean isSupSubscript) {
         double maxY;
-        if (renderInfo.getText().trim().length() > 0 && nextHeight < lineHeight && !isSupSubscript) { // All text lines
+        if (!isBlankText && nextHeight < lineHeight && !isSupSubscript) { // All text lines
                                                           // except the first
                                                           // one
-            maxY = renderInfo.getBaseline().getBoundingRectangle().getY();
+            maxY = segmentRect.getY();
             if (Double.doubleToLongBits(nextMaxY) != Double.doubleToLongBits(maxY)) { // Account
                                                                                       // for
                                                                                       // different
@@ -475,15 +451,16 @@ public class PdfExtractionListener implements IEventListener {
     }
 
     private void processFont(float fontSize, TextRenderInfo renderInfo) {
-        BigDecimal fontSizeDec = BigDecimal.valueOf(fontSize);
-        if(fontSizeDec.compareTo(BigDecimal.ZERO) > 0) {
+        if(fontSize > 0) {
             String fontName = renderInfo.getFont().getFontProgram().getFontNames().getFontName();
-            font = new FontModel();
-            font.setName(fontName);
-            font.setSize(fontSize);
-            if (!fonts.contains(font)) {
+            font = fontTable.get(fontName, fontSize);
+            isNewFont = font == null;
+            if (isNewFont) {
+                font = new FontModel();
+                font.setName(fontName);
+                font.setSize(fontSize);
                 font = PdfUtils.checkFont(font, renderInfo.getFont().getPdfObject());
-                fonts.add(font);
+                fontTable.add(font);
             }
         }
     }
@@ -518,11 +495,18 @@ public class PdfExtractionListener implements IEventListener {
     }
 
     public List<FontModel> getFonts() {
-        return fonts;
+        return fontTable != null ? fontTable.getFonts() : null;
     }
 
     public void setFonts(List<FontModel> fonts) {
-        this.fonts = fonts;
+        if (fonts == null) {
+            fontTable = null;
+        } else {
+            if (fontTable == null) {
+                fontTable = new PageFontTable();
+            }
+            fontTable.setFonts(fonts);
+        }
     }
 
     public List<LineModel> getSuperscriptLines() {
@@ -573,20 +557,12 @@ public class PdfExtractionListener implements IEventListener {
         this.pageNumber = pageNumber;
     }
 
-    public List<Float> getNonBlankTextAscentLines() {
-        return nonBlankTextAscentLines;
+    public int getNonBlankTextCount() {
+        return nonBlankTextCount;
     }
 
-    public void setNonBlankTextLinePositions(List<Float> nonBlankTextAscentLines) {
-        this.nonBlankTextAscentLines = nonBlankTextAscentLines;
-    }
-
-    public List<Float> getNonBlankTextDescentLines() {
-        return nonBlankTextDescentLines;
-    }
-
-    public void setNonBlankTextDescentLines(List<Float> nonBlankTextDescentLines) {
-        this.nonBlankTextDescentLines = nonBlankTextDescentLines;
+    public void setNonBlankTextCount(int nonBlankTextCount) {
+        this.nonBlankTextCount = nonBlankTextCount;
     }
 
     public List<ImageModel> getImages() {
@@ -619,14 +595,36 @@ public class PdfExtractionListener implements IEventListener {
 
     public void setSpecialCharacters(String specialCharacters) {
         this.specialCharacters = specialCharacters;
+        this.specialCharacterMatcher = CharacterMatcher.compile(specialCharacters);
+    }
+
+    public CharacterMatcher getSpecialCharacterMatcher() {
+        return specialCharacterMatcher;
+    }
+
+    public void setSpecialCharacterMatcher(CharacterMatcher specialCharacterMatcher) {
+        this.specialCharacters = specialCharacterMatcher.getRegex();
+        this.specialCharacterMatcher = specialCharacterMatcher;
     }
 
     public List<Double> getLeadingValues() {
-        return leadingValues;
+        return leadingHistogram != null ? leadingHistogram.getValues() : null;
+    }
+
+    public LeadingHistogram getLeadingHistogram() {
+        return leadingHistogram;
+    }
+
+    public void setLeadingHistogram(LeadingHistogram leadingHistogram) {
+        this.leadingHistogram = leadingHistogram;
+    }
+
+    public double getLeadingPrecision() {
+        return leadingPrecision;
     }
 
-    public void setLeadingValues(List<Double> leadingValues) {
-        this.leadingValues = leadingValues;
+    public void setLeadingPrecision(double leadingPrecision) {
+        this.leadingPrecision = leadingPrecision;
     }
 
     public List<String> getTextLines() {
@@ -0,0 +1,704 @@
+package gov.nsf.psm.documentcompliance.compliance.pdf;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.itextpdf.io.font.PdfEncodings;
+import com.itextpdf.io.source.IRandomAccessSource;
+import com.itextpdf.io.source.PdfTokenizer;
+import com.itextpdf.io.source.PdfTokenizer.TokenType;
+import com.itextpdf.io.source.RandomAccessFileOrArray;
+import com.itextpdf.io.source.RandomAccessSourceFactory;
+import com.itextpdf.kernel.pdf.PdfDictionary;
+import com.itextpdf.kernel.pdf.PdfName;
+import com.itextpdf.kernel.pdf.PdfNumber;
+import com.itextpdf.kernel.pdf.PdfVersion;
+import com.itextpdf.kernel.pdf.filters.FlateDecodeFilter;
+
+import gov.nsf.psm.documentcompliance.compliance.pdf.utility.XmpUtils;
+
+/*
+ * Reads the document metadata straight from the file structure: the trailer, the cross-reference
+ * sections, the Info dictionary, the page tree /Count and the XMP stream. No other object is
+ * parsed. Anything it does not handle (encryption, damaged cross-references, an Info dictionary or
+ * XMP stream it cannot resolve, filters other than Flate) ends the scan with an IOException so the
+ * caller can open the document instead
+ */
+public class PdfMetadataScanner {
+
+    private static final String PDF_NAMESPACE = "http://ns.adobe.com/pdf/1.3/";
+    private static final String PDFA_ID_NAMESPACE = "http://www.aiim.org/pdfa/ns/id/";
+    private static final int XREF_ENTRY_LENGTH = 20;
+    private static final int MAX_XREF_SECTIONS = 1024;
+    private static final int MAX_NESTING = 64;
+    private static final PdfName FLATE_DECODE_ABBREVIATION = new PdfName("Fl");
+
+    private final RandomAccessFileOrArray file;
+    private final PdfTokenizer tokens;
+    private final List<XrefSection> sections = new ArrayList<>();
+    private final Map<Integer, ObjectStream> objectStreams = new HashMap<>();
+    private Map<String, Object> trailer = null;
+
+    private PdfVersion pdfVersion = null;
+    private int numberOfPages = 0;
+    private boolean tagged = false;
+    private String producer = null;
+    private String author = null;
+    private String title = null;
+    private String keywords = null;
+    private String pdfAConformance = null;
+
+    public PdfMetadataScanner(IRandomAccessSource source) {
+        this.file = new RandomAccessFileOrArray(source);
+        this.tokens = new PdfTokenizer(file);
+    }
+
+    public void scan() throws IOException {
+        try {
+            pdfVersion = PdfVersion.fromString(tokens.checkPdfHeader());
+            readXrefSections();
+            if (trailer.get("Encrypt") != null) {
+                throw new IOException("Encrypted documents are not scanned");
+            }
+            Map<String, Object> catalog = getDictionary(trailer.get("Root"));
+            if (catalog == null) {
+                throw new IOException("Document has no catalog");
+            }
+            Object version = resolve(catalog.get("Version"));
+            if (version instanceof PdfName) {
+                // The catalog may raise the version given in the header
+                PdfVersion catalogVersion = PdfVersion.fromPdfName((PdfName) version);
+                if (catalogVersion.compareTo(pdfVersion) > 0) {
+                    pdfVersion = catalogVersion;
+                }
+            }
+            numberOfPages = readPageCount(catalog);
+            tagged = getDictionary(catalog.get("StructTreeRoot")) != null;
+            Object infoReference = trailer.get("Info");
+            Map<String, Object> info = getDictionary(infoReference);
+            if (info == null && infoReference != null) {
+                // Left to the full open, which also looks where this scan does not
+                throw new IOException("Info dictionary cannot be resolved");
+            }
+            if (info != null) {
+                producer = getText(info.get("Producer"));
+                author = getText(info.get("Author"));
+                title = getText(info.get("Title"));
+                keywords = getText(info.get("Keywords"));
+            }
+            Object metadataReference = catalog.get("Metadata");
+            byte[] xmpMetadata = getStreamBytes(metadataReference);
+            if (xmpMetadata == null && metadataReference != null) {
+                throw new IOException("XMP metadata cannot be resolved");
+            }
+            if (xmpMetadata != null) {
+                String xmp = XmpUtils.decode(xmpMetadata);
+                // As when the document is opened, the XMP producer takes precedence over the Info dictionary
+                String xmpProducer = XmpUtils.getPropertyValue(xmp, PDF_NAMESPACE, "Producer");
+                if (xmpProducer != null) {
+                    producer = xmpProducer;
+                }
+                pdfAConformance = XmpUtils.getPropertyValue(xmp, PDFA_ID_NAMESPACE, "conformance");
+            }
+        } finally {
+            tokens.close();
+        }
+    }
+
+    public PdfVersion getPdfVersion() {
+        return pdfVersion;
+    }
+
+    public int getNumberOfPages() {
+        return numberOfPages;
+    }
+
+    public boolean isTagged() {
+        return tagged;
+    }
+
+    public String getProducer() {
+        return producer;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getKeywords() {
+        return keywords;
+    }
+
+    public String getPdfAConformance() {
+        return pdfAConformance;
+    }
+
+    private int readPageCount(Map<String, Object> catalog) throws IOException {
+        Map<String, Object> pages = getDictionary(catalog.get("Pages"));
+        if (pages == null) {
+            throw new IOException("Document has no page tree");
+        }
+        Object count = resolve(pages.get("Count"));
+        if (!(count instanceof Long) || (Long) count < 0 || (Long) count > Integer.MAX_VALUE) {
+            throw new IOException("Page tree has an invalid /Count");
+        }
+        return ((Long) count).intValue();
+    }
+
+    // Cross-reference sections
+
+    private void readXrefSections() throws IOException {
+        tokens.seek(tokens.getStartxref());
+        tokens.nextToken();
+        if (!"startxref".equals(tokens.getStringValue())) {
+            throw new IOException("startxref not found");
+        }
+        tokens.nextToken();
+        if (tokens.getTokenType() != TokenType.Number) {
+            throw new IOException("startxref is not followed by an offset");
+        }
+        long offset = Long.parseLong(tokens.getStringValue());
+        Set<Long> visited = new HashSet<>();
+        while (offset >= 0) {
+            if (!visited.add(offset) || visited.size() > MAX_XREF_SECTIONS) {
+                throw new IOException("Cross-reference sections form a loop");
+            }
+            tokens.seek(offset);
+            tokens.nextValidToken();
+            Map<String, Object> sectionTrailer;
+            if (tokens.getTokenType() == TokenType.Other && "xref".equals(tokens.getStringValue())) {
+                sectionTrailer = readClassicSection();
+                Object xrefStream = sectionTrailer.get("XRefStm");
+                if (xrefStream instanceof Long) {
+                    // Hybrid file: the stream holds the objects the table leaves out or lists as free
+                    XrefSection table = sections.remove(sections.size() - 1);
+                    tokens.seek((Long) xrefStream);
+                    tokens.nextValidToken();
+                    readStreamSection();
+                    XrefSection stream = sections.remove(sections.size() - 1);
+                    sections.add(new HybridSection(table, stream));
+                }
+            } else if (tokens.getTokenType() == TokenType.Obj) {
+                sectionTrailer = readStreamSection();
+            } else {
+                throw new IOException("No cross-reference section at offset " + offset);
+            }
+            if (trailer == null) {
+                trailer = sectionTrailer;
+            }
+            Object prev = sectionTrailer.get("Prev");
+            offset = prev instanceof Number ? ((Number) prev).longValue() : -1;
+        }
+    }
+
+    private Map<String, Object> readClassicSection() throws IOException {
+        ClassicSection section = new ClassicSection();
+        while (true) {
+            tokens.nextValidToken();
+            if (tokens.getTokenType() == TokenType.Other && "trailer".equals(tokens.getStringValue())) {
+                break;
+            }
+            if (tokens.getTokenType() != TokenType.Number) {
+                throw new IOException("Invalid cross-reference subsection");
+            }
+            int start = Integer.parseInt(tokens.getStringValue());
+            tokens.nextValidToken();
+            if (tokens.getTokenType() != TokenType.Number) {
+                throw new IOException("Invalid cross-reference subsection");
+            }
+            int count = Integer.parseInt(tokens.getStringValue());
+            int ch;
+            do {
+                ch = tokens.read();
+            } while (isWhitespace(ch));
+            tokens.backOnePosition(ch);
+            long position = tokens.getPosition();
+            if (count > 0) {
+                // Entries are only read by stride, so the last one has to be where the stride puts it
+                readClassicEntry(position + (long) XREF_ENTRY_LENGTH * (count - 1));
+            }
+            section.add(start, count, position);
+            tokens.seek(position + (long) XREF_ENTRY_LENGTH * count);
+        }
+        sections.add(section);
+        Map<String, Object> sectionTrailer = asDictionary(readObject(tokens, 0));
+        if (sectionTrailer == null) {
+            throw new IOException("Invalid trailer");
+        }
+        return sectionTrailer;
+    }
+
+    private Map<String, Object> readStreamSection() throws IOException {
+        if (tokens.getTokenType() != TokenType.Obj) {
+            throw new IOException("Invalid cross-reference stream");
+        }
+        Object object = readIndirectObject(tokens);
+        if (!(object instanceof StreamData)) {
+            throw new IOException("Invalid cross-reference stream");
+        }
+        StreamData stream = (StreamData) object;
+        if (!PdfName.XRef.equals(stream.dictionary.get("Type"))) {
+            throw new IOException("Invalid cross-reference stream");
+        }
+        List<Object> widths = asArray(stream.dictionary.get("W"));
+        Object size = stream.dictionary.get("Size");
+        if (widths == null || widths.size() != 3 || !(size instanceof Long)) {
+            throw new IOException("Invalid cross-reference stream");
+        }
+        int[] w = new int[3];
+        for (int i = 0; i < 3; i++) {
+            w[i] = toInt(widths.get(i));
+        }
+        List<Object> index = asArray(stream.dictionary.get("Index"));
+        int[] ranges;
+        if (index == null) {
+            ranges = new int[] { 0, ((Long) size).intValue() };
+        } else {
+            ranges = new int[index.size()];
+            for (int i = 0; i < ranges.length; i++) {
+                ranges[i] = toInt(index.get(i));
+            }
+        }
+        sections.add(new StreamSection(decode(stream), w, ranges));
+        return stream.dictionary;
+    }
+
+    private XrefEntry lookup(int number) throws IOException {
+        for (XrefSection section : sections) {
+            XrefEntry entry = section.lookup(number);
+            if (entry != null) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private XrefEntry readClassicEntry(long position) throws IOException {
+        byte[] entry = new byte[XREF_ENTRY_LENGTH];
+        file.seek(position);
+        file.readFully(entry);
+        long offset = 0;
+        for (int i = 0; i < 10; i++) {
+            if (entry[i] < '0' || entry[i] > '9') {
+                throw new IOException("Invalid cross-reference entry");
+            }
+            offset = offset * 10 + (entry[i] - '0');
+        }
+        if (entry[10] != ' ' || entry[16] != ' ' || !isWhitespace(entry[18]) || !isWhitespace(entry[19])) {
+            throw new IOException("Invalid cross-reference entry");
+        }
+        if (entry[17] == 'n') {
+            return new XrefEntry(offset, -1);
+        } else if (entry[17] == 'f') {
+            return XrefEntry.FREE;
+        }
+        throw new IOException("Invalid cross-reference entry");
+    }
+
+    // Objects
+
+    private Object resolve(Object value) throws IOException {
+        return value instanceof ObjectRef ? getObject(((ObjectRef) value).number) : value;
+    }
+
+    private Map<String, Object> getDictionary(Object value) throws IOException {
+        return asDictionary(resolve(value));
+    }
+
+    private String getText(Object value) throws IOException {
+        Object text = resolve(value);
+        if (!(text instanceof byte[])) {
+            return null;
+        }
+        byte[] bytes = (byte[]) text;
+        if (bytes.length >= 2 && bytes[0] == (byte) 0xfe && bytes[1] == (byte) 0xff) {
+            return PdfEncodings.convertToString(bytes, PdfEncodings.UNICODE_BIG);
+        }
+        return PdfEncodings.convertToString(bytes, PdfEncodings.PDF_DOC_ENCODING);
+    }
+
+    private byte[] getStreamBytes(Object value) throws IOException {
+        Object stream = resolve(value);
+        return stream instanceof StreamData ? decode((StreamData) stream) : null;
+    }
+
+    private Object getObject(int number) throws IOException {
+        XrefEntry entry = lookup(number);
+        if (entry == null || entry == XrefEntry.FREE) {
+            return null;
+        }
+        if (entry.streamNumber < 0) {
+            tokens.seek(entry.offset);
+            tokens.nextValidToken();
+            if (tokens.getTokenType() != TokenType.Obj || tokens.getObjNr() != number) {
+                throw new IOException("Cross-reference offset of object " + number + " is invalid");
+            }
+            return readIndirectObject(tokens);
+        }
+        ObjectStream objectStream = objectStreams.get(entry.streamNumber);
+        if (objectStream == null) {
+            objectStream = readObjectStream(entry.streamNumber);
+            objectStreams.put(entry.streamNumber, objectStream);
+        }
+        return objectStream.getObject(number);
+    }
+
+    private ObjectStream readObjectStream(int streamNumber) throws IOException {
+        XrefEntry entry = lookup(streamNumber);
+        if (entry == null || entry.streamNumber >= 0) {
+            throw new IOException("Object stream " + streamNumber + " is not a top level object");
+        }
+        Object object = getObject(streamNumber);
+        if (!(object instanceof StreamData)) {
+            throw new IOException("Object stream " + streamNumber + " is invalid");
+        }
+        StreamData stream = (StreamData) object;
+        Object n = stream.dictionary.get("N");
+        Object first = stream.dictionary.get("First");
+        if (!(n instanceof Long) || !(first instanceof Long)) {
+            throw new IOException("Object stream " + streamNumber + " is invalid");
+        }
+        PdfTokenizer streamTokens = new PdfTokenizer(
+                new RandomAccessFileOrArray(new RandomAccessSourceFactory().createSource(decode(stream))));
+        int count = ((Long) n).intValue();
+        int[] numbers = new int[count];
+        long[] offsets = new long[count];
+        for (int i = 0; i < count; i++) {
+            streamTokens.nextToken();
+            numbers[i] = Integer.parseInt(streamTokens.getStringValue());
+            streamTokens.nextToken();
+            offsets[i] = (Long) first + Long.parseLong(streamTokens.getStringValue());
+        }
+        return new ObjectStream(streamTokens, numbers, offsets);
+    }
+
+    // Reads the body of an object whose "n g obj" header has just been read
+    private Object readIndirectObject(PdfTokenizer tokenizer) throws IOException {
+        Object object = readObject(tokenizer, 0);
+        Map<String, Object> dictionary = asDictionary(object);
+        if (dictionary == null) {
+            return object;
+        }
+        tokenizer.nextToken();
+        if (tokenizer.getTokenType() != TokenType.Other || !"stream".equals(tokenizer.getStringValue())) {
+            return dictionary;
+        }
+        int ch = tokenizer.read();
+        if (ch == '\r') {
+            ch = tokenizer.read();
+        }
+        if (ch != '\n') {
+            tokenizer.backOnePosition(ch);
+        }
+        return new StreamData(dictionary, tokenizer.getPosition());
+    }
+
+    private Object readObject(PdfTokenizer tokenizer, int depth) throws IOException {
+        tokenizer.nextValidToken();
+        return readCurrentObject(tokenizer, depth);
+    }
+
+    private Object readCurrentObject(PdfTokenizer tokenizer, int depth) throws IOException {
+        if (depth > MAX_NESTING) {
+            throw new IOException("Objects are nested too deeply");
+        }
+        switch (tokenizer.getTokenType()) {
+        case StartDic:
+            Map<String, Object> dictionary = new HashMap<>();
+            while (true) {
+                tokenizer.nextValidToken();
+                if (tokenizer.getTokenType() == TokenType.EndDic) {
+                    return dictionary;
+                }
+                if (tokenizer.getTokenType() != TokenType.Name) {
+                    throw new IOException("Dictionary key is not a name");
+                }
+                String key = new PdfName(tokenizer.getByteContent()).getValue();
+                dictionary.put(key, readObject(tokenizer, depth + 1));
+            }
+        case StartArray:
+            List<Object> array = new ArrayList<>();
+            while (true) {
+                tokenizer.nextValidToken();
+                if (tokenizer.getTokenType() == TokenType.EndArray) {
+                    return array;
+                }
+                array.add(readCurrentObject(tokenizer, depth + 1));
+            }
+        case Number:
+            return toNumber(tokenizer.getStringValue());
+        case String:
+            return PdfTokenizer.decodeStringContent(tokenizer.getByteContent(), tokenizer.isHexString());
+        case Name:
+            return new PdfName(tokenizer.getByteContent());
+        case Ref:
+            return new ObjectRef(tokenizer.getObjNr());
+        case Other:
+            String keyword = tokenizer.getStringValue();
+            if ("true".equals(keyword) || "false".equals(keyword)) {
+                return Boolean.valueOf(keyword);
+            } else if ("null".equals(keyword)) {
+                return null;
+            }
+            throw new IOException("Unexpected keyword " + keyword);
+        default:
+            throw new IOException("Unexpected token " + tokenizer.getTokenType());
+        }
+    }
+
+    private byte[] decode(StreamData stream) throws IOException {
+        Object length = resolve(stream.dictionary.get("Length"));
+        if (!(length instanceof Long) || (Long) length < 0 || stream.start + (Long) length > file.length()) {
+            throw new IOException("Stream has an invalid /Length");
+        }
+        byte[] data = new byte[((Long) length).intValue()];
+        file.seek(stream.start);
+        file.readFully(data);
+        tokens.seek(stream.start + data.length);
+        tokens.nextToken();
+        if (!"endstream".equals(tokens.getStringValue())) {
+            throw new IOException("Stream is not followed by endstream");
+        }
+        Object filter = getSingleValue(resolve(stream.dictionary.get("Filter")));
+        if (filter == null) {
+            return data;
+        }
+        if (!PdfName.FlateDecode.equals(filter) && !FLATE_DECODE_ABBREVIATION.equals(filter)) {
+            throw new IOException("Unsupported stream filter " + filter);
+        }
+        byte[] decoded = FlateDecodeFilter.flateDecode(data, true);
+        if (decoded == null) {
+            decoded = FlateDecodeFilter.flateDecode(data, false);
+        }
+        Map<String, Object> decodeParms = asDictionary(getSingleValue(resolve(stream.dictionary.get("DecodeParms"))));
+        if (decodeParms != null) {
+            PdfDictionary predictorParms = new PdfDictionary();
+            for (String key : new String[] { "Predictor", "Colors", "BitsPerComponent", "Columns" }) {
+                Object value = decodeParms.get(key);
+                if (value instanceof Number) {
+                    predictorParms.put(new PdfName(key), new PdfNumber(((Number) value).intValue()));
+                }
+            }
+            decoded = FlateDecodeFilter.decodePredictor(decoded, predictorParms);
+        }
+        return decoded;
+    }
+
+    // A filter or parameter given as a one element array
+    private static Object getSingleValue(Object value) throws IOException {
+        if (value instanceof List) {
+            List<?> values = (List<?>) value;
+            if (values.size() > 1) {
+                throw new IOException("Chained stream filters are not supported");
+            }
+            return values.isEmpty() ? null : values.get(0);
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asDictionary(Object value) {
+        return value instanceof Map ? (Map<String, Object>) value : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> asArray(Object value) {
+        return value instanceof List ? (List<Object>) value : null;
+    }
+
+    private static int toInt(Object value) throws IOException {
+        if (!(value instanceof Long) || (Long) value < 0 || (Long) value > Integer.MAX_VALUE) {
+            throw new IOException("Expected a non-negative integer");
+        }
+        return ((Long) value).intValue();
+    }
+
+    private static Number toNumber(String value) {
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            return Double.valueOf(value);
+        }
+    }
+
+    private static boolean isWhitespace(int ch) {
+        return ch == 0 || ch == 9 || ch == 10 || ch == 12 || ch == 13 || ch == 32;
+    }
+
+    private static class ObjectRef {
+
+        private final int number;
+
+        ObjectRef(int number) {
+            this.number = number;
+        }
+
+    }
+
+    private static class StreamData {
+
+        private final Map<String, Object> dictionary;
+        private final long start;
+
+        StreamData(Map<String, Object> dictionary, long start) {
+            this.dictionary = dictionary;
+            this.start = start;
+        }
+
+    }
+
+    private static class XrefEntry {
+
+        private static final XrefEntry FREE = new XrefEntry(0, -1);
+
+        private final long offset;
+        private final int streamNumber;
+
+        XrefEntry(long offset, int streamNumber) {
+            this.offset = offset;
+            this.streamNumber = streamNumber;
+        }
+
+    }
+
+    private interface XrefSection {
+
+        // Entry for the object, or null if the section does not list it
+        XrefEntry lookup(int number) throws IOException;
+
+    }
+
+    private class ClassicSection implements XrefSection {
+
+        private final List<long[]> subsections = new ArrayList<>();
+
+        void add(int start, int count, long position) {
+            subsections.add(new long[] { start, count, position });
+        }
+
+        @Override
+        public XrefEntry lookup(int number) throws IOException {
+            for (long[] subsection : subsections) {
+                if (number >= subsection[0] && number < subsection[0] + subsection[1]) {
+                    return readClassicEntry(subsection[2] + XREF_ENTRY_LENGTH * (number - subsection[0]));
+                }
+            }
+            return null;
+        }
+
+    }
+
+    private static class StreamSection implements XrefSection {
+
+        private final byte[] data;
+        private final int[] widths;
+        private final int[] ranges;
+        private final int rowLength;
+
+        StreamSection(byte[] data, int[] widths, int[] ranges) {
+            this.data = data;
+            this.widths = widths;
+            this.ranges = ranges;
+            this.rowLength = widths[0] + widths[1] + widths[2];
+        }
+
+        @Override
+        public XrefEntry lookup(int number) throws IOException {
+            int row = 0;
+            for (int i = 0; i + 1 < ranges.length; i += 2) {
+                int start = ranges[i];
+                int count = ranges[i + 1];
+                if (number >= start && number < start + count) {
+                    return readRow(row + number - start);
+                }
+                row += count;
+            }
+            return null;
+        }
+
+        private XrefEntry readRow(int row) throws IOException {
+            int position = row * rowLength;
+            if (position + rowLength > data.length) {
+                throw new IOException("Cross-reference stream is truncated");
+            }
+            // The type defaults to 1 when its field is omitted
+            long type = widths[0] == 0 ? 1 : readField(position, widths[0]);
+            long field2 = readField(position + widths[0], widths[1]);
+            long field3 = readField(position + widths[0] + widths[1], widths[2]);
+            if (type == 0) {
+                return XrefEntry.FREE;
+            } else if (type == 1) {
+                return new XrefEntry(field2, -1);
+            } else if (type == 2) {
+                return new XrefEntry(field3, (int) field2);
+            }
+            return null;
+        }
+
+        private long readField(int position, int width) {
+            long value = 0;
+            for (int i = 0; i < width; i++) {
+                value = (value << 8) | (data[position + i] & 0xff);
+            }
+            return value;
+        }
+
+    }
+
+    private static class HybridSection implements XrefSection {
+
+        private final XrefSection table;
+        private final XrefSection stream;
+
+        HybridSection(XrefSection table, XrefSection stream) {
+            this.table = table;
+            this.stream = stream;
+        }
+
+        @Override
+        public XrefEntry lookup(int number) throws IOException {
+            XrefEntry entry = table.lookup(number);
+            if (entry == null || entry == XrefEntry.FREE) {
+                // Objects in object streams are only listed in the stream
+                XrefEntry streamEntry = stream.lookup(number);
+                return streamEntry != null ? streamEntry : entry;
+            }
+            return entry;
+        }
+
+    }
+
+    private class ObjectStream {
+
+        private final PdfTokenizer streamTokens;
+        private final int[] numbers;
+        private final long[] offsets;
+
+        ObjectStream(PdfTokenizer streamTokens, int[] numbers, long[] offsets) {
+            this.streamTokens = streamTokens;
+            this.numbers = numbers;
+            this.offsets = offsets;
+        }
+
+        Object getObject(int number) throws IOException {
+            for (int i = 0; i < numbers.length; i++) {
+                if (numbers[i] == number) {
+                    streamTokens.seek(offsets[i]);
+                    return readObject(streamTokens, 0);
+                }
+            }
+            return null;
+        }
+
+    }
+
+}
@@ -16,14 +16,20 @@ public class TextRenderInfoListener implements IEventListener {
     private double nextMaxY;
     private double prevMaxY;
     private boolean lastBlockOnSameLine;
+    private boolean chunkEvents;
 
     public TextRenderInfoListener(IEventListener strategy) {
         this.strategy = strategy;
     }
 
     private void renderText(TextRenderInfo renderInfo) {
-        for (TextRenderInfo info : renderInfo.getCharacterRenderInfos()) {
-            strategy.eventOccurred(info, EventType.RENDER_TEXT);
+        if (chunkEvents && !hasOuterWhitespace(renderInfo.getText())) {
+            // The chunk covers the same area as its glyphs
+            strategy.eventOccurred(renderInfo, EventType.RENDER_TEXT);
+        } else {
+            for (TextRenderInfo info : renderInfo.getCharacterRenderInfos()) {
+                strategy.eventOccurred(info, EventType.RENDER_TEXT);
+            }
         }
         blockCount++;
         totalSingleSpaceWidth = totalSingleSpaceWidth + renderInfo.getSingleSpaceWidth();
@@ -33,6 +39,19 @@ public class TextRenderInfoListener implements IEventListener {
         lastBlockOnSameLine = Math.round(prevMaxY) == Math.round(nextMaxY);
     }
 
+    // Whitespace glyphs are filtered out, so those chunks are split to keep the text area exact
+    private static boolean hasOuterWhitespace(String text) {
+        return text.isEmpty() || text.charAt(0) <= ' ' || text.charAt(text.length() - 1) <= ' ';
+    }
+
+    public boolean isChunkEvents() {
+        return chunkEvents;
+    }
+
+    public void setChunkEvents(boolean chunkEvents) {
+        this.chunkEvents = chunkEvents;
+    }
+
     public long getBlockCount() {
         return blockCount;
     }
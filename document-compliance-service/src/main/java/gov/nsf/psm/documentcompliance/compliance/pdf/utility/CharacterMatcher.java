@@ -0,0 +1,147 @@
+package gov.nsf.psm.documentcompliance.compliance.pdf.utility;
+
+import java.util.BitSet;
+import java.util.regex.Pattern;
+
+/*
+ * Compiled form of the ignored characters setting. A plain character class, such as
+ * "[\\u200B\\u00A0]", is matched against a bit set; any other expression falls back to a
+ * precompiled pattern. Like Matcher.find(), input matches if any part of it matches.
+ */
+public class CharacterMatcher {
+
+    private static final String META_CHARACTERS = ".^$|?*+()[]{}";
+
+    private final String regex;
+    private final BitSet characters;
+    private final Pattern pattern;
+
+    private CharacterMatcher(String regex, BitSet characters, Pattern pattern) {
+        this.regex = regex;
+        this.characters = characters;
+        this.pattern = pattern;
+    }
+
+    public static CharacterMatcher compile(String regex) {
+        if (regex == null) {
+            return new CharacterMatcher(null, new BitSet(), null);
+        }
+        BitSet characters = parseCharacterClass(regex);
+        if (characters != null) {
+            return new CharacterMatcher(regex, characters, null);
+        }
+        return new CharacterMatcher(regex, null, Pattern.compile(regex));
+    }
+
+    public boolean matches(CharSequence input) {
+        if (pattern != null) {
+            return pattern.matcher(input).find();
+        }
+        for (int i = 0; i < input.length(); i++) {
+            if (characters.get(input.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String getRegex() {
+        return regex;
+    }
+
+    public boolean isCharacterClass() {
+        return characters != null;
+    }
+
+    // Returns null if the expression is not a simple class of literal characters and ranges
+    private static BitSet parseCharacterClass(String regex) {
+        int begin = 0;
+        int end = regex.length();
+        if (end > 2 && regex.charAt(0) == '[' && regex.charAt(end - 1) == ']' && regex.charAt(end - 2) != '\\') {
+            begin = 1;
+            end = end - 1;
+            if (regex.charAt(begin) == '^') {
+                return null;
+            }
+        }
+        BitSet characters = new BitSet();
+        int[] position = { begin };
+        int rangeStart = -1;
+        while (position[0] < end) {
+            if (begin > 0 && regex.charAt(position[0]) == '-' && rangeStart >= 0 && position[0] + 1 < end) {
+                position[0]++;
+                int rangeEnd = parseCharacter(regex, position, end, begin > 0);
+                if (rangeEnd < rangeStart) {
+                    return null;
+                }
+                characters.set(rangeStart, rangeEnd + 1);
+                rangeStart = -1;
+            } else {
+                int c = parseCharacter(regex, position, end, begin > 0);
+                if (c < 0 || (begin == 0 && position[0] < end)) {
+                    return null;
+                }
+                characters.set(c);
+                rangeStart = c;
+            }
+        }
+        if (characters.isEmpty() || characters.get(Character.MIN_SURROGATE, Character.MAX_SURROGATE + 1).cardinality() > 0) {
+            return null;
+        }
+        return characters;
+    }
+
+    private static int parseCharacter(String regex, int[] position, int end, boolean inClass) {
+        char c = regex.charAt(position[0]++);
+        if (c == '[' || (c == '&' && position[0] < end && regex.charAt(position[0]) == '&')) {
+            return -1;
+        }
+        if (c == ']' || (!inClass && META_CHARACTERS.indexOf(c) >= 0)) {
+            return -1;
+        }
+        if (c != '\\') {
+            return Character.isSurrogate(c) ? -1 : c;
+        }
+        if (position[0] >= end) {
+            return -1;
+        }
+        char escaped = regex.charAt(position[0]++);
+        switch (escaped) {
+        case 'u':
+            return parseHex(regex, position, end, 4);
+        case 'x':
+            return parseHex(regex, position, end, 2);
+        case 't':
+            return '\t';
+        case 'n':
+            return '\n';
+        case 'r':
+            return '\r';
+        case 'f':
+            return '\f';
+        case 'e':
+            return '\u001B';
+        case 'a':
+            return '\u0007';
+        default:
+            // Escaped punctuation is literal, escaped letters and digits are classes or references
+            return Character.isLetterOrDigit(escaped) ? -1 : escaped;
+        }
+    }
+
+    private static int parseHex(String regex, int[] position, int end, int digits) {
+        if (position[0] + digits > end) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = 0; i < digits; i++) {
+            int digit = Character.digit(regex.charAt(position[0]++), 16);
+            if (digit < 0) {
+                return -1;
+            }
+            value = value * 16 + digit;
+        }
+        return value;
+    }
+
+}
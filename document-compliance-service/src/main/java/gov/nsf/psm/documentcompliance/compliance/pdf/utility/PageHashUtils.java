@@ -0,0 +1,149 @@
+package gov.nsf.psm.documentcompliance.compliance.pdf.utility;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.itextpdf.kernel.geom.Rectangle;
+import com.itextpdf.kernel.pdf.PdfArray;
+import com.itextpdf.kernel.pdf.PdfDictionary;
+import com.itextpdf.kernel.pdf.PdfIndirectReference;
+import com.itextpdf.kernel.pdf.PdfName;
+import com.itextpdf.kernel.pdf.PdfNumber;
+import com.itextpdf.kernel.pdf.PdfObject;
+import com.itextpdf.kernel.pdf.PdfPage;
+import com.itextpdf.kernel.pdf.PdfStream;
+import com.itextpdf.kernel.pdf.PdfString;
+
+import gov.nsf.psm.documentcompliance.service.parameter.PdfParameters;
+
+/*
+ * Content hash of a page that is independent of its position and of the file it comes from: the
+ * decoded content streams, the resources and annotations by value rather than by object number,
+ * the page box and rotation, and the extraction parameters. Streams are hashed on their own and
+ * their digests kept by the caller for the document, so fonts and images shared by its pages are
+ * hashed once
+ */
+public class PageHashUtils {
+
+    // Links back into the page tree or structure tree, which do not change what is extracted
+    private static final List<PdfName> SKIPPED_KEYS = new ArrayList<>();
+
+    static {
+        SKIPPED_KEYS.add(PdfName.P);
+        SKIPPED_KEYS.add(PdfName.Parent);
+        SKIPPED_KEYS.add(PdfName.StructParent);
+        SKIPPED_KEYS.add(PdfName.StructParents);
+    }
+
+    private PageHashUtils() {
+        // Private constructor
+    }
+
+    public static String getPageHash(PdfPage page, PdfParameters params,
+            Map<PdfIndirectReference, HashCode> streamDigests) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        hasher.putString(getParameterFingerprint(params), StandardCharsets.UTF_8);
+        Rectangle rect = page.getPageSizeWithRotation();
+        hasher.putFloat(rect.getX()).putFloat(rect.getY()).putFloat(rect.getWidth()).putFloat(rect.getHeight());
+        hasher.putInt(page.getRotation());
+        PdfNumber userUnit = page.getPdfObject().getAsNumber(PdfName.UserUnit);
+        hasher.putDouble(userUnit != null ? userUnit.doubleValue() : 1d);
+        byte[] content = page.getContentBytes();
+        hasher.putInt(content.length).putBytes(content);
+        Map<PdfObject, Integer> visited = new IdentityHashMap<>();
+        putObject(hasher, page.getResources().getPdfObject(), visited, streamDigests);
+        putObject(hasher, page.getPdfObject().get(PdfName.Annots), visited, streamDigests);
+        return hasher.hash().toString();
+    }
+
+    private static String getParameterFingerprint(PdfParameters params) {
+        return params.getFontDetectionIgnoreBlankSpaces() + "|" + params.getFontDetectionIgnoreSuperSubscript() + "|"
+                + params.getSpecialCharacters() + "|" + params.getFontMap() + "|" + params.getUseTextExtractor() + "|"
+                + params.getSinglePassExtraction() + "|" + params.getChunkEvents() + "|"
+                + params.getLeadingPrecision();
+    }
+
+    // Objects already on the path are hashed as a back reference, so cycles terminate
+    private static void putObject(Hasher hasher, PdfObject object, Map<PdfObject, Integer> visited,
+            Map<PdfIndirectReference, HashCode> streamDigests) {
+        if (object == null || object.isNull()) {
+            hasher.putByte((byte) 0);
+            return;
+        }
+        Integer seen = visited.get(object);
+        if (seen != null) {
+            hasher.putByte((byte) 1).putInt(seen);
+            return;
+        }
+        hasher.putByte(object.getType());
+        switch (object.getType()) {
+        case PdfObject.DICTIONARY:
+            visited.put(object, visited.size());
+            putDictionary(hasher, (PdfDictionary) object, visited, streamDigests);
+            visited.remove(object);
+            break;
+        case PdfObject.STREAM:
+            hasher.putBytes(getStreamDigest((PdfStream) object, streamDigests).asBytes());
+            break;
+        case PdfObject.ARRAY:
+            visited.put(object, visited.size());
+            PdfArray array = (PdfArray) object;
+            hasher.putInt(array.size());
+            for (int i = 0; i < array.size(); i++) {
+                putObject(hasher, array.get(i), visited, streamDigests);
+            }
+            visited.remove(object);
+            break;
+        case PdfObject.STRING:
+            byte[] value = ((PdfString) object).getValueBytes();
+            hasher.putInt(value.length).putBytes(value);
+            break;
+        default:
+            // Names, numbers and booleans
+            hasher.putString(object.toString(), StandardCharsets.UTF_8);
+            break;
+        }
+    }
+
+    // A stream is hashed apart from the path that reaches it, so its digest is the same on every page
+    private static HashCode getStreamDigest(PdfStream stream, Map<PdfIndirectReference, HashCode> streamDigests) {
+        PdfIndirectReference reference = stream.getIndirectReference();
+        HashCode digest = reference != null ? streamDigests.get(reference) : null;
+        if (digest == null) {
+            Hasher hasher = Hashing.sha256().newHasher();
+            Map<PdfObject, Integer> visited = new IdentityHashMap<>();
+            visited.put(stream, 0);
+            putDictionary(hasher, stream, visited, streamDigests);
+            // Encoded bytes: fonts and images are hashed as stored, without decoding them
+            byte[] bytes = stream.getBytes(false);
+            hasher.putInt(bytes.length).putBytes(bytes);
+            digest = hasher.hash();
+            if (reference != null) {
+                streamDigests.put(reference, digest);
+            }
+        }
+        return digest;
+    }
+
+    private static void putDictionary(Hasher hasher, PdfDictionary dict, Map<PdfObject, Integer> visited,
+            Map<PdfIndirectReference, HashCode> streamDigests) {
+        List<PdfName> keys = new ArrayList<>(dict.keySet());
+        Collections.sort(keys);
+        for (PdfName key : keys) {
+            if (SKIPPED_KEYS.contains(key) || (dict.isStream() && PdfName.Length.equals(key))) {
+                continue;
+            }
+            hasher.putString(key.getValue(), StandardCharsets.UTF_8);
+            putObject(hasher, dict.get(key), visited, streamDigests);
+        }
+        hasher.putByte((byte) 0);
+    }
+
+}
@@ -2,30 +2,24 @@ package gov.nsf.psm.documentcompliance.compliance.pdf.utility;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.StringReader;
+import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
-
-import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.StringUtils;
-import org.w3c.dom.Document;
-import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
 
+import com.google.common.hash.HashCode;
 import com.itextpdf.kernel.geom.Rectangle;
 import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfIndirectReference;
 import com.itextpdf.kernel.pdf.PdfName;
 import com.itextpdf.kernel.pdf.PdfNumber;
 import com.itextpdf.kernel.pdf.PdfPage;
@@ -37,9 +31,13 @@ import com.itextpdf.kernel.pdf.canvas.parser.listener.SimpleTextExtractionStrate
 import com.itextpdf.kernel.pdf.canvas.parser.listener.TextMarginFinder;
 
 import gov.nsf.psm.documentcompliance.compliance.common.utility.Constants;
+import gov.nsf.psm.documentcompliance.compliance.common.utility.StageProfiler;
+import gov.nsf.psm.documentcompliance.compliance.pdf.BufferedEventListener;
 import gov.nsf.psm.documentcompliance.compliance.pdf.PdfExtractionListener;
+import gov.nsf.psm.documentcompliance.compliance.pdf.PdfMetadataScanner;
 import gov.nsf.psm.documentcompliance.compliance.pdf.TextRenderInfoListener;
 import gov.nsf.psm.documentcompliance.compliance.pdf.filter.TextEventFilter;
+import gov.nsf.psm.documentcompliance.service.DocumentPartCache;
 import gov.nsf.psm.documentcompliance.service.parameter.PdfParameters;
 import gov.nsf.psm.foundation.exception.CommonUtilException;
 import gov.nsf.psm.foundation.model.compliance.DocumentPart;
@@ -58,23 +56,48 @@ public class PdfModelBuilderUtils {
         // Private constructor
     }
 
-    public static DocumentPart getDocumentPart(PdfDocument doc, int pageNumber, PdfParameters params)
-            throws CommonUtilException {
+    // The stream digests are those of the document, kept across its pages for the page hash
+    public static DocumentPart getDocumentPart(PdfDocument doc, int pageNumber, PdfParameters params,
+            Map<PdfIndirectReference, HashCode> streamDigests) throws CommonUtilException {
+
+        DocumentPartCache documentPartCache = params.getDocumentPartCache();
+        String pageHash = null;
+        if (documentPartCache != null) {
+            try {
+                pageHash = PageHashUtils.getPageHash(doc.getPage(pageNumber), params, streamDigests);
+                DocumentPart cachedPart = documentPartCache.get(pageHash, pageNumber);
+                if (cachedPart != null) {
+                    LOGGER.debug("Page #" + pageNumber + " found in the page cache");
+                    return cachedPart;
+                }
+            } catch (Exception e) {
+                LOGGER.debug(e.getMessage(), e);
+                pageHash = null;
+            }
+        }
 
         boolean skipPage = false;
         TextMarginFinder finder = new TextMarginFinder();
-        PageModel page = null;
         PdfPage pdfPage = null;
         DocumentPart docPart = null;
         FilteredEventListener listener = new FilteredEventListener(finder, new TextEventFilter());
         TextRenderInfoListener textListener = null;
+        BufferedEventListener pageEvents = null;
         PdfCanvasProcessor parser = null;
 
         try {
             textListener = new TextRenderInfoListener(listener);
-            parser = new PdfCanvasProcessor(textListener);
+            textListener.setChunkEvents(params.getChunkEvents() != null && params.getChunkEvents());
+            if (params.getSinglePassExtraction() != null && params.getSinglePassExtraction()) {
+                pageEvents = new BufferedEventListener(textListener);
+                parser = new PdfCanvasProcessor(pageEvents);
+            } else {
+                parser = new PdfCanvasProcessor(textListener);
+            }
             pdfPage = doc.getPage(pageNumber);
-            parser.processPageContent(pdfPage);
+            try (StageProfiler.Stage stage = StageProfiler.stage(StageProfiler.STAGE_MARGIN, pageNumber)) {
+                parser.processPageContent(pdfPage);
+            }
         } catch (Exception e) {
             skipPage = true;
             LOGGER.debug("Page #" + pageNumber + " does not have any text");
@@ -86,7 +109,10 @@ public class PdfModelBuilderUtils {
                 PdfExtractionListener info = new PdfExtractionListener();
                 info.setFontDetectionIgnoreBlankSpaces(params.getFontDetectionIgnoreBlankSpaces());
                 info.setFontDetectionIgnoreSuperSubscript(params.getFontDetectionIgnoreSuperSubscript());
-                info.setSpecialCharacters(params.getSpecialCharacters());
+                info.setSpecialCharacterMatcher(params.getSpecialCharacterMatcher());
+                if (params.getLeadingPrecision() != null) {
+                    info.setLeadingPrecision(params.getLeadingPrecision());
+                }
                 info.setPageNumber(pageNumber);
                 info.setLastBlockCount(textListener.getBlockCount());
                 info.setAvgSingleSpaceWidth(textListener.getAverageSingleSpaceWidth());
@@ -95,59 +121,86 @@ public class PdfModelBuilderUtils {
                      info.setTextWidth(finder.getTextRectangle().getWidth());
                 }
 
-                LOGGER.debug("");
-                LOGGER.debug(Constants.DOUBLE_CODE_BLOCK_SEPARATOR + " Page No. " + pageNumber + " "
-                        + Constants.DOUBLE_CODE_BLOCK_SEPARATOR);
-                
-                parser = new PdfCanvasProcessor(info);
-                pdfPage = doc.getPage(pageNumber);
-                parser.processPageContent(pdfPage);
-                PdfExtractionListener infoProcessed = (PdfExtractionListener) parser.getEventListener();
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("");
+                    LOGGER.debug(Constants.DOUBLE_CODE_BLOCK_SEPARATOR + " Page No. " + pageNumber + " "
+                            + Constants.DOUBLE_CODE_BLOCK_SEPARATOR);
+                }
+
+                PdfExtractionListener infoProcessed = null;
 
                 // Set lines of Text
                 String pageText = null;
                 List<String> linesOfText = null;
                 List<LineModel> lines = null;
-                
-                LOGGER.debug("");
-                LOGGER.debug("Text");
-                LOGGER.debug(Constants.CODE_BLOCK_SEPARATOR);
-
-                if (params.getUseTextExtractor()) {
-                    // If this option is selected, a custom strategy
-                    // may be required for some pdfs
-                    pageText = PdfTextExtractor.getTextFromPage(pdfPage, new SimpleTextExtractionStrategy());
-                    linesOfText = PdfUtils.getTextLinesFromText(pageText);
-                } else {
-                    lines = infoProcessed.getLines();
-                    linesOfText = PdfUtils.getTextLinesFromLines(lines, true);
-                    
-                    // To avoid conversion issues, use lines of text rather than
-                    // text extraction
-                    pageText = PdfUtils.getTextFromTextLines(linesOfText);
+                try (StageProfiler.Stage stage = StageProfiler.stage(StageProfiler.STAGE_EXTRACTION, pageNumber)) {
+                    if (pageEvents != null) {
+                        // Page level values are known now, so the recorded events can be processed
+                        pageEvents.replay(info);
+                        infoProcessed = info;
+                    } else {
+                        parser = new PdfCanvasProcessor(info);
+                        pdfPage = doc.getPage(pageNumber);
+                        parser.processPageContent(pdfPage);
+                        infoProcessed = (PdfExtractionListener) parser.getEventListener();
+                    }
+
+                    if (params.getUseTextExtractor()) {
+                        // If this option is selected, a custom strategy
+                        // may be required for some pdfs
+                        if (pageEvents != null) {
+                            SimpleTextExtractionStrategy strategy = new SimpleTextExtractionStrategy();
+                            pageEvents.replay(strategy);
+                            pageText = strategy.getResultantText();
+                        } else {
+                            pageText = PdfTextExtractor.getTextFromPage(pdfPage, new SimpleTextExtractionStrategy());
+                        }
+                        linesOfText = PdfUtils.getTextLinesFromText(pageText);
+                    } else {
+                        lines = infoProcessed.getLines();
+                        linesOfText = PdfUtils.getTextLinesFromLines(lines, true);
+
+                        // To avoid conversion issues, use lines of text rather than
+                        // text extraction
+                        pageText = PdfUtils.getTextFromTextLines(linesOfText);
+                    }
                 }
-                
-                PdfNumber userUnit = pdfPage.getPdfObject().getAsNumber(PdfName.UserUnit); // Check for UserUnit
 
-                docPart = processDocumentPart(doc, infoProcessed, finder, linesOfText, pageText, pageNumber);
-                page = initOutput(docPart, finder, userUnit);
-                docPart.setPage(page);
+                initUserUnitCheck(pdfPage.getPdfObject().getAsNumber(PdfName.UserUnit)); // Check for UserUnit
+
+                try (StageProfiler.Stage stage = StageProfiler.stage(StageProfiler.STAGE_PAGE_MODEL, pageNumber)) {
+                    docPart = processDocumentPart(doc, infoProcessed, finder, linesOfText, pageText, pageNumber);
+                }
             } catch (Exception e) {
                 throw new CommonUtilException(e);
+            } finally {
+                if (pageEvents != null) {
+                    pageEvents.release();
+                }
             }
         }
 
+        if (pageHash != null && docPart != null) {
+            documentPartCache.put(pageHash, docPart);
+        }
+
         return docPart;
 
     }
     
     public static void displayPdfMetadataHeading() {
+        if (!LOGGER.isDebugEnabled()) {
+            return;
+        }
         LOGGER.debug("");
         LOGGER.debug("PDF Metadata");
         LOGGER.debug(Constants.CODE_BLOCK_SEPARATOR);
     }
 
     public static void displayPdfMetadata(PdfDocument doc) {
+        if (!LOGGER.isDebugEnabled()) {
+            return;
+        }
         LOGGER.debug("PDF Version: " + doc.getPdfVersion());
         LOGGER.debug("Number of pages: " + doc.getNumberOfPages());
         LOGGER.debug("Uses accessible (UA) format: "
@@ -166,6 +219,20 @@ public class PdfModelBuilderUtils {
                  && !doc.getDocumentInfo().getKeywords().isEmpty()?StringUtils.collectionToDelimitedString(Arrays.asList(doc.getDocumentInfo().getKeywords()),", "):"None detected"));
     }
 
+    public static void displayPdfMetadata(PdfMetadataScanner scanner) {
+        if (!LOGGER.isDebugEnabled()) {
+            return;
+        }
+        LOGGER.debug("PDF Version: " + scanner.getPdfVersion());
+        LOGGER.debug("Number of pages: " + scanner.getNumberOfPages());
+        LOGGER.debug("Uses accessible (UA) format: "
+                + (Double.parseDouble(PdfUtils.getPdfVersion(scanner.getPdfVersion().toString())) >= 1.7d ? "true"
+                        : "false"));
+        LOGGER.debug("Encrypted: false");
+        LOGGER.debug("Tagged: " + scanner.isTagged());
+        LOGGER.debug("Keywords: " + (!StringUtils.isEmpty(scanner.getKeywords()) ? scanner.getKeywords() : "None detected"));
+    }
+
     // Initialize model
     public static DocumentModel initDocumentModel(PdfDocument doc) {
         DocumentModel document = new DocumentModel();
@@ -178,6 +245,19 @@ public class PdfModelBuilderUtils {
         }
         return document;
     }
+
+    // Initialize model from the metadata scan, which only covers unencrypted documents
+    public static DocumentModel initDocumentModel(PdfMetadataScanner scanner) {
+        DocumentModel document = new DocumentModel();
+        document.setPasswordProtected(false);
+        document.setEncrypted(false);
+        document.setNoOfPages(scanner.getNumberOfPages());
+        document.setPdfVersion(String.valueOf(scanner.getPdfVersion()));
+        if (scanner.getProducer() != null) {
+            document.setProducer(scanner.getProducer());
+        }
+        return document;
+    }
     
     public static DocumentModel completeDocumentModel(DocumentModel document, List<PageModel> pages, List<SectionModel> sections) {
         document.setPages(pages);
@@ -200,11 +280,13 @@ public class PdfModelBuilderUtils {
         List<String> urls = PdfUtils.findAllLinks(doc.getPage(pageNumber).getPdfObject());
         PageModel page = null;
         DocumentPart docPart = new DocumentPart();
-        List<Float> nonBlankTextAscentLines = infoProcessed.getNonBlankTextAscentLines();
-        List<Float> nonBlankTextDescentLines = infoProcessed.getNonBlankTextDescentLines();
-        if (!nonBlankTextAscentLines.isEmpty() && !nonBlankTextDescentLines.isEmpty()) {
+        if (infoProcessed.getNonBlankTextCount() > 0) {
             try {
                 List<Double> leadingValues = PdfUtils.getPredominantLeading(infoProcessed);
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Leading distribution (pt=lines): " + (infoProcessed.getLeadingHistogram() != null
+                            ? infoProcessed.getLeadingHistogram().getDistribution() : "None"));
+                }
                 List<FontModel> allFonts = new ArrayList<>();
                 List<FontModel> unusedFonts = new ArrayList<>();
                 PdfUtils.processResource(allFonts, doc.getPage(pageNumber).getResources().getPdfObject());
@@ -220,11 +302,20 @@ public class PdfModelBuilderUtils {
                     urls = nonLinkUrls;
                 }
                 page.setUrls(urls);
-                page.setTextFonts(infoProcessedWithFont.getFonts());
+                List<FontModel> textFonts = infoProcessedWithFont.getFonts();
+                if (textFonts != null) {
+                    Collections.sort(textFonts, new Comparator<FontModel>() {
+                        @Override
+                        public int compare(FontModel f1, FontModel f2) {
+                            return f1.getName().compareTo(f2.getName());
+                        }
+                    });
+                }
+                page.setTextFonts(textFonts);
                 page.setNonTextFonts(unusedFonts);
                 page.setSuperscriptLines(infoProcessedWithFont.getSuperscriptLines());
                 page.setTextLines(linesOfText);
-                page.setNoOfTextChars(infoProcessed.getTotalCharacterCount());
+                page.setNoOfTextChars(getTextCharacterCount(textFonts)); // More accurate than a regex expression
                 page.setNoOfTextCharsiText(pageText.chars().count());
                 page.setImages(infoProcessedWithFont.getImages());
                 page.setSubscriptLines(infoProcessedWithFont.getSubscriptLines());
@@ -242,159 +333,120 @@ public class PdfModelBuilderUtils {
             page.setWidth(rect.getWidth());
             page.setHeight(rect.getHeight());
             page.setImages(infoProcessed.getImages());
+            page.setNoOfTextChars(0L);
             docPart.setPage(page);
             docPart.setSectionHeadings(new ArrayList<SectionModel>());
             LOGGER.debug("None");
         }
-        if(LOGGER.isDebugEnabled()) {
-            for(String line: linesOfText) {
-                LOGGER.debug(line);
+        if (LOGGER.isTraceEnabled()) {
+            for (String line : linesOfText) {
+                LOGGER.trace(line);
             }
         }
         return docPart;
     }
 
-    // Logger output routine
-    public static PageModel initOutput(DocumentPart part, TextMarginFinder finder, PdfNumber userUnit) {
-
-        PageModel page = part.getPage();
-        String addIn = " pt";
-        LOGGER.debug("");
-        LOGGER.debug("Data");
-        LOGGER.debug(Constants.CODE_BLOCK_SEPARATOR);
-        LOGGER.debug("Page Width : " + page.getWidth() + " pt");
-        LOGGER.debug("Page Height : " + page.getHeight() + " pt");       
-        LOGGER.debug("Predominant Leading : " + (page.getLeadingValues() != null && !page.getLeadingValues().isEmpty()
-                ? page.getLeadingValues().get(0) + " pt"
-                : "None"));
-        if (page.getTextFonts() != null) {
-            LOGGER.debug("Text Width : " + finder.getTextRectangle().getWidth());
-            LOGGER.debug("Text Height : " + finder.getTextRectangle().getHeight());
-            LOGGER.debug("Type Density (avg) : " + PdfUtils.getAverageTypeDensity(page.getLines()) + " characters/inch");
-            LOGGER.debug("Left Margin : " + page.getMargin().getMarginLeft() + addIn);
-            LOGGER.debug("Right Margin : " + page.getMargin().getMarginRight() + addIn);
-            LOGGER.debug("Top Margin : " + page.getMargin().getMarginTop() + addIn);
-            LOGGER.debug("Bottom Margin : " + page.getMargin().getMarginBottom() + addIn);
-            LOGGER.debug("No of Text Lines Read: " + page.getLines().size());
-            LOGGER.debug("Columns Detected: " + PdfUtils.getColumnsPresent(page.getLines()));
-            LOGGER.debug("Heading Candidates Detected: "
-                    + (part.getSectionHeadings() == null || part.getSectionHeadings().isEmpty() ? "None"
-                            : StringUtils.collectionToDelimitedString(
-                                    PdfUtils.getHeadingList(part.getSectionHeadings()), "; ")));
-        }
-        LOGGER.debug("No of Text Characters Read: " + page.getNoOfTextChars());
-        LOGGER.debug("No of Text Characters Read by iText: " + page.getNoOfTextCharsiText());
-        StringBuilder fontList = new StringBuilder("Text Fonts : ");
+    // Characters of the text fonts
+    public static long getTextCharacterCount(List<FontModel> textFonts) {
         long charCount = 0;
-        if (page.getTextFonts() != null && !page.getTextFonts().isEmpty()) {
-            Collections.sort(page.getTextFonts(), new Comparator<FontModel>() {
-                @Override
-                public int compare(FontModel f1, FontModel f2) {
-                    return f1.getName().compareTo(f2.getName());
-                }
-            });
-            for (FontModel font : page.getTextFonts()) {
+        if (textFonts != null) {
+            for (FontModel font : textFonts) {
                 charCount += font.getNoOfChars();
-                initFontOutput(fontList, font);
             }
         }
-        page.setNoOfTextChars(charCount); // More accurate then relying on a
-                                          // regex expression
-        initUserUnitCheck(userUnit);
-        showFontImageUrlOutput(page, fontList);
-        return page;
-
+        return charCount;
     }
 
-    public static StringBuilder addFontPercentage(PageModel page, int freq, long occurrenceCount, long noOfChars) {
-        StringBuilder fontPercentList = new StringBuilder();
-        if (occurrenceCount == freq) {
-            fontPercentList.append(" (");
-            DecimalFormat df = new DecimalFormat("#.#####");
-            df.setRoundingMode(RoundingMode.HALF_DOWN);
-            double percent = ((double) noOfChars / page.getNoOfTextChars()) * 100;
-            fontPercentList.append(df.format(percent) + "%");
-            fontPercentList.append("); ");
+    // Structured diagnostics for one page, only built when the request is reported on
+    public static Map<String, Object> getPageDiagnostics(int pageNumber, DocumentPart part) {
+        PageModel page = part.getPage();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("pageNumber", pageNumber);
+        result.put("width", page.getWidth());
+        result.put("height", page.getHeight());
+        result.put("predominantLeading", page.getLeadingValues() != null && !page.getLeadingValues().isEmpty()
+                ? page.getLeadingValues().get(0) : null);
+        if (page.getTextFonts() != null && page.getMargin() != null) {
+            Map<String, Object> margins = new LinkedHashMap<>();
+            margins.put("left", page.getMargin().getMarginLeft());
+            margins.put("right", page.getMargin().getMarginRight());
+            margins.put("top", page.getMargin().getMarginTop());
+            margins.put("bottom", page.getMargin().getMarginBottom());
+            result.put("margins", margins);
         }
-        return fontPercentList;
-    }
-
-    @SuppressWarnings({ "squid:S00117" })
-    public static StringBuilder createFontPercentList(PageModel page) {
-        long noOfChars = 0;
-        int freq = 0;
-        StringBuilder fontPercentList = new StringBuilder("Text Fonts (Percentage of Total Characters): ");
-        for (FontModel font : page.getTextFonts()) {
-            if (fontPercentList.indexOf(font.getName()) < 0) {
-                fontPercentList.append(font.getName());
-                noOfChars = font.getNoOfChars();
-                freq = 1;
-            } else {
-                noOfChars = noOfChars + font.getNoOfChars();
-                freq++;
-            }
-            long occurrenceCount = page.getTextFonts().stream()
-                    .filter(FontModel -> font.getName().equals(FontModel.getName())).count();
-            fontPercentList.append(addFontPercentage(page, freq, occurrenceCount, noOfChars).toString());
+        if (page.getLines() != null && !page.getLines().isEmpty()) {
+            result.put("textLines", page.getLines().size());
+            result.put("typeDensity", PdfUtils.getAverageTypeDensity(page.getLines()));
+            result.put("columns", PdfUtils.getColumnsPresent(page.getLines()));
         }
-        return fontPercentList;
-    }
-
-    public static void showFontImageUrlOutput(PageModel page, StringBuilder fontList) {
-
+        if (part.getSectionHeadings() != null && !part.getSectionHeadings().isEmpty()) {
+            result.put("headings", PdfUtils.getHeadingList(part.getSectionHeadings()));
+        }
+        result.put("textChars", page.getNoOfTextChars());
+        result.put("textCharsiText", page.getNoOfTextCharsiText());
         if (page.getNoOfTextChars() > 0) {
-            int superScriptCount = page.getSuperscriptLines() != null ? page.getSuperscriptLines().size() : 0;
-            int subScriptCount = page.getSubscriptLines() != null ? page.getSubscriptLines().size() : 0;
-            StringBuilder fontPercentList = createFontPercentList(page);
-            if (superScriptCount > 0) {
-                StringBuilder bldr = PdfUtils.getSuperscriptLines(page);
-                LOGGER.debug("Superscript line (count): " + bldr.toString().substring(0, bldr.toString().length() - 2));
-            }
-            if (subScriptCount > 0) {
-                StringBuilder bldr = PdfUtils.getSubscriptLines(page);
-                LOGGER.debug("Subscript line (count): " + bldr.toString().substring(0, bldr.toString().length() - 2));
-            }
-            LOGGER.debug(fontList.toString().substring(0, fontList.toString().length() - 2));
-            LOGGER.debug(fontPercentList.toString().substring(0, fontPercentList.toString().length() - 2));
-            StringBuilder unusedFontList = new StringBuilder("Non-Text Fonts : ");
+            result.put("textFonts", getFontDiagnostics(page.getTextFonts()));
+            result.put("fontPercentages", getFontPercentages(page));
+            result.put("superscriptLines", PdfUtils.getLineCounts(page.getSuperscriptLines()));
+            result.put("subscriptLines", PdfUtils.getLineCounts(page.getSubscriptLines()));
+            List<String> nonTextFonts = new ArrayList<>();
             for (FontModel font : page.getNonTextFonts()) {
-                unusedFontList.append(font.getName());
-                unusedFontList.append("; ");
+                nonTextFonts.add(font.getName());
             }
-            LOGGER.debug(page.getNonTextFonts().isEmpty() ? unusedFontList.append("None").toString()
-                    : unusedFontList.toString().substring(0, unusedFontList.toString().length() - 2));
+            result.put("nonTextFonts", nonTextFonts);
         }
+        result.put("images", getImageDiagnostics(page.getImages()));
+        result.put("urls", page.getUrls());
+        return result;
+    }
 
-        showImageOutput(page);
-
-        showURLOutput(page);
-
-        if (page.getNoOfTextChars() > 0 && fontList.toString().indexOf('*') > -1) {
-            LOGGER.debug("");
-            LOGGER.debug("*Point sizes for this font may not be accurate.  Abnormally large sizes may indicate a watermark");
+    // Share of the page characters per font name, in one pass over the fonts
+    public static Map<String, Double> getFontPercentages(PageModel page) {
+        Map<String, Long> charsByName = new LinkedHashMap<>();
+        for (FontModel font : page.getTextFonts()) {
+            charsByName.merge(font.getName(), font.getNoOfChars(), Long::sum);
+        }
+        Map<String, Double> fontPercentages = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : charsByName.entrySet()) {
+            double percent = ((double) entry.getValue() / page.getNoOfTextChars()) * 100;
+            fontPercentages.put(entry.getKey(),
+                    BigDecimal.valueOf(percent).setScale(5, RoundingMode.HALF_DOWN).doubleValue());
         }
+        return fontPercentages;
     }
 
-    public static void showImageOutput(PageModel page) {
-        if (!page.getImages().isEmpty()) {
-            LOGGER.debug("Image count = " + page.getImages().size());
-            LOGGER.debug("Images:");
-            int l = 0;
-            for (ImageModel img : page.getImages()) {
-                l++;
-                LOGGER.debug("    " + l + ") Filter = " + img.getFilterUsed() + "; Size = " + img.getSize() + " bytes"
-                        + "; Height = " + img.getHeight() + " pixels ; Width = " + img.getWidth()
-                        + " pixels: Bit Type = " + img.getBitType() + "; X Coordinate = " + img.getXCoordinate()
-                        + " pt; Y Coordinate = " + img.getYCoordinate() + " pt");
-            }
+    private static List<Map<String, Object>> getFontDiagnostics(List<FontModel> fonts) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (FontModel font : fonts) {
+            Map<String, Object> fontResult = new LinkedHashMap<>();
+            fontResult.put("name", font.getName());
+            fontResult.put("embedded", font.isEmbedded());
+            fontResult.put("type", font.getType());
+            fontResult.put("size", ((int) font.getSize()) < 1 ? null : font.getSize());
+            // Point sizes of a missing font may not be accurate, and abnormally large ones may be a watermark
+            fontResult.put("sizeUncertain", font.getCompatibleLibraryAvailableOnServer()
+                    == FontModel.LIBRARY_AVAILABLE_FALSE && !font.isEmbedded());
+            result.add(fontResult);
         }
+        return result;
     }
 
-    public static void showURLOutput(PageModel page) {
-        if (page.getUrls() != null && !page.getUrls().isEmpty()) {
-            LOGGER.debug("URLs = " + page.getUrls().toString().replaceAll("\\[|\\]|[,][ ]", "; ")
-                    .substring(1, page.getUrls().toString().length()).trim());
+    private static List<Map<String, Object>> getImageDiagnostics(List<ImageModel> images) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        if (images != null) {
+            for (ImageModel img : images) {
+                Map<String, Object> imageResult = new LinkedHashMap<>();
+                imageResult.put("filter", img.getFilterUsed());
+                imageResult.put("size", img.getSize());
+                imageResult.put("height", img.getHeight());
+                imageResult.put("width", img.getWidth());
+                imageResult.put("bitType", img.getBitType());
+                imageResult.put("x", img.getXCoordinate());
+                imageResult.put("y", img.getYCoordinate());
+                result.add(imageResult);
+            }
         }
+        return result;
     }
 
     public static void cleanUpFileObjects(PdfReader reader, InputStream inputStream) throws CommonUtilException {
@@ -409,34 +461,15 @@ public class PdfModelBuilderUtils {
     }
     
     public static String getXmpTagValue(PdfDocument doc, String tagName) {
-        
-        try {
-            byte[] xmlMetadata = doc.getXmpMetadata();
-            if(xmlMetadata != null) {
-                String xmlMetadataStr = new String(doc.getXmpMetadata());
-                DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-                dbf.setFeature(Constants.XML_SCRIPT_INJECTION_PREVENTION_FEATURE, true);
-                dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-                DocumentBuilder db = dbf.newDocumentBuilder();
-                Document xmlDoc = db.parse(new InputSource(new StringReader(xmlMetadataStr)));
-                NodeList nodes = xmlDoc.getElementsByTagName(tagName);
-                if(nodes.getLength() > 0 
-                      && !StringUtils.isEmpty(nodes.item(0).getTextContent())) {
-                           return nodes.item(0).getTextContent().trim();
-                } else {
-                    return "";
-                }
-            } else {
-                return "";
-            }
-        } catch (SAXException | IOException | ParserConfigurationException e) {
-            LOGGER.debug(e.getMessage(), e);
-            return "";
-        }
+        String value = XmpUtils.getPropertyValue(XmpUtils.decode(doc.getXmpMetadata()), tagName);
+        return value != null ? value.trim() : "";
     }
     
     public static int initDocumentMetadataOutput(String fileName, PdfDocument doc, long sizeInBytes, float fileSize) {
         int noOfPages = doc.getNumberOfPages();
+        if (!LOGGER.isDebugEnabled()) {
+            return noOfPages;
+        }
         LOGGER.debug("File name: " + fileName);
         LOGGER.debug("Actual size (bytes): " + sizeInBytes);
         LOGGER.debug("Calculated size (MB): " + fileSize);
@@ -448,8 +481,27 @@ public class PdfModelBuilderUtils {
         LOGGER.debug("PDF/A: " + !StringUtils.isEmpty(getXmpTagValue(doc, Constants.XMP_METADATA_PDFA_TAG)));
         return noOfPages;
     }
+
+    public static int initDocumentMetadataOutput(String fileName, PdfMetadataScanner scanner, long sizeInBytes,
+            float fileSize) {
+        int noOfPages = scanner.getNumberOfPages();
+        if (!LOGGER.isDebugEnabled()) {
+            return noOfPages;
+        }
+        LOGGER.debug("File name: " + fileName);
+        LOGGER.debug("Actual size (bytes): " + sizeInBytes);
+        LOGGER.debug("Calculated size (MB): " + fileSize);
+        LOGGER.debug("No. of pages: " + noOfPages);
+        LOGGER.debug("Author: " + (!StringUtils.isEmpty(scanner.getAuthor())?scanner.getAuthor():Constants.LOGGING_EMPTY_DATA_PLACEHOLDER));
+        LOGGER.debug("Title: " + (!StringUtils.isEmpty(scanner.getTitle())?scanner.getTitle():Constants.LOGGING_EMPTY_DATA_PLACEHOLDER));
+        LOGGER.debug("PDF/A: " + !StringUtils.isEmpty(scanner.getPdfAConformance()));
+        return noOfPages;
+    }
     
     public static void displayFileSourceOutput(DocumentModel document) {
+        if (!LOGGER.isDebugEnabled()) {
+            return;
+        }
         LOGGER.debug("File producer: "
                 + (!StringUtils.isEmpty(document.getProducer()) ? document.getProducer() : Constants.LOGGING_EMPTY_DATA_PLACEHOLDER));
         LOGGER.debug("PDF version: " + document.getPdfVersion());
@@ -462,9 +514,15 @@ public class PdfModelBuilderUtils {
         LOGGER.debug("Blank spaces ignored: " + params.getFontDetectionIgnoreBlankSpaces());
         LOGGER.debug(
                 "Superscript and subscript font sizes ignored: " + params.getFontDetectionIgnoreSuperSubscript());
-        LOGGER.debug("Ignored special character codes (regex): " + params.getSpecialCharacters());
+        LOGGER.debug("Ignored special character codes (regex): " + params.getSpecialCharacters()
+                + (params.getSpecialCharacterMatcher().isCharacterClass() ? " (character table)" : ""));
         LOGGER.debug("Font family filters: " + (params.getFontMap() != null && !params.getFontMap().isEmpty()?StringUtils.collectionToDelimitedString(Arrays.asList(params.getFontMap().keySet().toArray()),", "):""));
         LOGGER.debug("Logging text extraction from listener: " + !params.getUseTextExtractor());
+        LOGGER.debug("Single pass page extraction: " + params.getSinglePassExtraction());
+        LOGGER.debug("Chunk level text margin events: " + params.getChunkEvents());
+        LOGGER.debug("Leading precision: " + params.getLeadingPrecision() + " pt");
+        LOGGER.debug("Page extraction workers (max): " + params.getExtractionParallelism());
+        LOGGER.debug("Page selection: " + (params.getPageSelection() != null ? params.getPageSelection() : "All pages"));
     }
     
     public static void displayBeginParsingMessage() {
@@ -483,20 +541,8 @@ public class PdfModelBuilderUtils {
         LOGGER.debug("");
     }
     
-    private static void initFontOutput(StringBuilder fontList, FontModel font) {
-        fontList.append(font.getName());
-        if (font.getCompatibleLibraryAvailableOnServer() == FontModel.LIBRARY_AVAILABLE_FALSE
-                && !font.isEmbedded())
-            fontList.append("* ");
-        fontList.append(" (");
-        fontList.append((font.isEmbedded() ? "Embedded" : "Non-Embedded")
-                + (StringUtils.isEmpty(font.getType()) ? "" : " " + font.getType()) + ": "
-                + (((int) font.getSize()) < 1 ? " Font size cannot be determined" : font.getSize() + " pt"));
-        fontList.append("); ");
-    }
-    
     private static void initUserUnitCheck(PdfNumber userUnit) {
-        if(userUnit != null) {
+        if (userUnit != null && LOGGER.isDebugEnabled()) {
             LOGGER.debug("User Unit (Not Supported): " + userUnit.floatValue());
         }
     }
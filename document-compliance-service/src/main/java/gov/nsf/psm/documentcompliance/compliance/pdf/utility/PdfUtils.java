@@ -1,15 +1,13 @@
 package gov.nsf.psm.documentcompliance.compliance.pdf.utility;
 
-import java.awt.Font;
-import java.awt.GraphicsEnvironment;
 import java.io.IOException;
-import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -19,8 +17,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.util.StringUtils;
 
 import com.google.common.base.Joiner;
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimap;
 import com.google.common.io.Files;
 import com.itextpdf.kernel.geom.Matrix;
 import com.itextpdf.kernel.geom.Rectangle;
@@ -124,8 +120,6 @@ public class PdfUtils {
 
     // Handle font type information
     public static FontModel checkFont(FontModel font, PdfDictionary fontDict) {
-        GraphicsEnvironment e = GraphicsEnvironment.getLocalGraphicsEnvironment();
-        Font[] allFonts = e.getAllFonts();
         PdfDictionary desc = fontDict.getAsDictionary(PdfName.FontDescriptor);
         if (desc == null) {
             font.setHasFontDescriptor(false);
@@ -143,19 +137,7 @@ public class PdfUtils {
             font.setEmbedded(true);
         }
         if (!font.isHasFontDescriptor()) {
-            boolean hasLibrary = false;
-            for (Font f : allFonts) {
-                String internalLibName = f.getFontName().trim();
-                String internalPSLibName = f.getPSName().trim();
-                internalLibName = internalLibName.replaceAll(" ", "").replaceAll("-", "");
-                internalPSLibName = internalPSLibName.replaceAll(" ", "").replaceAll("-", "");
-                String compareName = font.getName();
-                compareName = compareName.replaceAll(" ", "").replaceAll("-", "");
-                if (compareName.equalsIgnoreCase(internalLibName) || compareName.equalsIgnoreCase(internalPSLibName)) {
-                    hasLibrary = true;
-                }
-            }
-            if (hasLibrary) {
+            if (SystemFontIndex.contains(font.getName())) {
                 font.setCompatibleLibraryAvailableOnServer(FontModel.LIBRARY_AVAILABLE_TRUE);
             } else {
                 font.setCompatibleLibraryAvailableOnServer(FontModel.LIBRARY_AVAILABLE_FALSE);
@@ -229,24 +211,10 @@ public class PdfUtils {
     }
 
     public static List<Double> getPredominantLeading(PdfExtractionListener info) {
-        List<Double> predominantLeadingValues = new ArrayList<>();
-        List<Double> uniqueLeadingValues = info.getLeadingValues();
-        Multimap<Integer, Double> frequencyMap = HashMultimap.create();
-        Collections.sort(uniqueLeadingValues);
-        Iterator<Double> iter = uniqueLeadingValues.iterator();
-        int freq = 0;
-        while (iter.hasNext()) {
-            Double leading = iter.next();
-            LineModel line = new LineModel();
-            line.setLeading(leading);
-            freq = Collections.frequency(info.getLines(), line);
-            frequencyMap.put(freq, leading);
-        }
-        if (frequencyMap.size() > 0) {
-            int max = Collections.max(frequencyMap.keySet());
-            predominantLeadingValues.addAll(frequencyMap.get(max));
+        if (info.getLeadingHistogram() == null) {
+            return new ArrayList<>();
         }
-        return predominantLeadingValues;
+        return info.getLeadingHistogram().getPredominantValues();
     }
 
     public static List<String> findAllTextUrls(String text) {
@@ -352,28 +320,15 @@ public class PdfUtils {
         return trimmed.isEmpty() ? 0 : trimmed.split("\\s+").length;
     }
 
-    public static StringBuilder getSuperscriptLines(PageModel page) {
-        StringBuilder bldr = new StringBuilder();
-        for (LineModel line : page.getSuperscriptLines()) {
-            long numberOfOccurences = page.getSuperscriptLines().stream()
-                    .filter(number -> number.getNumber() == line.getNumber()).count();
-            String lineStr = line.getNumber() + " (" + numberOfOccurences + "); ";
-            if (bldr.indexOf(lineStr) < 0)
-                bldr.append(lineStr);
-        }
-        return bldr;
-    }
-
-    public static StringBuilder getSubscriptLines(PageModel page) {
-        StringBuilder bldr = new StringBuilder();
-        for (LineModel line : page.getSubscriptLines()) {
-            long numberOfOccurences = page.getSubscriptLines().stream()
-                    .filter(number -> number.getNumber() == line.getNumber()).count();
-            String lineStr = line.getNumber() + " (" + numberOfOccurences + "); ";
-            if (bldr.indexOf(lineStr) < 0)
-                bldr.append(lineStr);
+    // Occurrences per line number, in order of first occurrence
+    public static Map<Integer, Integer> getLineCounts(List<LineModel> lines) {
+        Map<Integer, Integer> lineCounts = new LinkedHashMap<>();
+        if (lines != null) {
+            for (LineModel line : lines) {
+                lineCounts.merge(line.getNumber(), 1, Integer::sum);
+            }
         }
-        return bldr;
+        return lineCounts;
     }
 
     public static String correctFileName(String fileName) throws CommonUtilException {
@@ -422,22 +377,21 @@ public class PdfUtils {
 
     public static float getFontSize(TextRenderInfo renderInfo) {
         float fontSize = renderInfo.getTextMatrix().get(Matrix.I11); // Check for TM value
-        float ctmValue = renderInfo.getGraphicsState().getCtm().get(Matrix.I11);
-        float ctmCheckValue = renderInfo.getGraphicsState().getCtm().get(Matrix.I22);
-        BigDecimal ctmValueDec = BigDecimal.valueOf(ctmValue);
-        BigDecimal ctmCheckValueDec = BigDecimal.valueOf(ctmCheckValue);
-        BigDecimal fontSizeDec = BigDecimal.valueOf(Math.round(fontSize));
-        if(ctmValueDec.compareTo(ctmCheckValueDec) == 0 && fontSizeDec.compareTo(BigDecimal.ONE) <= 0) { // Correct for situation where transformation value is misplaced
+        Matrix ctm = renderInfo.getGraphicsState().getCtm();
+        float ctmValue = ctm.get(Matrix.I11);
+        float ctmCheckValue = ctm.get(Matrix.I22);
+        boolean applyCtmValue = ctmValue > 0 && ctmValue <= 1;
+        boolean isUnitFontSize = Math.round(fontSize) <= 1;
+        if(ctmValue == ctmCheckValue && isUnitFontSize) { // Correct for situation where transformation value is misplaced
             ctmValue = fontSize;
         }
-        if (fontSizeDec.compareTo(BigDecimal.ONE) <= 0) { // Get TF value if TM equals 1
+        if (isUnitFontSize) { // Get TF value if TM equals 1
             fontSize = renderInfo.getFontSize();
         }
-        fontSizeDec = BigDecimal.valueOf(Math.round(fontSize)); // Check again in case of rotation for some producers
-        if (fontSizeDec.compareTo(BigDecimal.ONE) <= 0) {
+        if (Math.round(fontSize) <= 1) { // Check again in case of rotation for some producers
             fontSize = renderInfo.getTextMatrix().get(Matrix.I12);
         }
-        if(ctmValueDec.compareTo(BigDecimal.ZERO) >= 1 && ctmValueDec.compareTo(BigDecimal.ONE) <= 0) {
+        if(applyCtmValue) {
             fontSize = ctmValue * fontSize; // Apply a CM transformation, if available
         }
         return fontSize;
@@ -451,12 +405,11 @@ public class PdfUtils {
     }
     
     public static boolean characterMatches(String specialCharacters, String input) {
-        Pattern p = Pattern.compile(specialCharacters);
-        Matcher m = p.matcher(input);
-        if (m.find()) {
-            return true;
-        }
-        return false;
+        return CharacterMatcher.compile(specialCharacters).matches(input);
+    }
+
+    public static boolean characterMatches(CharacterMatcher specialCharacterMatcher, String input) {
+        return specialCharacterMatcher.matches(input);
     }
     
     public static double getLineSpacing(double leading, double fontSize) {
@@ -0,0 +1,63 @@
+package gov.nsf.psm.documentcompliance.compliance.pdf.utility;
+
+import java.awt.Font;
+import java.awt.GraphicsEnvironment;
+import java.util.Locale;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableSet;
+
+/*
+ * Normalized names of the fonts installed on the server, built once and swapped as a whole
+ * on refresh
+ */
+public class SystemFontIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SystemFontIndex.class);
+
+    private static volatile Set<String> fontNames = null;
+
+    private SystemFontIndex() {
+        // Private constructor
+    }
+
+    public static void refresh() {
+        ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+        Font[] allFonts = GraphicsEnvironment.getLocalGraphicsEnvironment().getAllFonts();
+        for (Font f : allFonts) {
+            builder.add(normalize(f.getFontName()));
+            builder.add(normalize(f.getPSName()));
+        }
+        fontNames = builder.build();
+        LOGGER.info("System font index: " + allFonts.length + " fonts, " + fontNames.size() + " names");
+    }
+
+    public static boolean contains(String fontName) {
+        Set<String> names = fontNames;
+        if (names == null) {
+            synchronized (SystemFontIndex.class) {
+                if (fontNames == null) {
+                    refresh();
+                }
+                names = fontNames;
+            }
+        }
+        return names.contains(normalize(fontName));
+    }
+
+    // Names match regardless of case, spaces and hyphens
+    public static String normalize(String fontName) {
+        StringBuilder normalized = new StringBuilder(fontName.length());
+        for (int i = 0; i < fontName.length(); i++) {
+            char c = fontName.charAt(i);
+            if (c != ' ' && c != '-' && !Character.isWhitespace(c)) {
+                normalized.append(c);
+            }
+        }
+        return normalized.toString().toLowerCase(Locale.ROOT);
+    }
+
+}
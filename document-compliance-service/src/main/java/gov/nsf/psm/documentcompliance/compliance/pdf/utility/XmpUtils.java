@@ -0,0 +1,210 @@
+package gov.nsf.psm.documentcompliance.compliance.pdf.utility;
+
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Reads simple properties out of an XMP packet by scanning its text, which is all the
+ * metadata output needs and avoids building a DOM for every upload
+ */
+public class XmpUtils {
+
+    private static final String NAMESPACE_DECLARATION = "xmlns:";
+
+    private XmpUtils() {
+        // Private constructor
+    }
+
+    public static String decode(byte[] xmpMetadata) {
+        if (xmpMetadata == null) {
+            return null;
+        }
+        int length = xmpMetadata.length;
+        if (length >= 2 && (xmpMetadata[0] & 0xff) == 0xfe && (xmpMetadata[1] & 0xff) == 0xff) {
+            return new String(xmpMetadata, 2, length - 2, StandardCharsets.UTF_16BE);
+        }
+        if (length >= 2 && (xmpMetadata[0] & 0xff) == 0xff && (xmpMetadata[1] & 0xff) == 0xfe) {
+            return new String(xmpMetadata, 2, length - 2, StandardCharsets.UTF_16LE);
+        }
+        if (length >= 3 && (xmpMetadata[0] & 0xff) == 0xef && (xmpMetadata[1] & 0xff) == 0xbb
+                && (xmpMetadata[2] & 0xff) == 0xbf) {
+            return new String(xmpMetadata, 3, length - 3, StandardCharsets.UTF_8);
+        }
+        return new String(xmpMetadata, StandardCharsets.UTF_8);
+    }
+
+    // Value of the property written with the given prefix, as an element or as an attribute
+    public static String getPropertyValue(String xmp, String qualifiedName) {
+        if (xmp == null) {
+            return null;
+        }
+        String value = getElementValue(xmp, qualifiedName);
+        if (value == null) {
+            value = getAttributeValue(xmp, qualifiedName);
+        }
+        return value;
+    }
+
+    // Value of the property in the given namespace, whatever prefix the packet binds it to
+    public static String getPropertyValue(String xmp, String namespaceUri, String localName) {
+        if (xmp == null) {
+            return null;
+        }
+        int idx = xmp.indexOf(NAMESPACE_DECLARATION);
+        while (idx > -1) {
+            int nameStart = idx + NAMESPACE_DECLARATION.length();
+            int equals = xmp.indexOf('=', nameStart);
+            if (equals < 0) {
+                break;
+            }
+            String prefix = xmp.substring(nameStart, equals).trim();
+            String uri = getQuotedValue(xmp, equals + 1);
+            if (namespaceUri.equals(uri)) {
+                String value = getPropertyValue(xmp, prefix + ":" + localName);
+                if (value != null) {
+                    return value;
+                }
+            }
+            idx = xmp.indexOf(NAMESPACE_DECLARATION, equals);
+        }
+        return null;
+    }
+
+    private static String getElementValue(String xmp, String qualifiedName) {
+        String startTag = "<" + qualifiedName;
+        int idx = xmp.indexOf(startTag);
+        while (idx > -1) {
+            int after = idx + startTag.length();
+            if (after < xmp.length() && isTagNameEnd(xmp.charAt(after))) {
+                int tagEnd = xmp.indexOf('>', after);
+                if (tagEnd < 0) {
+                    return null;
+                }
+                if (xmp.charAt(tagEnd - 1) == '/') {
+                    return "";
+                }
+                int endTag = xmp.indexOf("</" + qualifiedName, tagEnd);
+                if (endTag < 0) {
+                    return null;
+                }
+                return unescape(stripTags(xmp.substring(tagEnd + 1, endTag)));
+            }
+            idx = xmp.indexOf(startTag, after);
+        }
+        return null;
+    }
+
+    private static String getAttributeValue(String xmp, String qualifiedName) {
+        int idx = xmp.indexOf(qualifiedName);
+        while (idx > -1) {
+            int after = idx + qualifiedName.length();
+            if (idx > 0 && Character.isWhitespace(xmp.charAt(idx - 1))) {
+                int pos = skipWhitespace(xmp, after);
+                if (pos < xmp.length() && xmp.charAt(pos) == '=') {
+                    String value = getQuotedValue(xmp, pos + 1);
+                    if (value != null) {
+                        return unescape(value);
+                    }
+                }
+            }
+            idx = xmp.indexOf(qualifiedName, after);
+        }
+        return null;
+    }
+
+    private static String getQuotedValue(String xmp, int from) {
+        int pos = skipWhitespace(xmp, from);
+        if (pos >= xmp.length()) {
+            return null;
+        }
+        char quote = xmp.charAt(pos);
+        if (quote != '"' && quote != '\'') {
+            return null;
+        }
+        int end = xmp.indexOf(quote, pos + 1);
+        return end < 0 ? null : xmp.substring(pos + 1, end);
+    }
+
+    private static int skipWhitespace(String xmp, int from) {
+        int pos = from;
+        while (pos < xmp.length() && Character.isWhitespace(xmp.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean isTagNameEnd(char c) {
+        return c == '>' || c == '/' || Character.isWhitespace(c);
+    }
+
+    // Text content of the element, nested markup removed
+    private static String stripTags(String content) {
+        if (content.indexOf('<') < 0) {
+            return content;
+        }
+        StringBuilder text = new StringBuilder(content.length());
+        boolean inTag = false;
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (c == '<') {
+                inTag = true;
+            } else if (c == '>') {
+                inTag = false;
+            } else if (!inTag) {
+                text.append(c);
+            }
+        }
+        return text.toString();
+    }
+
+    private static String unescape(String value) {
+        int amp = value.indexOf('&');
+        if (amp < 0) {
+            return value;
+        }
+        StringBuilder text = new StringBuilder(value.length());
+        int pos = 0;
+        while (amp > -1) {
+            int semicolon = value.indexOf(';', amp);
+            if (semicolon < 0) {
+                break;
+            }
+            text.append(value, pos, amp);
+            String entity = value.substring(amp + 1, semicolon);
+            String replacement = getEntityValue(entity);
+            text.append(replacement != null ? replacement : value.substring(amp, semicolon + 1));
+            pos = semicolon + 1;
+            amp = value.indexOf('&', pos);
+        }
+        text.append(value, pos, value.length());
+        return text.toString();
+    }
+
+    private static String getEntityValue(String entity) {
+        switch (entity) {
+        case "lt":
+            return "<";
+        case "gt":
+            return ">";
+        case "amp":
+            return "&";
+        case "quot":
+            return "\"";
+        case "apos":
+            return "'";
+        default:
+            break;
+        }
+        try {
+            if (entity.startsWith("#x") || entity.startsWith("#X")) {
+                return new String(Character.toChars(Integer.parseInt(entity.substring(2), 16)));
+            }
+            if (entity.startsWith("#")) {
+                return new String(Character.toChars(Integer.parseInt(entity.substring(1))));
+            }
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return null;
+    }
+
+}
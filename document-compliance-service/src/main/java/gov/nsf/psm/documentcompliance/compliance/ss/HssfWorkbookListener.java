@@ -0,0 +1,341 @@
+package gov.nsf.psm.documentcompliance.compliance.ss;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.poi.ddf.EscherBSERecord;
+import org.apache.poi.ddf.EscherBlipRecord;
+import org.apache.poi.ddf.EscherRecord;
+import org.apache.poi.hssf.eventusermodel.EventWorkbookBuilder.SheetRecordCollectingListener;
+import org.apache.poi.hssf.eventusermodel.FormatTrackingHSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFListener;
+import org.apache.poi.hssf.model.HSSFFormulaParser;
+import org.apache.poi.hssf.record.ArrayRecord;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BlankRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.CellValueRecordInterface;
+import org.apache.poi.hssf.record.DateWindow1904Record;
+import org.apache.poi.hssf.record.DrawingGroupRecord;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FontRecord;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.HyperlinkRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.MulBlankRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.RowRecord;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.record.SharedFormulaRecord;
+import org.apache.poi.hssf.record.SharedValueRecordBase;
+import org.apache.poi.hssf.usermodel.HSSFPictureData;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.formula.eval.ErrorEval;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.nsf.psm.documentcompliance.compliance.ss.utility.SpreadsheetModelBuilderUtils;
+import gov.nsf.psm.foundation.model.compliance.doc.FontModel;
+import gov.nsf.psm.foundation.model.compliance.doc.ImageModel;
+
+/*
+ * HSSF event model listener for a whole XLS workbook. Cells are rendered as HSSFCell.toString()
+ * renders them. The rows of a sheet arrive as blocks of row records followed by their cells, so
+ * a row is handed over once a cell of a later row, the next block or the end of the sheet shows
+ * it is complete; at most one block of rows is held. Register it through getRequestListener()
+ */
+public class HssfWorkbookListener implements HSSFListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HssfWorkbookListener.class);
+
+    private final SheetEventListener listener;
+    private final FormatTrackingHSSFListener formatListener;
+    private final SheetRecordCollectingListener workbookListener;
+
+    private final List<FontRecord> fontRecords = new ArrayList<>();
+    private final List<DrawingGroupRecord> drawingGroupRecords = new ArrayList<>();
+    private final List<SharedValueRecordBase> sharedValueRecords = new ArrayList<>();
+    private final TreeMap<Integer, List<PendingCell>> pendingRows = new TreeMap<>();
+    private SSTRecord sstRecord;
+    private HSSFWorkbook stubWorkbook;
+    private boolean date1904;
+    private boolean cellsSinceRowRecord;
+    private int depth;
+    private boolean inWorksheet;
+    private int sheetIndex = -1;
+    private List<FontModel> fonts;
+    private List<ImageModel> images;
+
+    public HssfWorkbookListener(SheetEventListener listener) {
+        this.listener = listener;
+        this.formatListener = new FormatTrackingHSSFListener(this);
+        this.workbookListener = new SheetRecordCollectingListener(formatListener);
+    }
+
+    // Tracks the cell formats and the records formulas refer to before passing records on
+    public HSSFListener getRequestListener() {
+        return workbookListener;
+    }
+
+    // Workbook fonts as HSSFWorkbook.getFontAt() returns them, known once the first sheet starts
+    public List<FontModel> getFonts() {
+        return fonts;
+    }
+
+    // Workbook pictures as HSSFWorkbook.getAllPictures() returns them, known once the first sheet starts
+    public List<ImageModel> getImages() {
+        return images;
+    }
+
+    @Override
+    public void processRecord(Record record) {
+        switch (record.getSid()) {
+        case BOFRecord.sid:
+            depth++;
+            if (depth == 1 && ((BOFRecord) record).getType() == BOFRecord.TYPE_WORKSHEET) {
+                startSheet();
+            }
+            break;
+        case EOFRecord.sid:
+            if (depth == 1 && inWorksheet) {
+                endSheet();
+            }
+            depth--;
+            break;
+        case FontRecord.sid:
+            fontRecords.add((FontRecord) record);
+            break;
+        case DateWindow1904Record.sid:
+            date1904 = ((DateWindow1904Record) record).getWindowing() == 1;
+            break;
+        case SSTRecord.sid:
+            sstRecord = (SSTRecord) record;
+            break;
+        case DrawingGroupRecord.sid:
+            drawingGroupRecords.add((DrawingGroupRecord) record);
+            break;
+        case HyperlinkRecord.sid:
+            if (inWorksheet) {
+                listener.hyperlink(((HyperlinkRecord) record).getAddress());
+            }
+            break;
+        case SharedFormulaRecord.sid:
+        case ArrayRecord.sid:
+            sharedValueRecords.add((SharedValueRecordBase) record);
+            break;
+        case RowRecord.sid:
+            if (inWorksheet) {
+                addRow(((RowRecord) record).getRowNumber());
+            }
+            break;
+        case NumberRecord.sid:
+        case LabelSSTRecord.sid:
+        case LabelRecord.sid:
+        case BoolErrRecord.sid:
+        case FormulaRecord.sid:
+        case BlankRecord.sid:
+            if (inWorksheet) {
+                addCell((CellValueRecordInterface) record);
+            }
+            break;
+        case MulBlankRecord.sid:
+            if (inWorksheet) {
+                addBlankCells((MulBlankRecord) record);
+            }
+            break;
+        default:
+            break;
+        }
+    }
+
+    private void startSheet() {
+        if (fonts == null) {
+            fonts = createFonts();
+            images = createImages();
+        }
+        inWorksheet = true;
+        sharedValueRecords.clear();
+        cellsSinceRowRecord = false;
+        listener.startSheet(++sheetIndex);
+    }
+
+    private void endSheet() {
+        flushRows(Integer.MAX_VALUE);
+        inWorksheet = false;
+        listener.endSheet();
+    }
+
+    private void addRow(int rowIndex) {
+        if (cellsSinceRowRecord) {
+            // A new block, so every row of the previous one is complete
+            flushRows(Integer.MAX_VALUE);
+            cellsSinceRowRecord = false;
+        }
+        if (!pendingRows.containsKey(rowIndex)) {
+            pendingRows.put(rowIndex, new ArrayList<PendingCell>());
+        }
+    }
+
+    private void addCell(CellValueRecordInterface record) {
+        flushRows(record.getRow());
+        List<PendingCell> cells = pendingRows.get(record.getRow());
+        if (cells == null) {
+            cells = new ArrayList<>();
+            pendingRows.put(record.getRow(), cells);
+        }
+        cells.add(new PendingCell(record, record instanceof FormulaRecord ? null : createCell(record)));
+        cellsSinceRowRecord = true;
+    }
+
+    // A run of blank cells in one row, which the workbook holds as one blank cell per column.
+    // Multiple RK records need no such step, the event factory already turns them into numbers
+    private void addBlankCells(MulBlankRecord record) {
+        for (int i = 0; i < record.getNumColumns(); i++) {
+            BlankRecord blankRecord = new BlankRecord();
+            blankRecord.setRow(record.getRow());
+            blankRecord.setColumn((short) (record.getFirstColumn() + i));
+            blankRecord.setXFIndex(record.getXFAt(i));
+            addCell(blankRecord);
+        }
+    }
+
+    // Hands over the rows before the given one. Formulas are rendered here, since the shared
+    // formula record of a group follows the first cell of the group
+    private void flushRows(int beforeRow) {
+        while (!pendingRows.isEmpty() && pendingRows.firstKey() < beforeRow) {
+            Map.Entry<Integer, List<PendingCell>> row = pendingRows.pollFirstEntry();
+            List<SheetCell> cells = new ArrayList<>(row.getValue().size());
+            for (PendingCell pendingCell : row.getValue()) {
+                cells.add(pendingCell.cell != null ? pendingCell.cell
+                        : new SheetCell(pendingCell.record.getRow(), pendingCell.record.getColumn(), CellType.FORMULA,
+                                getFormulaText((FormulaRecord) pendingCell.record), IndexedColors.BLACK.getIndex()));
+            }
+            Collections.sort(cells, new Comparator<SheetCell>() {
+                @Override
+                public int compare(SheetCell c1, SheetCell c2) {
+                    return Integer.compare(c1.getColumn(), c2.getColumn());
+                }
+            });
+            listener.row(row.getKey(), cells);
+        }
+    }
+
+    private SheetCell createCell(CellValueRecordInterface record) {
+        CellType type;
+        String value;
+        if (record instanceof NumberRecord) {
+            type = CellType.NUMERIC;
+            value = getNumericText((NumberRecord) record);
+        } else if (record instanceof LabelSSTRecord) {
+            type = CellType.STRING;
+            value = sstRecord.getString(((LabelSSTRecord) record).getSSTIndex()).getString();
+        } else if (record instanceof LabelRecord) {
+            type = CellType.STRING;
+            value = ((LabelRecord) record).getValue();
+        } else if (record instanceof BoolErrRecord && ((BoolErrRecord) record).isBoolean()) {
+            type = CellType.BOOLEAN;
+            value = ((BoolErrRecord) record).getBooleanValue() ? "TRUE" : "FALSE";
+        } else if (record instanceof BoolErrRecord) {
+            type = CellType.ERROR;
+            value = ErrorEval.getText(((BoolErrRecord) record).getErrorValue());
+        } else {
+            type = CellType.BLANK;
+            value = "";
+        }
+        return new SheetCell(record.getRow(), record.getColumn(), type, value, IndexedColors.BLACK.getIndex());
+    }
+
+    private String getNumericText(NumberRecord record) {
+        double number = record.getValue();
+        int formatIndex = formatListener.getFormatIndex(record);
+        if (DateUtil.isValidExcelDate(number)
+                && DateUtil.isADateFormat(formatIndex, formatListener.getFormatString(formatIndex))) {
+            return SpreadsheetModelBuilderUtils.formatCellDate(number, date1904);
+        }
+        return String.valueOf(number);
+    }
+
+    private String getFormulaText(FormulaRecord record) {
+        Ptg[] ptgs = record.getParsedExpression();
+        for (SharedValueRecordBase sharedValueRecord : sharedValueRecords) {
+            if (sharedValueRecord.isInRange(record.getRow(), record.getColumn())) {
+                ptgs = sharedValueRecord instanceof SharedFormulaRecord
+                        ? ((SharedFormulaRecord) sharedValueRecord).getFormulaTokens(record)
+                        : ((ArrayRecord) sharedValueRecord).getFormulaTokens();
+                break;
+            }
+        }
+        try {
+            if (stubWorkbook == null) {
+                stubWorkbook = workbookListener.getStubHSSFWorkbook();
+            }
+            return HSSFFormulaParser.toFormulaString(stubWorkbook, ptgs);
+        } catch (RuntimeException e) {
+            LOGGER.debug(e.getMessage(), e);
+            return "";
+        }
+    }
+
+    // HSSFWorkbook.getFontAt() skips the font record at index 4, which does not exist in the
+    // file format, so the last record is never returned
+    private List<FontModel> createFonts() {
+        List<FontModel> fontModels = new ArrayList<>();
+        for (int i = 0; i < fontRecords.size(); i++) {
+            FontRecord fontRecord = fontRecords.get(i > 4 ? i - 1 : i);
+            SpreadsheetModelBuilderUtils.addFont(fontModels, fontRecord.getFontName(),
+                    (short) (fontRecord.getFontHeight() / 20));
+        }
+        return fontModels;
+    }
+
+    private List<ImageModel> createImages() {
+        List<ImageModel> imageModels = new ArrayList<>();
+        if (!drawingGroupRecords.isEmpty()) {
+            DrawingGroupRecord drawingGroup = drawingGroupRecords.get(0);
+            for (int i = 1; i < drawingGroupRecords.size(); i++) {
+                drawingGroup.join(drawingGroupRecords.get(i));
+            }
+            drawingGroup.decode();
+            addImages(drawingGroup.getEscherRecords(), imageModels);
+            drawingGroupRecords.clear();
+        }
+        return imageModels;
+    }
+
+    private static void addImages(List<EscherRecord> escherRecords, List<ImageModel> imageModels) {
+        for (EscherRecord escherRecord : escherRecords) {
+            if (escherRecord instanceof EscherBSERecord) {
+                EscherBlipRecord blip = ((EscherBSERecord) escherRecord).getBlipRecord();
+                if (blip != null) {
+                    ImageModel imageModel = new ImageModel();
+                    imageModel.setBitType(new HSSFPictureData(blip).getPictureType());
+                    imageModels.add(imageModel);
+                }
+            }
+            addImages(escherRecord.getChildRecords(), imageModels);
+        }
+    }
+
+    private static class PendingCell {
+
+        private final CellValueRecordInterface record;
+        private final SheetCell cell;
+
+        PendingCell(CellValueRecordInterface record, SheetCell cell) {
+            this.record = record;
+            this.cell = cell;
+        }
+
+    }
+
+}
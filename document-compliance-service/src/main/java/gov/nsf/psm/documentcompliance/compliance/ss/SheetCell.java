@@ -0,0 +1,45 @@
+package gov.nsf.psm.documentcompliance.compliance.ss;
+
+import org.apache.poi.ss.usermodel.CellType;
+
+/*
+ * A cell read by the streaming readers, with its value already rendered the way the POI
+ * usermodel Cell.toString() renders it
+ */
+public class SheetCell {
+
+    private final int row;
+    private final int column;
+    private final CellType cellType;
+    private final String value;
+    private final short bottomBorderColor;
+
+    public SheetCell(int row, int column, CellType cellType, String value, short bottomBorderColor) {
+        this.row = row;
+        this.column = column;
+        this.cellType = cellType;
+        this.value = value;
+        this.bottomBorderColor = bottomBorderColor;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    public CellType getCellType() {
+        return cellType;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public short getBottomBorderColor() {
+        return bottomBorderColor;
+    }
+
+}
@@ -0,0 +1,19 @@
+package gov.nsf.psm.documentcompliance.compliance.ss;
+
+import java.util.List;
+
+/*
+ * Receives the sheets of a workbook one row at a time. Rows arrive in ascending order, each with
+ * its cells in column order
+ */
+public interface SheetEventListener {
+
+    void startSheet(int sheetIndex);
+
+    void row(int rowIndex, List<SheetCell> cells);
+
+    void hyperlink(String address);
+
+    void endSheet();
+
+}
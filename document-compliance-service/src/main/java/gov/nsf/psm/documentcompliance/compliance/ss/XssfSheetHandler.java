@@ -0,0 +1,233 @@
+package gov.nsf.psm.documentcompliance.compliance.ss;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.openxml4j.opc.PackageRelationship;
+import org.apache.poi.openxml4j.opc.PackageRelationshipCollection;
+import org.apache.poi.ss.formula.eval.ErrorEval;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+import gov.nsf.psm.documentcompliance.compliance.ss.utility.SpreadsheetModelBuilderUtils;
+
+/*
+ * SAX handler for one worksheet part of an XLSX package. Cells are rendered as XSSFCell.toString()
+ * renders them and handed over a row at a time, so only the current row is held. Formulas are
+ * reported by their text; a cell that shares a formula reports the text of the shared formula
+ */
+public class XssfSheetHandler extends DefaultHandler {
+
+    private static final String RELATIONSHIPS_NAMESPACE =
+            "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+    private final ReadOnlySharedStringsTable sharedStrings;
+    private final StylesTable styles;
+    private final boolean date1904;
+    private final PackageRelationshipCollection hyperlinkRelationships;
+    private final SheetEventListener listener;
+
+    private final Map<String, String> sharedFormulas = new HashMap<>();
+    private final StringBuilder text = new StringBuilder();
+    private boolean collectingText;
+    private boolean inPhoneticRun;
+    private List<SheetCell> cells;
+    private int rowIndex = -1;
+    private int columnIndex = -1;
+    private String cellType;
+    private int styleIndex;
+    private String value;
+    private String formula;
+    private String sharedFormulaIndex;
+    private boolean hasFormula;
+    private StringBuilder inlineString;
+
+    public XssfSheetHandler(ReadOnlySharedStringsTable sharedStrings, StylesTable styles, boolean date1904,
+            PackageRelationshipCollection hyperlinkRelationships, SheetEventListener listener) {
+        this.sharedStrings = sharedStrings;
+        this.styles = styles;
+        this.date1904 = date1904;
+        this.hyperlinkRelationships = hyperlinkRelationships;
+        this.listener = listener;
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+        switch (localName) {
+        case "row":
+            String rowReference = attributes.getValue("r");
+            rowIndex = rowReference != null ? Integer.parseInt(rowReference) - 1 : rowIndex + 1;
+            columnIndex = -1;
+            cells = new ArrayList<>();
+            break;
+        case "c":
+            String cellReference = attributes.getValue("r");
+            columnIndex = cellReference != null ? new CellReference(cellReference).getCol() : columnIndex + 1;
+            cellType = attributes.getValue("t");
+            String style = attributes.getValue("s");
+            styleIndex = style != null ? Integer.parseInt(style) : 0;
+            value = null;
+            formula = null;
+            sharedFormulaIndex = null;
+            hasFormula = false;
+            inlineString = null;
+            break;
+        case "v":
+            startText();
+            break;
+        case "f":
+            hasFormula = true;
+            sharedFormulaIndex = "shared".equals(attributes.getValue("t")) ? attributes.getValue("si") : null;
+            startText();
+            break;
+        case "is":
+            inlineString = new StringBuilder();
+            break;
+        case "rPh":
+            inPhoneticRun = true;
+            break;
+        case "t":
+            if (inlineString != null && !inPhoneticRun) {
+                startText();
+            }
+            break;
+        case "hyperlink":
+            listener.hyperlink(getHyperlinkAddress(attributes));
+            break;
+        default:
+            break;
+        }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) {
+        switch (localName) {
+        case "v":
+            value = endText();
+            break;
+        case "f":
+            formula = endText();
+            if (sharedFormulaIndex != null) {
+                if (!formula.isEmpty()) {
+                    sharedFormulas.put(sharedFormulaIndex, formula);
+                } else if (sharedFormulas.containsKey(sharedFormulaIndex)) {
+                    formula = sharedFormulas.get(sharedFormulaIndex);
+                }
+            }
+            break;
+        case "rPh":
+            inPhoneticRun = false;
+            break;
+        case "t":
+            if (collectingText) {
+                inlineString.append(endText());
+            }
+            break;
+        case "c":
+            if (cells != null) {
+                cells.add(createCell());
+            }
+            break;
+        case "row":
+            listener.row(rowIndex, cells);
+            cells = null;
+            break;
+        default:
+            break;
+        }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+        if (collectingText) {
+            text.append(ch, start, length);
+        }
+    }
+
+    private void startText() {
+        text.setLength(0);
+        collectingText = true;
+    }
+
+    private String endText() {
+        collectingText = false;
+        return text.toString();
+    }
+
+    // Cell type and value as XSSFCell.getCellTypeEnum() and XSSFCell.toString() give them
+    private SheetCell createCell() {
+        XSSFCellStyle style = styles != null && styles.getNumCellStyles() > 0 ? styles.getStyleAt(styleIndex) : null;
+        short bottomBorderColor = style != null ? style.getBottomBorderColor() : IndexedColors.BLACK.getIndex();
+        CellType type;
+        String cellValue;
+        if (hasFormula) {
+            type = CellType.FORMULA;
+            cellValue = formula != null ? formula : "";
+        } else if ("b".equals(cellType)) {
+            type = CellType.BOOLEAN;
+            cellValue = "1".equals(value) ? "TRUE" : "FALSE";
+        } else if ("e".equals(cellType)) {
+            type = CellType.ERROR;
+            cellValue = getErrorText(value);
+        } else if ("s".equals(cellType)) {
+            type = CellType.STRING;
+            cellValue = value != null ? sharedStrings.getEntryAt(Integer.parseInt(value)) : "";
+        } else if ("inlineStr".equals(cellType)) {
+            type = CellType.STRING;
+            cellValue = inlineString != null ? inlineString.toString() : value != null ? value : "";
+        } else if ("str".equals(cellType)) {
+            type = CellType.STRING;
+            cellValue = value != null ? value : "";
+        } else if (value == null) {
+            type = CellType.BLANK;
+            cellValue = "";
+        } else {
+            type = CellType.NUMERIC;
+            cellValue = getNumericText(Double.parseDouble(value), style);
+        }
+        return new SheetCell(rowIndex, columnIndex, type, cellValue, bottomBorderColor);
+    }
+
+    private String getNumericText(double number, XSSFCellStyle style) {
+        if (style != null && DateUtil.isValidExcelDate(number)
+                && DateUtil.isADateFormat(style.getDataFormat(), style.getDataFormatString())) {
+            return SpreadsheetModelBuilderUtils.formatCellDate(number, date1904);
+        }
+        return Double.toString(number);
+    }
+
+    private static String getErrorText(String errorValue) {
+        if (errorValue == null) {
+            return ErrorEval.getText(0);
+        }
+        try {
+            return ErrorEval.getText(FormulaError.forString(errorValue).getCode());
+        } catch (IllegalArgumentException e) {
+            return errorValue;
+        }
+    }
+
+    // Address as XSSFHyperlink.getAddress() gives it
+    private String getHyperlinkAddress(Attributes attributes) {
+        String id = attributes.getValue(RELATIONSHIPS_NAMESPACE, "id");
+        String location = attributes.getValue("location");
+        PackageRelationship relationship = id != null && hyperlinkRelationships != null
+                ? hyperlinkRelationships.getRelationshipByID(id) : null;
+        if (relationship == null) {
+            return location;
+        }
+        String address = relationship.getTargetURI().toString();
+        return location != null ? address + "#" + location : address;
+    }
+
+}
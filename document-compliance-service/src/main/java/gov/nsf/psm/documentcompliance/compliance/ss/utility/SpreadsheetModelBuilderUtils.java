@@ -1,6 +1,8 @@
 package gov.nsf.psm.documentcompliance.compliance.ss.utility;
 
 import java.nio.charset.Charset;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
@@ -13,12 +15,14 @@ import org.apache.poi.hssf.usermodel.HSSFCell;
 import org.apache.poi.hssf.usermodel.HSSFRow;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
 import org.apache.poi.ss.usermodel.Hyperlink;
 import org.apache.poi.ss.usermodel.PictureData;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.LocaleUtil;
 import org.apache.poi.xssf.usermodel.XSSFCell;
 import org.apache.poi.xssf.usermodel.XSSFRow;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
@@ -29,6 +33,7 @@ import org.slf4j.LoggerFactory;
 import gov.nsf.psm.documentcompliance.compliance.common.utility.Constants;
 import gov.nsf.psm.documentcompliance.compliance.common.utility.DateUtils;
 import gov.nsf.psm.documentcompliance.compliance.common.utility.DocComplianceUtils;
+import gov.nsf.psm.documentcompliance.compliance.ss.SheetCell;
 import gov.nsf.psm.documentcompliance.service.parameter.SpreadsheetParameters;
 import gov.nsf.psm.foundation.model.compliance.doc.FontModel;
 import gov.nsf.psm.foundation.model.compliance.doc.ImageModel;
@@ -65,16 +70,20 @@ public class SpreadsheetModelBuilderUtils {
     public static List<FontModel> getFonts(Workbook wb) {
         List<FontModel> fonts = new ArrayList<>();
         for (short s = 0; s < wb.getNumberOfFonts(); s++) {
-            FontModel fontModel = new FontModel();
-            fontModel.setName(wb.getFontAt(s).getFontName());
-            fontModel.setSize(wb.getFontAt(s).getFontHeightInPoints());
-            if (!fonts.contains(fontModel)) {
-                fonts.add(fontModel);
-            }
+            addFont(fonts, wb.getFontAt(s).getFontName(), wb.getFontAt(s).getFontHeightInPoints());
         }
         return fonts;
     }
 
+    public static void addFont(List<FontModel> fonts, String name, short heightInPoints) {
+        FontModel fontModel = new FontModel();
+        fontModel.setName(name);
+        fontModel.setSize(heightInPoints);
+        if (!fonts.contains(fontModel)) {
+            fonts.add(fontModel);
+        }
+    }
+
     public static List<CellModel> processHSSFRow(Object rowObj,  String defaultEncoding, boolean checkCharset) {
         List<CellModel> cellModels = new ArrayList<>();
         if (rowObj instanceof HSSFRow) {
@@ -94,6 +103,22 @@ public class SpreadsheetModelBuilderUtils {
         return cellModels;
     }
 
+    // Same as processHSSFRow, for a row read by the streaming reader
+    public static List<CellModel> processSheetCells(List<SheetCell> cells, String defaultEncoding,
+            boolean checkCharset) {
+        List<CellModel> cellModels = new ArrayList<>();
+        for (SheetCell cell : cells) {
+            CellModel cellModel = new CellModel();
+            cellModel.setCol(CellReference.convertNumToColString(cell.getColumn()));
+            cellModel.setRow(cell.getRow());
+            cellModel.setValue(cell.getValue());
+            String value = cellModel.getValue();
+            cellModel = checkCharset(cellModel, value, defaultEncoding, checkCharset);
+            cellModels.add(cellModel);
+        }
+        return cellModels;
+    }
+
     public static List<CellModel> processXSSFRow(Object rowObj, List<String> nonTextColumns, List<Integer> nonStrCols,
             String defaultEncoding, long tableRowNum, boolean checkCharset) {
         List<CellModel> cellModels = new ArrayList<>();
@@ -128,6 +153,39 @@ public class SpreadsheetModelBuilderUtils {
         return cellModels;
     }
 
+    // Same as processXSSFRow, for a row read by the streaming reader. A null row is a missing row
+    public static List<CellModel> processSheetRow(List<SheetCell> cells, List<String> nonTextColumns,
+            List<Integer> nonStrCols, String defaultEncoding, long tableRowNum, boolean checkCharset) {
+        List<CellModel> cellModels = new ArrayList<>();
+        if (cells != null) {
+            int lastCellNum = cells.isEmpty() ? -1 : cells.get(cells.size() - 1).getColumn() + 1;
+            boolean goToNextCell = true;
+            int emptyValueCount = 0;
+            for (SheetCell cell : cells) {
+                String value = cell.getValue();
+                if (StringUtils.isEmpty(value)) {
+                    goToNextCell = goToNextCell(cell.getBottomBorderColor());
+                    emptyValueCount++;
+                } else {
+                    nonStrCols.addAll(updateNonStrColumns(nonTextColumns, cell.getColumn(), value, tableRowNum));
+                    value = updateNonStrValue(nonStrCols, cell.getColumn(), cell.getCellType(), value);
+                }
+                if (goToNextCell) {
+                    CellModel cellModel = new CellModel();
+                    cellModel.setCol(CellReference.convertNumToColString(cell.getColumn()));
+                    cellModel.setRow(cell.getRow());
+                    cellModel.setFormat(cell.getCellType().name());
+                    value = getDateString(value);
+                    cellModel.setValue(value);
+                    cellModel = checkCharset(cellModel, value, defaultEncoding, checkCharset);
+                    cellModels.add(cellModel);
+                    cellModels = createCellModelList(cellModels, lastCellNum, emptyValueCount);
+                }
+            }
+        }
+        return cellModels;
+    }
+
     public static List<TableModel> processXSSFTables(Sheet sheet, List<String> nonTextColumns, SpreadsheetParameters params) {
         List<TableModel> tableModels = new ArrayList<>();
         if (sheet instanceof XSSFSheet) { // Tables only available for XSSF
@@ -182,23 +240,42 @@ public class SpreadsheetModelBuilderUtils {
     }
 
     public static boolean goToNextCell(XSSFCell cell) {
-        return cell.getCellStyle().getBottomBorderColor() == Constants.BORDER_EXCLUSION_COLOR ? false : true;
+        return goToNextCell(cell.getCellStyle().getBottomBorderColor());
+    }
+
+    public static boolean goToNextCell(short bottomBorderColor) {
+        return bottomBorderColor == Constants.BORDER_EXCLUSION_COLOR ? false : true;
     }
 
     public static List<Integer> updateNonStrColumns(List<String> nonTextColumns, XSSFCell cell, String value,
             long tableRowNum) {
+        return updateNonStrColumns(nonTextColumns, cell.getColumnIndex(), value, tableRowNum);
+    }
+
+    public static List<Integer> updateNonStrColumns(List<String> nonTextColumns, int column, String value,
+            long tableRowNum) {
         List<Integer> nonStrCols = new ArrayList<>();
         for (String nonTextColumn : nonTextColumns) {
             if (tableRowNum == 0 && value.trim().toUpperCase().indexOf(nonTextColumn) > -1) {
-                nonStrCols.add(cell.getColumnIndex());
+                nonStrCols.add(column);
             }
         }
         return nonStrCols;
     }
 
     public static String updateNonStrValue(List<Integer> nonStrCols, XSSFCell cell, String value) {
-        return nonStrCols.contains(cell.getColumnIndex()) && !cell.getCellTypeEnum().equals(CellType.NUMERIC) ? ""
-                : value;
+        return updateNonStrValue(nonStrCols, cell.getColumnIndex(), cell.getCellTypeEnum(), value);
+    }
+
+    public static String updateNonStrValue(List<Integer> nonStrCols, int column, CellType cellType, String value) {
+        return nonStrCols.contains(column) && !cellType.equals(CellType.NUMERIC) ? "" : value;
+    }
+
+    // Renders a date cell as Cell.toString() does
+    public static String formatCellDate(double value, boolean date1904) {
+        DateFormat sdf = new SimpleDateFormat("dd-MMM-yyyy", LocaleUtil.getUserLocale());
+        sdf.setTimeZone(LocaleUtil.getUserTimeZone());
+        return sdf.format(DateUtil.getJavaDate(value, date1904));
     }
 
     public static String getDateString(String dateValue) {
@@ -222,8 +299,13 @@ public class SpreadsheetModelBuilderUtils {
     }
 
     public static List<CellModel> createCellModelList(List<CellModel> cellModels, XSSFRow row, int emptyValueCount) {
+        return createCellModelList(cellModels, row.getLastCellNum(), emptyValueCount);
+    }
+
+    public static List<CellModel> createCellModelList(List<CellModel> cellModels, int lastCellNum,
+            int emptyValueCount) {
         List<CellModel> newCellModels = new ArrayList<>();
-        if (emptyValueCount == row.getLastCellNum() || emptyValueCount == (row.getLastCellNum() - 1)) {
+        if (emptyValueCount == lastCellNum || emptyValueCount == (lastCellNum - 1)) {
             return newCellModels;
         } else {
             return cellModels;
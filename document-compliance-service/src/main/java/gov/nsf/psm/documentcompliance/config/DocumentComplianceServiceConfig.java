@@ -1,19 +1,231 @@
 package gov.nsf.psm.documentcompliance.config;
 
+import java.io.File;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.web.multipart.MultipartResolver;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Strings;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
+import gov.nsf.psm.documentcompliance.compliance.common.io.UploadBufferPool;
+import gov.nsf.psm.documentcompliance.compliance.pdf.utility.SystemFontIndex;
+import gov.nsf.psm.documentcompliance.controller.ProfiledMultipartResolver;
+import gov.nsf.psm.documentcompliance.service.AdmissionController;
+import gov.nsf.psm.documentcompliance.service.ComplianceBatchService;
+import gov.nsf.psm.documentcompliance.service.ComplianceBatchServiceImpl;
+import gov.nsf.psm.documentcompliance.service.ComplianceJobService;
+import gov.nsf.psm.documentcompliance.service.ComplianceJobServiceImpl;
+import gov.nsf.psm.documentcompliance.service.ComplianceMetrics;
+import gov.nsf.psm.documentcompliance.service.ComplianceModelCache;
 import gov.nsf.psm.documentcompliance.service.DocumentComplianceService;
 import gov.nsf.psm.documentcompliance.service.DocumentComplianceServiceImpl;
+import gov.nsf.psm.documentcompliance.service.DocumentPartCache;
+import gov.nsf.psm.documentcompliance.service.MimeTypeDetectionService;
+import gov.nsf.psm.documentcompliance.service.MimeTypeDetectionServiceImpl;
 
 @Configuration
 public class DocumentComplianceServiceConfig {
 
+    @Value("${pdf.extraction.pool-size}")
+    private int extractionPoolSize;
+
+    @Value("${pdf.font.index.refresh-interval}")
+    private long fontIndexRefreshInterval;
+
+    @Value("${file.upload.spool.memory-threshold-kb}")
+    private int spoolMemoryThresholdKb;
+
+    @Value("${file.upload.spool.pooled-buffers}")
+    private int spoolPooledBuffers;
+
+    @Value("${file.upload.spool.directory}")
+    private String spoolDirectory;
+
+    @Value("${file.upload.detection.probe-size-kb}")
+    private int detectionProbeSizeKb;
+
+    @Value("${cache.results.max-size-mb}")
+    private long resultCacheMaxSizeMb;
+
+    @Value("${cache.results.expire-after-access}")
+    private long resultCacheExpireAfterAccess;
+
+    @Value("${cache.pages.max-size-mb}")
+    private long pageCacheMaxSizeMb;
+
+    @Value("${cache.pages.expire-after-access}")
+    private long pageCacheExpireAfterAccess;
+
+    @Value("${admission.budget-mb}")
+    private int admissionBudgetMb;
+
+    @Value("${admission.heap-fraction}")
+    private double admissionHeapFraction;
+
+    @Value("${admission.timeout}")
+    private long admissionTimeout;
+
+    @Value("${admission.cost.pdf-factor}")
+    private double admissionPdfFactor;
+
+    @Value("${admission.cost.pdf-page-kb}")
+    private int admissionPdfPageKb;
+
+    @Value("${admission.cost.xls-factor}")
+    private double admissionXlsFactor;
+
+    @Value("${admission.cost.xlsx-factor}")
+    private double admissionXlsxFactor;
+
+    @Value("${admission.cost.metadata-factor}")
+    private double admissionMetadataFactor;
+
+    @Value("${admission.cost.streaming-factor}")
+    private double admissionStreamingFactor;
+
+    @Value("${spreadsheet.streaming.threshold-kb}")
+    private int spreadsheetStreamingThresholdKb;
+
+    @Value("${batch.pool-size}")
+    private int batchPoolSize;
+
+    @Value("${batch.max-files}")
+    private int batchMaxFiles;
+
+    @Value("${jobs.pool-size}")
+    private int jobPoolSize;
+
+    @Value("${jobs.queue-capacity}")
+    private int jobQueueCapacity;
+
+    @Value("${jobs.retention}")
+    private long jobRetention;
+
+    @Value("${jobs.retention-max-size-mb}")
+    private long jobRetentionMaxSizeMb;
+
+    @Value("${jobs.retry-after}")
+    private int jobRetryAfter;
+
     @Bean
     @Primary
     public DocumentComplianceService pdfComplianceService() {
         return new DocumentComplianceServiceImpl();
     }
 
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService pdfExtractionExecutor() {
+        int poolSize = extractionPoolSize > 0 ? extractionPoolSize : Runtime.getRuntime().availableProcessors();
+        return new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setNameFormat("pdf-extraction-%d").setDaemon(true).build());
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService complianceBatchExecutor() {
+        int poolSize = batchPoolSize > 0 ? batchPoolSize : Runtime.getRuntime().availableProcessors();
+        return new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setNameFormat("compliance-batch-%d").setDaemon(true).build());
+    }
+
+    @Bean
+    public ComplianceBatchService complianceBatchService() {
+        return new ComplianceBatchServiceImpl(complianceBatchExecutor(), batchMaxFiles);
+    }
+
+    // Jobs beyond the queue capacity are rejected rather than queued without bound
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor complianceJobExecutor() {
+        int poolSize = jobPoolSize > 0 ? jobPoolSize : Runtime.getRuntime().availableProcessors();
+        return new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(Math.max(1, jobQueueCapacity)),
+                new ThreadFactoryBuilder().setNameFormat("compliance-job-%d").setDaemon(true).build());
+    }
+
+    @Bean
+    public ComplianceJobService complianceJobService() {
+        return new ComplianceJobServiceImpl(complianceJobExecutor(), jobRetention, jobRetentionMaxSizeMb * 1024,
+                jobRetryAfter);
+    }
+
+    // Builds the system font index at startup and, if an interval is set, rebuilds it periodically
+    @Bean(destroyMethod = "shutdown")
+    public ScheduledExecutorService systemFontIndexRefresher() {
+        ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("system-font-index-%d").setDaemon(true).build());
+        SystemFontIndex.refresh();
+        if (fontIndexRefreshInterval > 0) {
+            refresher.scheduleWithFixedDelay(SystemFontIndex::refresh, fontIndexRefreshInterval,
+                    fontIndexRefreshInterval, TimeUnit.MINUTES);
+        }
+        return refresher;
+    }
+
+    @Bean
+    public ComplianceModelCache complianceModelCache() {
+        return new ComplianceModelCache(resultCacheMaxSizeMb * 1024, resultCacheExpireAfterAccess);
+    }
+
+    @Bean
+    public DocumentPartCache documentPartCache() {
+        return new DocumentPartCache(pageCacheMaxSizeMb * 1024, pageCacheExpireAfterAccess);
+    }
+
+    // Without a fixed budget, the budget is a share of the maximum heap
+    @Bean
+    public AdmissionController admissionController() {
+        long budgetKb = admissionBudgetMb > 0 ? admissionBudgetMb * 1024L
+                : (long) (Runtime.getRuntime().maxMemory() / 1024 * admissionHeapFraction);
+        AdmissionController admissionController = new AdmissionController((int) Math.min(Integer.MAX_VALUE, budgetKb),
+                TimeUnit.SECONDS.toMillis(admissionTimeout));
+        admissionController.setPdfFactor(admissionPdfFactor);
+        admissionController.setPdfPageKb(admissionPdfPageKb);
+        admissionController.setXlsFactor(admissionXlsFactor);
+        admissionController.setXlsxFactor(admissionXlsxFactor);
+        admissionController.setMetadataFactor(admissionMetadataFactor);
+        admissionController.setStreamingFactor(admissionStreamingFactor);
+        admissionController.setStreamingThresholdKb(spreadsheetStreamingThresholdKb);
+        return admissionController;
+    }
+
+    // The Tika detector is built once here instead of on every request
+    @Bean
+    public MimeTypeDetectionService mimeTypeDetectionService() {
+        return new MimeTypeDetectionServiceImpl(detectionProbeSizeKb * 1024);
+    }
+
+    // Uploads are spooled once and shared by MIME detection and the model builders
+    @Bean
+    public UploadBufferPool uploadBufferPool(ComplianceMetrics complianceMetrics) {
+        File directory = Strings.isNullOrEmpty(spoolDirectory) ? null : new File(spoolDirectory);
+        UploadBufferPool uploadBufferPool = new UploadBufferPool(spoolMemoryThresholdKb * 1024, spoolPooledBuffers,
+                directory);
+        uploadBufferPool.setComplianceMetrics(complianceMetrics);
+        return uploadBufferPool;
+    }
+
+    // Takes the place of the resolver Spring Boot would configure, so only profiled requests are parsed lazily
+    @Bean(name = DispatcherServlet.MULTIPART_RESOLVER_BEAN_NAME)
+    public MultipartResolver multipartResolver() {
+        return new ProfiledMultipartResolver();
+    }
+
+    // The registry is the one the actuator reads, created when Dropwizard metrics are on the classpath
+    @Bean
+    public ComplianceMetrics complianceMetrics(MetricRegistry metricRegistry) {
+        return new ComplianceMetrics(metricRegistry);
+    }
+
 }
@@ -1,16 +1,40 @@
 package gov.nsf.psm.documentcompliance.controller;
 
+import java.net.URI;
+import java.util.Collection;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.Part;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartHttpServletRequest;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import gov.nsf.psm.documentcompliance.compliance.common.utility.Constants;
+import gov.nsf.psm.documentcompliance.compliance.common.utility.StageProfiler;
+import gov.nsf.psm.documentcompliance.service.AdmissionRejectedException;
+import gov.nsf.psm.documentcompliance.service.ComplianceBatchService;
+import gov.nsf.psm.documentcompliance.service.ComplianceJobService;
 import gov.nsf.psm.documentcompliance.service.DocumentComplianceService;
+import gov.nsf.psm.documentcompliance.service.batch.ComplianceModelBatch;
+import gov.nsf.psm.documentcompliance.service.job.ComplianceJob;
 import gov.nsf.psm.foundation.controller.PsmBaseController;
 import gov.nsf.psm.foundation.exception.CommonUtilException;
 import gov.nsf.psm.foundation.model.compliance.ComplianceModel;
@@ -22,7 +46,8 @@ import io.swagger.annotations.ApiResponses;
 @RestController
 @RequestMapping(path = "/api/v1")
 @ApiResponses(value = { @ApiResponse(code = 404, message = "Resource not found"),
-        @ApiResponse(code = 500, message = "Internal server error") })
+        @ApiResponse(code = 500, message = "Internal server error"),
+        @ApiResponse(code = 503, message = "Service busy, retry after the time given in Retry-After") })
 public class DocumentComplianceServiceController extends PsmBaseController {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DocumentComplianceServiceController.class);
@@ -30,30 +55,176 @@ public class DocumentComplianceServiceController extends PsmBaseController {
     @Autowired
     DocumentComplianceService docComplianceService;
 
-    @ApiOperation(value = "Get metadata", notes = "Returns a document model, containing metadata, for a given PDF document", response = ComplianceModel.class)
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    ComplianceJobService complianceJobService;
+
+    @Autowired
+    ComplianceBatchService complianceBatchService;
+
+    @ApiOperation(value = "Get metadata", notes = "Returns a document model, containing metadata, for a given PDF document. A PROFILE part or X-Compliance-Profile header of true adds a Server-Timing header, and diagnostics also adds the timings to the response", response = ComplianceModel.class)
     @RequestMapping(path = "/complianceModel/metadata", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
-    public ComplianceModel getMetadata(MultipartHttpServletRequest request) throws CommonUtilException {
+    public ResponseEntity<?> getMetadata(MultipartHttpServletRequest request) throws CommonUtilException {
+        LOGGER.debug("DocumentComplianceServiceController.getDocumentModel(MultipartHttpServletRequest request)");
+        return getComplianceModel(request, true);
+    }
+
+    @ApiOperation(value = "Get compliance model", notes = "Returns a document model for a given document. PDF analysis can be limited with the optional PAGE_RANGES (e.g. 1-5,12) and PAGE_SAMPLE (first:N, every:K or random:N[:SEED]) parts. A PROFILE part or X-Compliance-Profile header of true adds a Server-Timing header with the time spent in each stage, and diagnostics also adds the stage and page timings to the response", response = ComplianceModel.class)
+    @RequestMapping(path = "/complianceModel", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> getComplianceModel(MultipartHttpServletRequest request) throws CommonUtilException {
         LOGGER.debug("DocumentComplianceServiceController.getDocumentModel(MultipartHttpServletRequest request)");
-        ComplianceModel document = null;
+        return getComplianceModel(request, false);
+    }
+
+    @ApiOperation(value = "Stream compliance model", notes = "Streams a document model for a given document as newline delimited JSON: one record per page, followed by the document level model, or by an error record if the document fails after pages were sent")
+    @RequestMapping(path = "/complianceModel/stream", method = RequestMethod.POST, produces = Constants.MEDIA_TYPE_NDJSON)
+    public void streamComplianceModel(MultipartHttpServletRequest request, HttpServletResponse response)
+            throws CommonUtilException {
+        LOGGER.debug("DocumentComplianceServiceController.streamComplianceModel(MultipartHttpServletRequest request, HttpServletResponse response)");
+        NdjsonPageModelWriter writer = null;
         try {
-            document = docComplianceService.getComplianceModel(request.getParts(), true);
+            response.setContentType(Constants.MEDIA_TYPE_NDJSON);
+            response.setCharacterEncoding(Constants.CHARACTER_SET_DEFAULT);
+            writer = new NdjsonPageModelWriter(objectMapper, response.getOutputStream());
+            ComplianceModel document = docComplianceService.getComplianceModel(request.getParts(), writer);
+            writer.writeComplianceModel(document);
+        } catch (AdmissionRejectedException e) {
+            throw e;
         } catch (Exception e) {
+            if (writer != null && response.isCommitted()) {
+                // Page records have already been sent, so the error can only be reported as the last record
+                LOGGER.info(e.getMessage(), e);
+                writer.writeError(e);
+                return;
+            }
             throw new CommonUtilException(e);
         }
-        return document;
     }
 
-    @ApiOperation(value = "Get compliance model", notes = "Returns a document model for a given document", response = ComplianceModel.class)
-    @RequestMapping(path = "/complianceModel", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
-    public ComplianceModel getComplianceModel(MultipartHttpServletRequest request) throws CommonUtilException {
-        LOGGER.debug("DocumentComplianceServiceController.getDocumentModel(MultipartHttpServletRequest request)");
-        ComplianceModel document = null;
+    @ApiOperation(value = "Submit compliance job", notes = "Queues a compliance model request and returns the job at once, with status 202. Takes the same parts as /complianceModel. Returns 429 with Retry-After when the job queue is full", response = ComplianceJob.class)
+    @RequestMapping(path = "/complianceJobs", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ComplianceJob> submitComplianceJob(MultipartHttpServletRequest request)
+            throws CommonUtilException {
+        LOGGER.debug("DocumentComplianceServiceController.submitComplianceJob(MultipartHttpServletRequest request)");
+        return submitJob(request, false);
+    }
+
+    @ApiOperation(value = "Submit metadata job", notes = "Queues a metadata request and returns the job at once, with status 202. Returns 429 with Retry-After when the job queue is full", response = ComplianceJob.class)
+    @RequestMapping(path = "/complianceJobs/metadata", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ComplianceJob> submitMetadataJob(MultipartHttpServletRequest request)
+            throws CommonUtilException {
+        LOGGER.debug("DocumentComplianceServiceController.submitMetadataJob(MultipartHttpServletRequest request)");
+        return submitJob(request, true);
+    }
+
+    @ApiOperation(value = "Get compliance job", notes = "Returns the status of a job, the pages processed out of the pages to analyse and, once completed, the compliance model", response = ComplianceJob.class)
+    @RequestMapping(path = "/complianceJobs/{id}", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ComplianceJob> getComplianceJob(@PathVariable("id") String id) {
+        LOGGER.debug("DocumentComplianceServiceController.getComplianceJob(String id)");
+        ComplianceJob job = complianceJobService.getJob(id);
+        if (job == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(job, HttpStatus.OK);
+    }
+
+    @ApiOperation(value = "Get compliance models", notes = "Returns the document models for many documents, keyed by file name, with an error instead for any file that could not be processed. Each file k is sent as FILE_k, with its own TABLES_ONLY_k, MIME_TYPE_k_n, NONTEXT_COLUMN_k_n, PAGE_RANGES_k and PAGE_SAMPLE_k parts. MIME_TYPE_n and NONTEXT_COLUMN_n apply to every file", response = ComplianceModelBatch.class)
+    @RequestMapping(path = "/complianceModels", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ComplianceModelBatch getComplianceModels(MultipartHttpServletRequest request) throws CommonUtilException {
+        LOGGER.debug("DocumentComplianceServiceController.getComplianceModels(MultipartHttpServletRequest request)");
+        try {
+            return complianceBatchService.getComplianceModels(request.getParts(), false);
+        } catch (Exception e) {
+            throw new CommonUtilException(e);
+        }
+    }
+
+    @ApiOperation(value = "Get metadata for many documents", notes = "Returns the metadata of many documents, keyed by file name, using the same parts as /complianceModels", response = ComplianceModelBatch.class)
+    @RequestMapping(path = "/complianceModels/metadata", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ComplianceModelBatch getMetadataBatch(MultipartHttpServletRequest request) throws CommonUtilException {
+        LOGGER.debug("DocumentComplianceServiceController.getMetadataBatch(MultipartHttpServletRequest request)");
+        try {
+            return complianceBatchService.getComplianceModels(request.getParts(), true);
+        } catch (Exception e) {
+            throw new CommonUtilException(e);
+        }
+    }
+
+    // Busy rather than failed, so clients can retry
+    @ExceptionHandler(AdmissionRejectedException.class)
+    public ResponseEntity<String> handleAdmissionRejected(AdmissionRejectedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds())).body(e.getMessage());
+    }
+
+    private ResponseEntity<?> getComplianceModel(MultipartHttpServletRequest request, boolean metadataOnly)
+            throws CommonUtilException {
+        StageProfiler profiler = null;
+        try {
+            StageProfiler.Stage multipart = StageProfiler.begin(StageProfiler.STAGE_MULTIPART);
+            Collection<Part> parts = request.getParts();
+            profiler = getProfiler(request);
+            if (profiler == null) {
+                return ResponseEntity.ok(docComplianceService.getComplianceModel(parts, metadataOnly));
+            }
+            multipart.end(profiler);
+            StageProfiler.attach(profiler);
+            ComplianceModel document = docComplianceService.getComplianceModel(parts, metadataOnly);
+            JsonNode body;
+            try (StageProfiler.Stage stage = StageProfiler.stage(StageProfiler.STAGE_SERIALIZE)) {
+                body = objectMapper.valueToTree(document);
+            }
+            if (profiler.isDiagnostics() && body.isObject()) {
+                ((ObjectNode) body).putPOJO(Constants.JSON_DIAGNOSTICS, profiler.getDiagnostics());
+            }
+            return ResponseEntity.ok().header(Constants.HEADER_SERVER_TIMING, profiler.getServerTiming()).body(body);
+        } catch (AdmissionRejectedException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CommonUtilException(e);
+        } finally {
+            if (profiler != null) {
+                StageProfiler.detach();
+            }
+        }
+    }
+
+    // Profiling is asked for with the X-Compliance-Profile header or the PROFILE part: true or diagnostics.
+    // Only the header leaves the multipart parsing to be timed, the part is read once it is parsed
+    private static StageProfiler getProfiler(MultipartHttpServletRequest request) {
+        String profile = request.getHeader(Constants.HEADER_PROFILE);
+        if (profile == null) {
+            profile = request.getParameter(Constants.PARAM_PROFILE);
+        }
+        if (profile == null) {
+            return null;
+        }
+        profile = profile.trim();
+        if (Constants.PROFILE_DIAGNOSTICS.equalsIgnoreCase(profile)) {
+            return new StageProfiler(true);
+        }
+        return Boolean.parseBoolean(profile) ? new StageProfiler(false) : null;
+    }
+
+    private ResponseEntity<ComplianceJob> submitJob(MultipartHttpServletRequest request, boolean metadataOnly)
+            throws CommonUtilException {
         try {
-            document = docComplianceService.getComplianceModel(request.getParts(), false);
+            ComplianceJob job = complianceJobService.submit(request.getParts(), metadataOnly);
+            URI location = ServletUriComponentsBuilder.fromCurrentContextPath().path("/api/v1/complianceJobs/{id}")
+                    .buildAndExpand(job.getId()).toUri();
+            return ResponseEntity.accepted().location(location).body(job);
+        } catch (RejectedExecutionException e) {
+            LOGGER.info(e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(complianceJobService.getRetryAfterSeconds()))
+                    .build();
+        } catch (AdmissionRejectedException e) {
+            throw e;
         } catch (Exception e) {
             throw new CommonUtilException(e);
         }
-        return document;
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,82 @@
+package gov.nsf.psm.documentcompliance.controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import gov.nsf.psm.documentcompliance.compliance.common.utility.Constants;
+import gov.nsf.psm.documentcompliance.model.builder.pdf.PageModelListener;
+import gov.nsf.psm.factmodel.PageFactModel;
+import gov.nsf.psm.foundation.exception.CommonUtilException;
+import gov.nsf.psm.foundation.model.compliance.ComplianceModel;
+import gov.nsf.psm.foundation.model.compliance.doc.PageModel;
+
+/*
+ * Writes one JSON record per line: a record for every page with text, as soon as it is
+ * processed, followed by the compliance model holding the document level facts, or by an
+ * error record when the document could not be completed
+ */
+public class NdjsonPageModelWriter implements PageModelListener {
+
+    private static final byte RECORD_SEPARATOR = '\n';
+
+    private final ObjectMapper mapper;
+    private final OutputStream outputStream;
+
+    public NdjsonPageModelWriter(ObjectMapper mapper, OutputStream outputStream) {
+        this.mapper = mapper;
+        this.outputStream = outputStream;
+    }
+
+    // Pages are written out instead of being kept for the compliance model record
+    @Override
+    public boolean isRetainPages() {
+        return false;
+    }
+
+    @Override
+    public void documentStarted(int numberOfPages) {
+        // Nothing is written until the first page is available
+    }
+
+    @Override
+    public void pageCompleted(int pageNumber, PageModel page, PageFactModel pageFactModel)
+            throws CommonUtilException {
+        if (pageFactModel != null) {
+            Map<String, Object> pageRecord = new LinkedHashMap<>();
+            pageRecord.put(Constants.STREAM_RECORD_TYPE, Constants.STREAM_RECORD_TYPE_PAGE);
+            pageRecord.put("pageNumber", pageNumber);
+            pageRecord.put("page", page);
+            pageRecord.put("pageFactModel", pageFactModel);
+            writeRecord(pageRecord);
+        }
+    }
+
+    public void writeComplianceModel(ComplianceModel compliance) throws CommonUtilException {
+        Map<String, Object> complianceRecord = new LinkedHashMap<>();
+        complianceRecord.put(Constants.STREAM_RECORD_TYPE, Constants.STREAM_RECORD_TYPE_COMPLIANCE_MODEL);
+        complianceRecord.put(Constants.STREAM_RECORD_TYPE_COMPLIANCE_MODEL, compliance);
+        writeRecord(complianceRecord);
+    }
+
+    public void writeError(Exception e) throws CommonUtilException {
+        Map<String, Object> errorRecord = new LinkedHashMap<>();
+        errorRecord.put(Constants.STREAM_RECORD_TYPE, Constants.STREAM_RECORD_TYPE_ERROR);
+        errorRecord.put(Constants.STREAM_RECORD_TYPE_ERROR, e.getMessage() != null ? e.getMessage() : e.toString());
+        writeRecord(errorRecord);
+    }
+
+    private void writeRecord(Map<String, Object> record) throws CommonUtilException {
+        try {
+            outputStream.write(mapper.writeValueAsBytes(record));
+            outputStream.write(RECORD_SEPARATOR);
+            outputStream.flush();
+        } catch (IOException e) {
+            throw new CommonUtilException(e);
+        }
+    }
+
+}
@@ -0,0 +1,25 @@
+package gov.nsf.psm.documentcompliance.controller;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.web.multipart.MultipartException;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
+import org.springframework.web.multipart.support.StandardMultipartHttpServletRequest;
+import org.springframework.web.multipart.support.StandardServletMultipartResolver;
+
+import gov.nsf.psm.documentcompliance.compliance.common.utility.Constants;
+
+/*
+ * Parses multipart requests before the controller runs, as the default resolver does, except for
+ * requests profiled with the X-Compliance-Profile header. Those are parsed on first use, inside
+ * the controller, so the multipart stage times the parsing. Parse errors of other requests are
+ * still raised before the handler is chosen
+ */
+public class ProfiledMultipartResolver extends StandardServletMultipartResolver {
+
+    @Override
+    public MultipartHttpServletRequest resolveMultipart(HttpServletRequest request) throws MultipartException {
+        return new StandardMultipartHttpServletRequest(request, request.getHeader(Constants.HEADER_PROFILE) != null);
+    }
+
+}
@@ -0,0 +1,31 @@
+package gov.nsf.psm.documentcompliance.model.builder.pdf;
+
+import gov.nsf.psm.factmodel.PageFactModel;
+import gov.nsf.psm.foundation.model.compliance.DocumentPart;
+
+public class ExtractedPage {
+
+    private int pageNumber;
+    private DocumentPart documentPart;
+    private PageFactModel pageFactModel;
+
+    public ExtractedPage(int pageNumber, DocumentPart documentPart, PageFactModel pageFactModel) {
+        this.pageNumber = pageNumber;
+        this.documentPart = documentPart;
+        this.pageFactModel = pageFactModel;
+    }
+
+    public int getPageNumber() {
+        return pageNumber;
+    }
+
+    public DocumentPart getDocumentPart() {
+        return documentPart;
+    }
+
+    // Null when the page does not contain any text
+    public PageFactModel getPageFactModel() {
+        return pageFactModel;
+    }
+
+}
@@ -0,0 +1,21 @@
+package gov.nsf.psm.documentcompliance.model.builder.pdf;
+
+import gov.nsf.psm.factmodel.PageFactModel;
+import gov.nsf.psm.foundation.exception.CommonUtilException;
+import gov.nsf.psm.foundation.model.compliance.doc.PageModel;
+
+/*
+ * Receives page models, in page order, as soon as the PDF model builder has processed them
+ */
+public interface PageModelListener {
+
+    // Whether the document model keeps the pages as well, rather than leaving them to the listener
+    public boolean isRetainPages();
+
+    public void documentStarted(int numberOfPages) throws CommonUtilException;
+
+    // The page fact model is null when the page does not contain any text
+    public void pageCompleted(int pageNumber, PageModel page, PageFactModel pageFactModel)
+            throws CommonUtilException;
+
+}
@@ -1,22 +1,42 @@
 package gov.nsf.psm.documentcompliance.model.builder.pdf;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.hash.HashCode;
+import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.itextpdf.io.util.StreamUtil;
 import com.itextpdf.kernel.crypto.BadPasswordException;
 import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfIndirectReference;
 import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.ReaderProperties;
 
+import gov.nsf.psm.documentcompliance.compliance.common.io.UploadBuffer;
 import gov.nsf.psm.documentcompliance.compliance.common.utility.DocComplianceUtils;
+import gov.nsf.psm.documentcompliance.compliance.common.utility.StageProfiler;
+import gov.nsf.psm.documentcompliance.compliance.pdf.PdfMetadataScanner;
 import gov.nsf.psm.documentcompliance.compliance.pdf.utility.PdfModelBuilderUtils;
 import gov.nsf.psm.documentcompliance.model.builder.ComplianceModelBuilder;
+import gov.nsf.psm.documentcompliance.service.parameter.PageSelection;
 import gov.nsf.psm.documentcompliance.service.parameter.PdfParameters;
 import gov.nsf.psm.factmodel.DocumentFactModel;
 import gov.nsf.psm.factmodel.FileFactModel;
@@ -31,8 +51,14 @@ import gov.nsf.psm.foundation.model.compliance.doc.SectionModel;
 public class PdfModelBuilder implements ComplianceModelBuilder {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PdfModelBuilder.class);
+    private static final long PAGE_POLL_INTERVAL_MS = 50;
+    // Pages a worker extracts ahead of the request thread before it waits
+    private static final int PAGES_BUFFERED_PER_WORKER = 2;
 
     private PdfParameters params = null;
+    private PageModelListener pageModelListener = null;
+    private boolean retainPages = true;
+    private boolean metadataScan = false;
 
     public PdfModelBuilder() {
         // Empty constructor
@@ -45,19 +71,42 @@ public class PdfModelBuilder implements ComplianceModelBuilder {
     @Override
     public DocumentModel buildMetadata(InputStream inputStream, String fileName, long sizeInBytes)
             throws CommonUtilException {
+        try (UploadBuffer upload = readUpload(inputStream)) {
+            return buildMetadata(upload, fileName);
+        }
+    }
+
+    public DocumentModel buildMetadata(UploadBuffer upload, String fileName) throws CommonUtilException {
         DocumentModel document = null;
         PdfReader reader = null;
         PdfDocument doc = null;
+        long sizeInBytes = upload.getLength();
         float fileSize = DocComplianceUtils.convertFileSizeFromBytesToMB(sizeInBytes);
         try {
-            reader = new PdfReader(inputStream);
-            doc = new PdfDocument(reader);
-            document = PdfModelBuilderUtils.initDocumentModel(doc);
-            PdfModelBuilderUtils.displayPdfMetadataHeading();
-            PdfModelBuilderUtils.displayPdfMetadata(doc);
-            FileFactModel fileFactModel = new FileFactModel();
-            int noOfPages = PdfModelBuilderUtils.initDocumentMetadataOutput(fileName, doc, sizeInBytes, fileSize);
+            int noOfPages;
+            PdfMetadataScanner scanner = null;
+            if (metadataScan) {
+                try (StageProfiler.Stage stage = StageProfiler.stage(StageProfiler.STAGE_OPEN)) {
+                    scanner = scanMetadata(upload);
+                }
+            }
+            if (scanner != null) {
+                document = PdfModelBuilderUtils.initDocumentModel(scanner);
+                PdfModelBuilderUtils.displayPdfMetadataHeading();
+                PdfModelBuilderUtils.displayPdfMetadata(scanner);
+                noOfPages = PdfModelBuilderUtils.initDocumentMetadataOutput(fileName, scanner, sizeInBytes, fileSize);
+            } else {
+                try (StageProfiler.Stage stage = StageProfiler.stage(StageProfiler.STAGE_OPEN)) {
+                    reader = getReader(upload);
+                    doc = new PdfDocument(reader);
+                }
+                document = PdfModelBuilderUtils.initDocumentModel(doc);
+                PdfModelBuilderUtils.displayPdfMetadataHeading();
+                PdfModelBuilderUtils.displayPdfMetadata(doc);
+                noOfPages = PdfModelBuilderUtils.initDocumentMetadataOutput(fileName, doc, sizeInBytes, fileSize);
+            }
             PdfModelBuilderUtils.displayFileSourceOutput(document);
+            FileFactModel fileFactModel = new FileFactModel();
             fileFactModel.setSize(fileSize);
             fileFactModel.setName(fileName);
             DocumentFactModel docFactModel = new DocumentFactModel();
@@ -76,7 +125,7 @@ public class PdfModelBuilder implements ComplianceModelBuilder {
             LOGGER.debug(e.getMessage(), e);
         } finally {
             LOGGER.info("");
-            PdfModelBuilderUtils.cleanUpFileObjects(reader, inputStream);
+            PdfModelBuilderUtils.cleanUpFileObjects(reader, null);
         }
 
         return document;
@@ -86,19 +135,28 @@ public class PdfModelBuilder implements ComplianceModelBuilder {
     @Override
     public DocumentModel buildModel(InputStream inputStream, String fileName, long sizeInBytes)
             throws CommonUtilException {
+        try (UploadBuffer upload = readUpload(inputStream)) {
+            return buildModel(upload, fileName);
+        }
+    }
+
+    public DocumentModel buildModel(UploadBuffer upload, String fileName) throws CommonUtilException {
 
         int numberOfPages = 0;
         DocumentModel document = null;
         PdfReader reader = null;
+        long sizeInBytes = upload.getLength();
 
         float fileSize = DocComplianceUtils.convertFileSizeFromBytesToMB(sizeInBytes);
+        boolean extractionStarted = false;
 
         try {
             
-            reader = new PdfReader(inputStream);
-            List<PageModel> pages = new ArrayList<>();
-            List<PageFactModel> pageFactModels = new ArrayList<>();
-            PdfDocument doc = new PdfDocument(reader);
+            PdfDocument doc;
+            try (StageProfiler.Stage stage = StageProfiler.stage(StageProfiler.STAGE_OPEN)) {
+                reader = getReader(upload);
+                doc = new PdfDocument(reader);
+            }
 
             FileFactModel fileFactModel = new FileFactModel();
             PdfModelBuilderUtils.displayPdfMetadataHeading();
@@ -109,40 +167,47 @@ public class PdfModelBuilder implements ComplianceModelBuilder {
             PdfModelBuilderUtils.displayParameterSettingOutput(params);
             fileFactModel.setSize(fileSize);
             fileFactModel.setName(fileName);
-            List<SectionModel> sections = new ArrayList<>();
-
-            Set<String> urls = new TreeSet<>();
+            DocumentPages documentPages = new DocumentPages();
             
             PdfModelBuilderUtils.displayBeginParsingMessage();
 
-            for (int k = 1; k <= numberOfPages; ++k) {
-                DocumentPart docPart = PdfModelBuilderUtils.getDocumentPart(doc, k, params);
-                PageModel page = docPart.getPage();
-                List<SectionModel> sectionHeadings = docPart.getSectionHeadings();
-                if (!sectionHeadings.isEmpty()) {
-                    sections.addAll(sectionHeadings);
-                }
-                if (page.getNoOfTextChars() > 0) {
-                    PageFactModel pageFactModel = DocComplianceUtils.getPageFactModel(page, params.getFontMap());
-                    pages.add(page);
-                    pageFactModels.add(pageFactModel);
-                    urls.addAll(page.getUrls());
+            PageSelection pageSelection = params.getPageSelection();
+            int[] pageNumbers = getPageNumbers(pageSelection, numberOfPages);
+            if (pageModelListener != null) {
+                pageModelListener.documentStarted(pageNumbers.length);
+            }
+            int workers = getWorkerCount(pageNumbers.length);
+            extractionStarted = true;
+            if (workers > 1) {
+                extractPagesInParallel(upload, pageNumbers, workers, documentPages);
+            } else {
+                Map<PdfIndirectReference, HashCode> streamDigests = new HashMap<>();
+                for (int pageNumber : pageNumbers) {
+                    addExtractedPage(extractPage(doc, pageNumber, streamDigests), documentPages);
                 }
             }
             
-            document = PdfModelBuilderUtils.completeDocumentModel(document, pages, sections);
+            List<SectionModel> sections = documentPages.getSections();
+            document = PdfModelBuilderUtils.completeDocumentModel(document,
+                    retainPages ? documentPages.getPages() : null, sections);
             PdfModelBuilderUtils.displayEndParsingMessage();
             
             List<SectionFactModel> secFactModels = DocComplianceUtils.getSectionFactModelList(sections);
             DocumentFactModel docFactModel = document.getDocFactModel();
-            if (docFactModel == null) {
+            if (pageSelection != null && !pageSelection.isAllPages()) {
+                SampledDocumentFactModel sampledFactModel = new SampledDocumentFactModel();
+                sampledFactModel.setPageSelection(pageSelection.toString());
+                sampledFactModel.setSampledPages(Ints.asList(pageNumbers));
+                docFactModel = sampledFactModel;
+            } else if (docFactModel == null) {
                 docFactModel = new DocumentFactModel();
             }
             docFactModel.setFile(fileFactModel);
-            docFactModel.setPages(pageFactModels);
+            docFactModel.setPages(retainPages ? documentPages.getPageFactModels() : null);
             docFactModel.setNoOfPages(document.getNoOfPages());
             docFactModel.setSections(secFactModels);
             docFactModel.setCorrectMimeType(true);
+            Set<String> urls = documentPages.getUrls();
             if (!urls.isEmpty()) {
                 @SuppressWarnings({ "unchecked", "rawtypes" })
                 List<String> urlList = new ArrayList(Arrays.asList(urls.toArray()));
@@ -162,12 +227,276 @@ public class PdfModelBuilder implements ComplianceModelBuilder {
             document.setPasswordProtected(true);
         } catch (Exception e) {
             LOGGER.info(e.getMessage(), e);
+            if (pageModelListener != null || extractionStarted) {
+                // Only part of the pages were extracted, or the listener has seen them, so the
+                // model must not be taken as complete
+                throw new CommonUtilException(e);
+            }
         } finally {
-            PdfModelBuilderUtils.cleanUpFileObjects(reader, inputStream);
+            PdfModelBuilderUtils.cleanUpFileObjects(reader, null);
         }
 
         return document;
 
     }
 
+    public PageModelListener getPageModelListener() {
+        return pageModelListener;
+    }
+
+    public void setPageModelListener(PageModelListener pageModelListener) {
+        this.pageModelListener = pageModelListener;
+    }
+
+    public boolean isRetainPages() {
+        return retainPages;
+    }
+
+    public void setRetainPages(boolean retainPages) {
+        this.retainPages = retainPages;
+    }
+
+    public boolean isMetadataScan() {
+        return metadataScan;
+    }
+
+    public void setMetadataScan(boolean metadataScan) {
+        this.metadataScan = metadataScan;
+    }
+
+    private ExtractedPage extractPage(PdfDocument doc, int pageNumber,
+            Map<PdfIndirectReference, HashCode> streamDigests) throws CommonUtilException {
+        DocumentPart docPart = PdfModelBuilderUtils.getDocumentPart(doc, pageNumber, params, streamDigests);
+        PageModel page = docPart.getPage();
+        PageFactModel pageFactModel = null;
+        if (page.getNoOfTextChars() > 0) {
+            try (StageProfiler.Stage stage = StageProfiler.stage(StageProfiler.STAGE_FACTS, pageNumber)) {
+                pageFactModel = DocComplianceUtils.getPageFactModel(page, params.getFontMap());
+            }
+        }
+        return new ExtractedPage(pageNumber, docPart, pageFactModel);
+    }
+
+    private void addExtractedPage(ExtractedPage extractedPage, DocumentPages documentPages)
+            throws CommonUtilException {
+        DocumentPart docPart = extractedPage.getDocumentPart();
+        PageModel page = docPart.getPage();
+        if (params.getComplianceMetrics() != null) {
+            params.getComplianceMetrics().pageProcessed(page.getNoOfTextChars());
+        }
+        if (params.getDiagnosticsReport() != null) {
+            params.getDiagnosticsReport().addPage(
+                    PdfModelBuilderUtils.getPageDiagnostics(extractedPage.getPageNumber(), docPart));
+        }
+        List<SectionModel> sectionHeadings = docPart.getSectionHeadings();
+        if (!sectionHeadings.isEmpty()) {
+            documentPages.getSections().addAll(sectionHeadings);
+        }
+        if (extractedPage.getPageFactModel() != null) {
+            if (retainPages) {
+                documentPages.getPages().add(page);
+                documentPages.getPageFactModels().add(extractedPage.getPageFactModel());
+            }
+            documentPages.getUrls().addAll(page.getUrls());
+        }
+        if (pageModelListener != null) {
+            pageModelListener.pageCompleted(extractedPage.getPageNumber(), page, extractedPage.getPageFactModel());
+        }
+    }
+
+    // Each worker reads its own run of the selected pages from its own document over the shared upload.
+    // Pages are handed over in page order as soon as they are extracted, so a listener sees the first
+    // run page by page while the later runs are extracted alongside it. A worker holds at most a few
+    // pages the request thread has not taken, so the later runs do not buffer the document. A run
+    // whose worker has not started, the pool being busy, is extracted by the request thread itself
+    private void extractPagesInParallel(UploadBuffer upload, int[] pageNumbers, int workers,
+            DocumentPages documentPages) throws CommonUtilException {
+        List<Future<?>> futures = new ArrayList<>();
+        List<BlockingQueue<ExtractedPage>> queues = new ArrayList<>();
+        List<int[]> runs = new ArrayList<>();
+        AtomicBoolean stopped = new AtomicBoolean();
+        StageProfiler profiler = StageProfiler.current();
+        int rangeSize = pageNumbers.length / workers;
+        int remainder = pageNumbers.length % workers;
+        int first = 0;
+        try {
+            for (int i = 0; i < workers; i++) {
+                int end = first + rangeSize + (i < remainder ? 1 : 0);
+                final int[] pages = Arrays.copyOfRange(pageNumbers, first, end);
+                final BlockingQueue<ExtractedPage> queue = new ArrayBlockingQueue<>(PAGES_BUFFERED_PER_WORKER);
+                queues.add(queue);
+                runs.add(pages);
+                futures.add(params.getExtractionExecutor().submit(() -> {
+                    StageProfiler.attach(profiler);
+                    try {
+                        extractPages(upload, pages, stopped, extractedPage -> offerPage(queue, extractedPage, stopped));
+                    } finally {
+                        StageProfiler.detach();
+                    }
+                    return null;
+                }));
+                first = end;
+            }
+            for (int i = 0; i < workers; i++) {
+                if (futures.get(i).cancel(false)) {
+                    extractPages(upload, runs.get(i), stopped,
+                            extractedPage -> addExtractedPage(extractedPage, documentPages));
+                    continue;
+                }
+                for (int k = 0; k < runs.get(i).length; k++) {
+                    addExtractedPage(takePage(queues.get(i), futures.get(i)), documentPages);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CommonUtilException(e);
+        } catch (ExecutionException e) {
+            throw new CommonUtilException(e.getCause());
+        } finally {
+            // The caller releases the upload once this returns, so no worker may still be reading it
+            stopped.set(true);
+            for (Future<?> future : futures) {
+                try {
+                    Uninterruptibles.getUninterruptibly(future);
+                } catch (ExecutionException | CancellationException e) {
+                    LOGGER.debug(e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    // Waits for the next page of a worker, or rethrows the failure of the worker
+    private static ExtractedPage takePage(BlockingQueue<ExtractedPage> queue, Future<?> future)
+            throws InterruptedException, ExecutionException, CommonUtilException {
+        ExtractedPage extractedPage = queue.poll();
+        while (extractedPage == null) {
+            if (future.isDone()) {
+                future.get();
+                extractedPage = queue.poll();
+                if (extractedPage == null) {
+                    throw new CommonUtilException("Extraction worker ended before handing over all of its pages");
+                }
+            } else {
+                extractedPage = queue.poll(PAGE_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+        return extractedPage;
+    }
+
+    // Waits for room in the queue of the worker, giving up once the caller gives up on the document
+    private static void offerPage(BlockingQueue<ExtractedPage> queue, ExtractedPage extractedPage,
+            AtomicBoolean stopped) throws InterruptedException {
+        while (!queue.offer(extractedPage, PAGE_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+            if (stopped.get()) {
+                return;
+            }
+        }
+    }
+
+    // Stops after the current page once the caller gives up on the document
+    private void extractPages(UploadBuffer upload, int[] pageNumbers, AtomicBoolean stopped,
+            ExtractedPageConsumer consumer) throws CommonUtilException, InterruptedException {
+        if (stopped.get()) {
+            return;
+        }
+        PdfReader reader = null;
+        try {
+            PdfDocument doc;
+            try (StageProfiler.Stage stage = StageProfiler.stage(StageProfiler.STAGE_OPEN)) {
+                reader = getReader(upload);
+                doc = new PdfDocument(reader);
+            }
+            Map<PdfIndirectReference, HashCode> streamDigests = new HashMap<>();
+            for (int pageNumber : pageNumbers) {
+                if (stopped.get()) {
+                    break;
+                }
+                consumer.accept(extractPage(doc, pageNumber, streamDigests));
+            }
+        } catch (IOException e) {
+            throw new CommonUtilException(e);
+        } finally {
+            PdfModelBuilderUtils.cleanUpFileObjects(reader, null);
+        }
+    }
+
+    private int getWorkerCount(int numberOfPages) {
+        if (params.getExtractionExecutor() == null || params.getExtractionParallelism() == null
+                || params.getExtractionMinPagesPerWorker() == null) {
+            return 1;
+        }
+        int minPagesPerWorker = Math.max(1, params.getExtractionMinPagesPerWorker());
+        return Math.max(1, Math.min(params.getExtractionParallelism(), numberOfPages / minPagesPerWorker));
+    }
+
+    private static int[] getPageNumbers(PageSelection pageSelection, int numberOfPages) {
+        if (pageSelection == null || pageSelection.isAllPages()) {
+            int[] pageNumbers = new int[numberOfPages];
+            for (int k = 0; k < numberOfPages; k++) {
+                pageNumbers[k] = k + 1;
+            }
+            return pageNumbers;
+        }
+        int[] pageNumbers = pageSelection.getPages(numberOfPages);
+        LOGGER.debug("Page selection " + pageSelection + ": " + pageNumbers.length + " of " + numberOfPages + " pages");
+        return pageNumbers;
+    }
+
+    private static PdfReader getReader(UploadBuffer upload) throws IOException {
+        return new PdfReader(upload.newRandomAccessSource(), new ReaderProperties());
+    }
+
+    // Reads the metadata without opening the document, or returns null if the file needs a full open
+    private static PdfMetadataScanner scanMetadata(UploadBuffer upload) {
+        PdfMetadataScanner scanner = new PdfMetadataScanner(upload.newRandomAccessSource());
+        try {
+            scanner.scan();
+            return scanner;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Metadata scan not possible, opening the document: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static UploadBuffer readUpload(InputStream inputStream) throws CommonUtilException {
+        try {
+            return UploadBuffer.wrap(StreamUtil.inputStreamToArray(inputStream));
+        } catch (IOException e) {
+            throw new CommonUtilException(e);
+        } finally {
+            PdfModelBuilderUtils.cleanUpFileObjects(null, inputStream);
+        }
+    }
+
+    private interface ExtractedPageConsumer {
+
+        void accept(ExtractedPage extractedPage) throws CommonUtilException, InterruptedException;
+
+    }
+
+    private static class DocumentPages {
+
+        private List<PageModel> pages = new ArrayList<>();
+        private List<PageFactModel> pageFactModels = new ArrayList<>();
+        private List<SectionModel> sections = new ArrayList<>();
+        private Set<String> urls = new TreeSet<>();
+
+        public List<PageModel> getPages() {
+            return pages;
+        }
+
+        public List<PageFactModel> getPageFactModels() {
+            return pageFactModels;
+        }
+
+        public List<SectionModel> getSections() {
+            return sections;
+        }
+
+        public Set<String> getUrls() {
+            return urls;
+        }
+
+    }
+
 }
@@ -0,0 +1,32 @@
+package gov.nsf.psm.documentcompliance.model.builder.pdf;
+
+import java.util.List;
+
+import gov.nsf.psm.factmodel.DocumentFactModel;
+
+/*
+ * Document fact model built from a subset of the pages. The page facts only cover the sampled
+ * pages, while the number of pages is still that of the whole document
+ */
+public class SampledDocumentFactModel extends DocumentFactModel {
+
+    private String pageSelection;
+    private List<Integer> sampledPages;
+
+    public String getPageSelection() {
+        return pageSelection;
+    }
+
+    public void setPageSelection(String pageSelection) {
+        this.pageSelection = pageSelection;
+    }
+
+    public List<Integer> getSampledPages() {
+        return sampledPages;
+    }
+
+    public void setSampledPages(List<Integer> sampledPages) {
+        this.sampledPages = sampledPages;
+    }
+
+}
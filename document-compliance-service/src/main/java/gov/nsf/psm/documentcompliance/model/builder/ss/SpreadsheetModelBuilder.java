@@ -7,13 +7,18 @@ import java.util.List;
 
 import org.apache.poi.EncryptedDocumentException;
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.xmlbeans.XmlException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXException;
 
+import gov.nsf.psm.documentcompliance.compliance.common.io.UploadBuffer;
 import gov.nsf.psm.documentcompliance.compliance.common.utility.DocComplianceUtils;
+import gov.nsf.psm.documentcompliance.compliance.common.utility.StageProfiler;
 import gov.nsf.psm.documentcompliance.compliance.ss.utility.SpreadsheetModelBuilderUtils;
 import gov.nsf.psm.documentcompliance.model.builder.ComplianceModelBuilder;
 import gov.nsf.psm.documentcompliance.service.parameter.SpreadsheetParameters;
@@ -45,12 +50,22 @@ public class SpreadsheetModelBuilder implements ComplianceModelBuilder {
 
     @Override
     public SpreadsheetModel buildMetadata(InputStream inputStream, String fileName, long sizeInBytes) {
+        return buildMetadata(() -> WorkbookFactory.create(inputStream), fileName, sizeInBytes);
+    }
+
+    public SpreadsheetModel buildMetadata(UploadBuffer upload, String fileName) {
+        return buildMetadata(() -> openWorkbook(upload), fileName, upload.getLength());
+    }
+
+    private SpreadsheetModel buildMetadata(WorkbookSource source, String fileName, long sizeInBytes) {
         long t1 = 0;
         long t2 = 0;
         SpreadsheetModel model = new SpreadsheetModel();
         Workbook wb = null;
         try {
-            wb = WorkbookFactory.create(inputStream);
+            try (StageProfiler.Stage stage = StageProfiler.stage(StageProfiler.STAGE_OPEN)) {
+                wb = source.open();
+            }
             model.setNoOfSheets(wb.getNumberOfSheets());
             FileFactModel fileModel = new FileFactModel();
             fileModel.setSize(DocComplianceUtils.convertFileSizeFromBytesToMB(sizeInBytes));
@@ -76,33 +91,79 @@ public class SpreadsheetModelBuilder implements ComplianceModelBuilder {
 
     @Override
     public SpreadsheetModel buildModel(InputStream inputStream, String fileName, long sizeInBytes) {
+        try {
+            return buildModel(() -> WorkbookFactory.create(inputStream));
+        } finally {
+            try {
+                inputStream.close();
+            } catch (IOException e) {
+                LOGGER.info(e.getMessage(), e);
+            }
+        }
+    }
+
+    public SpreadsheetModel buildModel(UploadBuffer upload, String fileName) {
+        if (isStreaming(upload)) {
+            SpreadsheetModel model = new SpreadsheetModel();
+            try {
+                if (new StreamingSpreadsheetReader(isTablesOnly, nonTextColumns, params).read(upload, model)) {
+                    return model;
+                }
+            } catch (EncryptedDocumentException e) {
+                model.setEncrypted(true);
+                LOGGER.info(e.getMessage(), e);
+                return model;
+            } catch (IOException | OpenXML4JException | SAXException | XmlException e) {
+                LOGGER.info(e.getMessage(), e);
+                return model;
+            }
+        }
+        return buildModel(() -> openWorkbook(upload));
+    }
+
+    // Large uploads are read row by row rather than loaded as a whole workbook
+    private boolean isStreaming(UploadBuffer upload) {
+        return params != null && params.getStreamingThresholdKb() != null && params.getStreamingThresholdKb() >= 0
+                && upload.getLength() >= params.getStreamingThresholdKb() * 1024L;
+    }
+
+    private SpreadsheetModel buildModel(WorkbookSource source) {
 
         SpreadsheetModel model = new SpreadsheetModel();
         Workbook wb = null;
 
         try {
-            wb = WorkbookFactory.create(inputStream);
+            try (StageProfiler.Stage stage = StageProfiler.stage(StageProfiler.STAGE_OPEN)) {
+                wb = source.open();
+            }
             model.setNoOfSheets(wb.getNumberOfSheets());
             List<WorksheetModel> workSheets = new ArrayList<>();
             for (int i = 0; i < wb.getNumberOfSheets(); i++) {
-                Sheet sheet = wb.getSheetAt(i);
-                WorksheetModel sheetModel = new WorksheetModel();
-                List<RowModel> rowModels = new ArrayList<>();
-                List<TableModel> tableModels = new ArrayList<>();
-                sheetModel.setFonts(new ArrayList<FontModel>());
-                sheetModel.setUrls(new ArrayList<String>());
-                sheetModel.setImages(new ArrayList<ImageModel>());
-                sheetModel.setFonts(SpreadsheetModelBuilderUtils.getFonts(wb));
-                sheetModel.setUrls(SpreadsheetModelBuilderUtils.getLinks(sheet));
-                sheetModel.setImages(SpreadsheetModelBuilderUtils.getImages(wb));
-                if (isTablesOnly) {
-                    tableModels.addAll(SpreadsheetModelBuilderUtils.processXSSFTables(sheet, nonTextColumns, params));
-                } else {
-                    rowModels.addAll(SpreadsheetModelBuilderUtils.processAllRows(sheet, nonTextColumns, params));
+                // Sheets are reported as the pages of the profile
+                try (StageProfiler.Stage stage = StageProfiler.stage(StageProfiler.STAGE_SHEETS, i + 1)) {
+                    Sheet sheet = wb.getSheetAt(i);
+                    WorksheetModel sheetModel = new WorksheetModel();
+                    List<RowModel> rowModels = new ArrayList<>();
+                    List<TableModel> tableModels = new ArrayList<>();
+                    sheetModel.setFonts(new ArrayList<FontModel>());
+                    sheetModel.setUrls(new ArrayList<String>());
+                    sheetModel.setImages(new ArrayList<ImageModel>());
+                    sheetModel.setFonts(SpreadsheetModelBuilderUtils.getFonts(wb));
+                    sheetModel.setUrls(SpreadsheetModelBuilderUtils.getLinks(sheet));
+                    sheetModel.setImages(SpreadsheetModelBuilderUtils.getImages(wb));
+                    if (isTablesOnly) {
+                        tableModels.addAll(
+                                SpreadsheetModelBuilderUtils.processXSSFTables(sheet, nonTextColumns, params));
+                    } else {
+                        rowModels.addAll(SpreadsheetModelBuilderUtils.processAllRows(sheet, nonTextColumns, params));
+                    }
+                    sheetModel.setRows(rowModels);
+                    sheetModel.setTables(tableModels);
+                    workSheets.add(sheetModel);
+                    if (params != null && params.getComplianceMetrics() != null) {
+                        params.getComplianceMetrics().sheetProcessed(sheet.getPhysicalNumberOfRows());
+                    }
                 }
-                sheetModel.setRows(rowModels);
-                sheetModel.setTables(tableModels);
-                workSheets.add(sheetModel);
             }
             model.setWorksheets(workSheets);
         } catch (EncryptedDocumentException e) {
@@ -114,7 +175,6 @@ public class SpreadsheetModelBuilder implements ComplianceModelBuilder {
             try {
                 if (wb != null)
                     wb.close();
-                inputStream.close();
             } catch (IOException e) {
                 LOGGER.info(e.getMessage(), e);
             }
@@ -122,4 +182,18 @@ public class SpreadsheetModelBuilder implements ComplianceModelBuilder {
         return model;
     }
 
+    // A spooled upload is opened from its file, read only, so POI does not copy it into memory
+    private static Workbook openWorkbook(UploadBuffer upload) throws IOException, InvalidFormatException {
+        if (upload.getFile() != null) {
+            return WorkbookFactory.create(upload.getFile(), null, true);
+        }
+        return WorkbookFactory.create(upload.newInputStream());
+    }
+
+    private interface WorkbookSource {
+
+        Workbook open() throws IOException, InvalidFormatException;
+
+    }
+
 }
@@ -0,0 +1,344 @@
+package gov.nsf.psm.documentcompliance.model.builder.ss;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageRelationship;
+import org.apache.poi.poifs.crypt.Decryptor;
+import org.apache.poi.poifs.filesystem.NPOIFSFileSystem;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.util.AreaReference;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.SAXHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFPictureData;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.apache.xmlbeans.XmlException;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTTable;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.TableDocument;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import gov.nsf.psm.documentcompliance.compliance.common.io.UploadBuffer;
+import gov.nsf.psm.documentcompliance.compliance.common.utility.StageProfiler;
+import gov.nsf.psm.documentcompliance.compliance.ss.HssfWorkbookListener;
+import gov.nsf.psm.documentcompliance.compliance.ss.SheetCell;
+import gov.nsf.psm.documentcompliance.compliance.ss.SheetEventListener;
+import gov.nsf.psm.documentcompliance.compliance.ss.XssfSheetHandler;
+import gov.nsf.psm.documentcompliance.compliance.ss.utility.SpreadsheetModelBuilderUtils;
+import gov.nsf.psm.documentcompliance.service.parameter.SpreadsheetParameters;
+import gov.nsf.psm.foundation.model.compliance.doc.FontModel;
+import gov.nsf.psm.foundation.model.compliance.doc.ImageModel;
+import gov.nsf.psm.foundation.model.compliance.ss.CellModel;
+import gov.nsf.psm.foundation.model.compliance.ss.RowModel;
+import gov.nsf.psm.foundation.model.compliance.ss.SpreadsheetModel;
+import gov.nsf.psm.foundation.model.compliance.ss.TableModel;
+import gov.nsf.psm.foundation.model.compliance.ss.WorksheetModel;
+
+/*
+ * Builds the same worksheet models as the usermodel path of SpreadsheetModelBuilder without
+ * loading the workbook: XLSX sheets are parsed with SAX over a read-only shared strings table,
+ * XLS workbooks with the HSSF event model. Heap use follows the width of a row, not the size
+ * of the workbook
+ */
+public class StreamingSpreadsheetReader implements SheetEventListener {
+
+    private static final byte[] OLE2_SIGNATURE = { (byte) 0xD0, (byte) 0xCF, (byte) 0x11, (byte) 0xE0 };
+    private static final byte[] ZIP_SIGNATURE = { 0x50, 0x4B, 0x03, 0x04 };
+    private static final Pattern MEDIA_PART_NAME = Pattern.compile("/xl/media/.*?");
+
+    private final boolean isTablesOnly;
+    private final List<String> nonTextColumns;
+    private final SpreadsheetParameters params;
+
+    private final List<WorksheetModel> workSheets = new ArrayList<>();
+    private List<FontModel> fonts;
+    private List<ImageModel> images;
+    private HssfWorkbookListener hssfListener;
+    private WorksheetModel sheetModel;
+    private List<RowModel> rowModels;
+    private List<StreamedTable> tables;
+    private List<Integer> nonStrCols;
+    private int rowNum;
+
+    public StreamingSpreadsheetReader(boolean isTablesOnly, List<String> nonTextColumns,
+            SpreadsheetParameters params) {
+        this.isTablesOnly = isTablesOnly;
+        this.nonTextColumns = nonTextColumns;
+        this.params = params;
+    }
+
+    // False when the upload is not a workbook this reader handles, such as an encrypted XLSX
+    public boolean read(UploadBuffer upload, SpreadsheetModel model)
+            throws IOException, OpenXML4JException, SAXException, XmlException {
+        byte[] signature = new byte[4];
+        try (InputStream inputStream = upload.newInputStream()) {
+            if (IOUtils.readFully(inputStream, signature) < signature.length) {
+                return false;
+            }
+        }
+        if (startsWith(signature, ZIP_SIGNATURE)) {
+            readXssf(upload);
+        } else if (startsWith(signature, OLE2_SIGNATURE)) {
+            if (!readHssf(upload)) {
+                return false;
+            }
+        } else {
+            return false;
+        }
+        model.setNoOfSheets(workSheets.size());
+        model.setWorksheets(workSheets);
+        return true;
+    }
+
+    private void readXssf(UploadBuffer upload) throws IOException, OpenXML4JException, SAXException, XmlException {
+        OPCPackage pkg = null;
+        try {
+            XSSFReader reader;
+            ReadOnlySharedStringsTable sharedStrings;
+            StylesTable styles;
+            boolean date1904;
+            try (StageProfiler.Stage stage = StageProfiler.stage(StageProfiler.STAGE_OPEN)) {
+                pkg = upload.getFile() != null ? OPCPackage.open(upload.getFile(), PackageAccess.READ)
+                        : OPCPackage.open(upload.newInputStream());
+                reader = new XSSFReader(pkg);
+                sharedStrings = new ReadOnlySharedStringsTable(pkg);
+                styles = reader.getStylesTable();
+                date1904 = isDate1904(reader);
+                fonts = new ArrayList<>();
+                if (styles != null) {
+                    for (int i = 0; i < styles.getFonts().size(); i++) {
+                        SpreadsheetModelBuilderUtils.addFont(fonts, styles.getFontAt(i).getFontName(),
+                                styles.getFontAt(i).getFontHeightInPoints());
+                    }
+                }
+                images = new ArrayList<>();
+                for (PackagePart part : pkg.getPartsByName(MEDIA_PART_NAME)) {
+                    ImageModel imageModel = new ImageModel();
+                    imageModel.setBitType(new MediaPictureData(part).getPictureType());
+                    images.add(imageModel);
+                }
+            }
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            int sheetIndex = 0;
+            while (sheets.hasNext()) {
+                try (InputStream sheetStream = sheets.next();
+                        StageProfiler.Stage stage = StageProfiler.stage(StageProfiler.STAGE_SHEETS, sheetIndex + 1)) {
+                    PackagePart sheetPart = sheets.getSheetPart();
+                    startSheet(sheetIndex++);
+                    if (isTablesOnly) {
+                        tables = getTables(sheetPart);
+                    }
+                    XMLReader parser = SAXHelper.newXMLReader();
+                    parser.setContentHandler(new XssfSheetHandler(sharedStrings, styles, date1904,
+                            sheetPart.getRelationshipsByType(XSSFRelation.SHEET_HYPERLINKS.getRelation()), this));
+                    parser.parse(new InputSource(sheetStream));
+                    endSheet();
+                }
+            }
+        } catch (ParserConfigurationException e) {
+            throw new SAXException(e);
+        } finally {
+            if (pkg != null) {
+                pkg.revert();
+            }
+        }
+    }
+
+    private boolean readHssf(UploadBuffer upload) throws IOException {
+        NPOIFSFileSystem fs = null;
+        try {
+            try (StageProfiler.Stage stage = StageProfiler.stage(StageProfiler.STAGE_OPEN)) {
+                fs = upload.getFile() != null ? new NPOIFSFileSystem(upload.getFile(), true)
+                        : new NPOIFSFileSystem(upload.newInputStream());
+            }
+            if (fs.getRoot().hasEntry(Decryptor.DEFAULT_POIFS_ENTRY)) {
+                return false; // An encrypted OOXML workbook
+            }
+            hssfListener = new HssfWorkbookListener(this);
+            HSSFRequest request = new HSSFRequest();
+            request.addListenerForAllRecords(hssfListener.getRequestListener());
+            try (StageProfiler.Stage stage = StageProfiler.stage(StageProfiler.STAGE_SHEETS)) {
+                new HSSFEventFactory().processWorkbookEvents(request, fs.getRoot());
+            }
+            return true;
+        } finally {
+            if (fs != null) {
+                fs.close();
+            }
+        }
+    }
+
+    @Override
+    public void startSheet(int sheetIndex) {
+        if (hssfListener != null) {
+            fonts = hssfListener.getFonts();
+            images = hssfListener.getImages();
+        }
+        sheetModel = new WorksheetModel();
+        sheetModel.setFonts(new ArrayList<>(fonts));
+        sheetModel.setUrls(new ArrayList<String>());
+        sheetModel.setImages(new ArrayList<>(images));
+        rowModels = new ArrayList<>();
+        tables = new ArrayList<>();
+        nonStrCols = new ArrayList<>();
+        rowNum = 0;
+    }
+
+    @Override
+    public void row(int rowIndex, List<SheetCell> cells) {
+        rowNum++;
+        if (hssfListener != null) {
+            if (!isTablesOnly) {
+                addRowModel(SpreadsheetModelBuilderUtils.processSheetCells(cells, params.getDefaultEncoding(),
+                        params.getCheckCharset()));
+            }
+        } else if (isTablesOnly) {
+            for (StreamedTable table : tables) {
+                if (rowIndex >= table.startRow && rowIndex <= table.endRow) {
+                    long tableRowNum = (long) rowIndex - table.startRow;
+                    List<CellModel> cellModels = SpreadsheetModelBuilderUtils.processSheetRow(cells, nonTextColumns,
+                            table.nonStrCols, params.getDefaultEncoding(), tableRowNum, params.getCheckCharset());
+                    SpreadsheetModelBuilderUtils.addNewRowModel(cellModels, table.rows, rowIndex, tableRowNum + 1);
+                }
+            }
+        } else {
+            addRowModel(SpreadsheetModelBuilderUtils.processSheetRow(cells, nonTextColumns, nonStrCols,
+                    params.getDefaultEncoding(), 0, params.getCheckCharset()));
+        }
+    }
+
+    @Override
+    public void hyperlink(String address) {
+        sheetModel.getUrls().add(address);
+    }
+
+    @Override
+    public void endSheet() {
+        List<TableModel> tableModels = new ArrayList<>();
+        for (StreamedTable table : tables) {
+            TableModel tableModel = new TableModel();
+            tableModel.setNum(tableModels.size() + 1);
+            tableModel.setName(table.name);
+            tableModel.setRows(table.rows);
+            tableModels.add(tableModel);
+        }
+        sheetModel.setRows(rowModels);
+        sheetModel.setTables(tableModels);
+        workSheets.add(sheetModel);
+        if (params.getComplianceMetrics() != null) {
+            params.getComplianceMetrics().sheetProcessed(rowNum);
+        }
+    }
+
+    private void addRowModel(List<CellModel> cellModels) {
+        RowModel rowModel = new RowModel();
+        rowModel.setCells(cellModels);
+        rowModel.setNum(rowNum);
+        rowModels.add(rowModel);
+    }
+
+    // Tables in the order of XSSFSheet.getTables(), by relationship id, sorted by first row
+    private static List<StreamedTable> getTables(PackagePart sheetPart)
+            throws OpenXML4JException, IOException, XmlException {
+        Map<String, StreamedTable> tablesById = new TreeMap<>();
+        for (PackageRelationship relationship : sheetPart.getRelationshipsByType(XSSFRelation.TABLE.getRelation())) {
+            try (InputStream tableStream = sheetPart.getRelatedPart(relationship).getInputStream()) {
+                tablesById.put(relationship.getId(),
+                        new StreamedTable(TableDocument.Factory.parse(tableStream).getTable()));
+            }
+        }
+        List<StreamedTable> tables = new ArrayList<>(tablesById.values());
+        tables.sort((t1, t2) -> t1.startRow - t2.startRow);
+        return tables;
+    }
+
+    private static boolean isDate1904(XSSFReader reader)
+            throws IOException, OpenXML4JException, SAXException, ParserConfigurationException {
+        WorkbookPropertiesHandler handler = new WorkbookPropertiesHandler();
+        try (InputStream workbookStream = reader.getWorkbookData()) {
+            XMLReader parser = SAXHelper.newXMLReader();
+            parser.setContentHandler(handler);
+            parser.parse(new InputSource(workbookStream));
+        }
+        return handler.date1904;
+    }
+
+    private static boolean startsWith(byte[] bytes, byte[] prefix) {
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * A table of the sheet being read, with the rows read so far
+     */
+    private static class StreamedTable {
+
+        private final String name;
+        private final int startRow;
+        private final int endRow;
+        private final List<Integer> nonStrCols = new ArrayList<>();
+        private final List<RowModel> rows = new ArrayList<>();
+
+        StreamedTable(CTTable table) {
+            AreaReference area = new AreaReference(table.getRef(), SpreadsheetVersion.EXCEL2007);
+            this.startRow = area.getFirstCell().getRow();
+            this.endRow = area.getLastCell().getRow();
+            String tableName = table.getDisplayName();
+            if (tableName != null && !tableName.isEmpty()) {
+                this.name = tableName.replaceAll("(?<=[a-z])([A-Z])", " $1");
+            } else {
+                this.name = "[" + "Table " + table.getId() + "]";
+            }
+        }
+
+    }
+
+    /*
+     * Picture type of a media part, as XSSFWorkbook.getAllPictures() reports it
+     */
+    private static class MediaPictureData extends XSSFPictureData {
+
+        MediaPictureData(PackagePart part) {
+            super(part);
+        }
+
+    }
+
+    private static class WorkbookPropertiesHandler extends DefaultHandler {
+
+        private boolean date1904;
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if ("workbookPr".equals(localName)) {
+                String value = attributes.getValue("date1904");
+                date1904 = "1".equals(value) || "true".equalsIgnoreCase(value);
+            }
+        }
+
+    }
+
+}
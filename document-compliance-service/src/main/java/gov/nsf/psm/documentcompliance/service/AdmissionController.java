@@ -0,0 +1,200 @@
+package gov.nsf.psm.documentcompliance.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import gov.nsf.psm.documentcompliance.compliance.common.io.UploadBuffer;
+import gov.nsf.psm.documentcompliance.compliance.pdf.PdfMetadataScanner;
+import gov.nsf.psm.foundation.exception.CommonUtilException;
+import gov.nsf.psm.foundation.model.compliance.ComplianceModel;
+
+/*
+ * Admits requests against a heap budget, in KB, with a fair weighted semaphore. The cost of a
+ * request is estimated from the upload size and MIME type, plus the page count for PDFs, since
+ * a spreadsheet DOM or the models of a long document take many times the size of the file.
+ * A request that costs more than the whole budget waits for all of it, so it runs alone
+ */
+public class AdmissionController implements PublicMetrics {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdmissionController.class);
+
+    public static final String METRIC_WAIT_TIME = "timer.admission.wait";
+    public static final String METRIC_ADMITTED = "admission.admitted";
+    public static final String METRIC_REJECTED = "admission.rejected";
+
+    private static final String METRIC_PREFIX = "admission.";
+    private static final int MIN_COST_KB = 64;
+
+    private final int budgetKb;
+    private final long timeoutMillis;
+    private final Semaphore semaphore;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private double pdfFactor = 4d;
+    private int pdfPageKb = 64;
+    private double xlsFactor = 8d;
+    private double xlsxFactor = 40d;
+    private double streamingFactor = 8d;
+    private int streamingThresholdKb = -1;
+    private double metadataFactor = 1d;
+
+    @Autowired
+    private ComplianceMetrics complianceMetrics;
+
+    @Autowired
+    private CounterService counterService;
+
+    // A budget of 0 disables admission control
+    public AdmissionController(int budgetKb, long timeoutMillis) {
+        this.budgetKb = budgetKb;
+        this.timeoutMillis = timeoutMillis;
+        this.semaphore = budgetKb > 0 ? new Semaphore(budgetKb, true) : null;
+    }
+
+    public Admission admit(UploadBuffer upload, String mimeType, boolean metadataOnly) throws CommonUtilException {
+        if (semaphore == null) {
+            return new Admission(null, 0);
+        }
+        int cost = (int) Math.min(budgetKb, getCost(upload, mimeType, metadataOnly));
+        long start = System.nanoTime();
+        waiting.incrementAndGet();
+        boolean admitted;
+        try {
+            admitted = semaphore.tryAcquire(cost, timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CommonUtilException(e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        complianceMetrics.recordTime(METRIC_WAIT_TIME, elapsedNanos);
+        double elapsed = elapsedNanos / 1000000d;
+        if (!admitted) {
+            counterService.increment(METRIC_REJECTED);
+            LOGGER.info("Request of " + cost + " KB rejected after " + elapsed + " ms, "
+                    + semaphore.availablePermits() + " KB available");
+            throw new AdmissionRejectedException("The service is busy, please try again later",
+                    (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(timeoutMillis)));
+        }
+        counterService.increment(METRIC_ADMITTED);
+        LOGGER.debug("Request of " + cost + " KB admitted after " + elapsed + " ms");
+        return new Admission(semaphore, cost);
+    }
+
+    // Estimated heap use in KB
+    public long getCost(UploadBuffer upload, String mimeType, boolean metadataOnly) {
+        long sizeKb = upload.getLength() / 1024;
+        double cost;
+        if (metadataOnly) {
+            cost = sizeKb * metadataFactor;
+        } else if (ComplianceModel.MIME_TYPE_PDF.equals(mimeType)) {
+            cost = sizeKb * pdfFactor + (long) getNumberOfPages(upload) * pdfPageKb;
+        } else if (isSpreadsheet(mimeType) && streamingThresholdKb >= 0 && sizeKb >= streamingThresholdKb) {
+            cost = sizeKb * streamingFactor;
+        } else if (ComplianceModel.MIME_TYPE_XLSX.equals(mimeType)) {
+            cost = sizeKb * xlsxFactor;
+        } else if (ComplianceModel.MIME_TYPE_XLS.equals(mimeType) || ComplianceModel.MIME_TYPE_MSO.equals(mimeType)) {
+            cost = sizeKb * xlsFactor;
+        } else {
+            cost = 0;
+        }
+        return Math.max(MIN_COST_KB, (long) cost);
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        Collection<Metric<?>> metrics = new ArrayList<>();
+        if (semaphore != null) {
+            metrics.add(new Metric<Integer>(METRIC_PREFIX + "budget.kb", budgetKb));
+            metrics.add(new Metric<Integer>(METRIC_PREFIX + "available.kb", semaphore.availablePermits()));
+            metrics.add(new Metric<Integer>(METRIC_PREFIX + "waiting", waiting.get()));
+        }
+        return metrics;
+    }
+
+    public void setPdfFactor(double pdfFactor) {
+        this.pdfFactor = pdfFactor;
+    }
+
+    public void setPdfPageKb(int pdfPageKb) {
+        this.pdfPageKb = pdfPageKb;
+    }
+
+    public void setXlsFactor(double xlsFactor) {
+        this.xlsFactor = xlsFactor;
+    }
+
+    public void setXlsxFactor(double xlsxFactor) {
+        this.xlsxFactor = xlsxFactor;
+    }
+
+    public void setMetadataFactor(double metadataFactor) {
+        this.metadataFactor = metadataFactor;
+    }
+
+    // Spreadsheets from the streaming threshold are read row by row, so they cost the streaming factor
+    public void setStreamingFactor(double streamingFactor) {
+        this.streamingFactor = streamingFactor;
+    }
+
+    public void setStreamingThresholdKb(int streamingThresholdKb) {
+        this.streamingThresholdKb = streamingThresholdKb;
+    }
+
+    private static boolean isSpreadsheet(String mimeType) {
+        return ComplianceModel.MIME_TYPE_XLSX.equals(mimeType) || ComplianceModel.MIME_TYPE_XLS.equals(mimeType)
+                || ComplianceModel.MIME_TYPE_MSO.equals(mimeType);
+    }
+
+    // Pages from the cross-reference scan, or none when the document needs a full open
+    private static int getNumberOfPages(UploadBuffer upload) {
+        PdfMetadataScanner scanner = new PdfMetadataScanner(upload.newRandomAccessSource());
+        try {
+            scanner.scan();
+            return scanner.getNumberOfPages();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Page count not available for admission: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /*
+     * Permits held by an admitted request, released on close
+     */
+    public static class Admission implements AutoCloseable {
+
+        private final Semaphore semaphore;
+        private final int permits;
+        private boolean released = false;
+
+        Admission(Semaphore semaphore, int permits) {
+            this.semaphore = semaphore;
+            this.permits = permits;
+        }
+
+        public int getPermits() {
+            return permits;
+        }
+
+        @Override
+        public void close() {
+            if (semaphore != null && !released) {
+                released = true;
+                semaphore.release(permits);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,23 @@
+package gov.nsf.psm.documentcompliance.service;
+
+import gov.nsf.psm.foundation.exception.CommonUtilException;
+
+/*
+ * Thrown when a request could not be admitted within the admission timeout
+ */
+public class AdmissionRejectedException extends CommonUtilException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int retryAfterSeconds;
+
+    public AdmissionRejectedException(String message, int retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+}
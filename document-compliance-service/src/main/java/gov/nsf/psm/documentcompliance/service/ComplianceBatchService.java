@@ -0,0 +1,15 @@
+package gov.nsf.psm.documentcompliance.service;
+
+import java.util.Collection;
+
+import javax.servlet.http.Part;
+
+import gov.nsf.psm.documentcompliance.service.batch.ComplianceModelBatch;
+import gov.nsf.psm.foundation.exception.CommonUtilException;
+
+public interface ComplianceBatchService {
+
+    public ComplianceModelBatch getComplianceModels(Collection<Part> parts, boolean metadataOnly)
+            throws CommonUtilException;
+
+}
@@ -0,0 +1,169 @@
+package gov.nsf.psm.documentcompliance.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.servlet.http.Part;
+
+import org.apache.catalina.core.ApplicationPart;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import gov.nsf.psm.documentcompliance.compliance.common.io.UploadBuffer;
+import gov.nsf.psm.documentcompliance.compliance.common.io.UploadBufferPool;
+import gov.nsf.psm.documentcompliance.compliance.common.utility.Constants;
+import gov.nsf.psm.documentcompliance.compliance.common.utility.DocComplianceUtils;
+import gov.nsf.psm.documentcompliance.service.batch.ComplianceModelBatch;
+import gov.nsf.psm.documentcompliance.service.parameter.PageSelection;
+import gov.nsf.psm.documentcompliance.service.parameter.RequestParameters;
+import gov.nsf.psm.foundation.exception.CommonUtilException;
+import gov.nsf.psm.foundation.model.compliance.ComplianceConfig;
+import gov.nsf.psm.foundation.model.compliance.ComplianceModel;
+
+/*
+ * Processes the files of one multipart request concurrently. Each file k is sent as FILE_k, and
+ * its parameters as TABLES_ONLY_k, MIME_TYPE_k_n, NONTEXT_COLUMN_k_n, PAGE_RANGES_k and
+ * PAGE_SAMPLE_k. MIME_TYPE_n and NONTEXT_COLUMN_n parts without a file index apply to every file
+ */
+public class ComplianceBatchServiceImpl implements ComplianceBatchService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ComplianceBatchServiceImpl.class);
+
+    private static final Pattern FILE_PART = Pattern.compile(Constants.PARAM_FILE + "_(\\d+)");
+    private static final Pattern TABLES_ONLY_PART = Pattern.compile(ComplianceConfig.TABLES_ONLY + "_(\\d+)");
+    private static final Pattern MIME_TYPE_PART = Pattern.compile(ComplianceConfig.MIME_TYPE + "_(\\d+)(_\\d+)?");
+    private static final Pattern NONTEXT_COLUMN_PART = Pattern
+            .compile(ComplianceConfig.NONTEXT_COLUMN + "_(\\d+)(_\\d+)?");
+    private static final Pattern PAGE_RANGES_PART = Pattern.compile(Constants.PARAM_PAGE_RANGES + "_(\\d+)");
+    private static final Pattern PAGE_SAMPLE_PART = Pattern.compile(Constants.PARAM_PAGE_SAMPLE + "_(\\d+)");
+
+    private final ExecutorService executor;
+    private final int maxFiles;
+
+    @Autowired
+    private DocumentComplianceService documentComplianceService;
+
+    @Autowired
+    private UploadBufferPool uploadBufferPool;
+
+    public ComplianceBatchServiceImpl(ExecutorService executor, int maxFiles) {
+        this.executor = executor;
+        this.maxFiles = maxFiles;
+    }
+
+    @Override
+    public ComplianceModelBatch getComplianceModels(Collection<Part> parts, boolean metadataOnly)
+            throws CommonUtilException {
+        Map<Integer, RequestParameters> files = getRequestParameters(parts);
+        if (files.size() > maxFiles) {
+            throw new CommonUtilException("A batch may contain at most " + maxFiles + " files");
+        }
+        Map<String, Future<ComplianceModel>> futures = new TreeMap<>();
+        List<String> fileNames = new ArrayList<>();
+        ComplianceModelBatch batch = new ComplianceModelBatch();
+        try {
+            for (RequestParameters requestParams : files.values()) {
+                String fileName = getUniqueFileName(requestParams.getFileName(), fileNames);
+                fileNames.add(fileName);
+                futures.put(fileName, executor.submit(() -> getComplianceModel(requestParams, metadataOnly)));
+            }
+            // Results are collected in the order the files were sent
+            for (String fileName : fileNames) {
+                try {
+                    batch.getComplianceModels().put(fileName, futures.get(fileName).get());
+                } catch (ExecutionException e) {
+                    LOGGER.info("Batch file " + fileName + " failed: " + e.getCause().getMessage(), e.getCause());
+                    batch.getErrors().put(fileName, String.valueOf(e.getCause().getMessage()));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CommonUtilException(e);
+        } finally {
+            for (Future<ComplianceModel> future : futures.values()) {
+                future.cancel(true);
+            }
+        }
+        return batch;
+    }
+
+    private ComplianceModel getComplianceModel(RequestParameters requestParams, boolean metadataOnly)
+            throws CommonUtilException {
+        requestParams.setPageSelection(
+                new PageSelection(requestParams.getPageRanges(), requestParams.getPageSample()));
+        try (UploadBuffer upload = uploadBufferPool.spool(requestParams.getFilePart())) {
+            return documentComplianceService.getComplianceModel(upload, requestParams, metadataOnly, null);
+        }
+    }
+
+    // Groups the parts by file index; parameters without a file index are added to every file
+    private static Map<Integer, RequestParameters> getRequestParameters(Collection<Part> parts)
+            throws CommonUtilException {
+        Map<Integer, RequestParameters> files = new TreeMap<>();
+        List<String> sharedMimeTypes = new ArrayList<>();
+        List<String> sharedNonTextColumns = new ArrayList<>();
+        for (Part part : parts) {
+            ApplicationPart applicationPart = (ApplicationPart) part;
+            String name = part.getName();
+            Matcher matcher;
+            if ((matcher = FILE_PART.matcher(name)).matches()) {
+                RequestParameters requestParams = getFile(files, matcher);
+                requestParams.setFilePart(applicationPart);
+                requestParams.setFileName(applicationPart.getSubmittedFileName() != null
+                        ? applicationPart.getSubmittedFileName() : name);
+            } else if ((matcher = TABLES_ONLY_PART.matcher(name)).matches()) {
+                getFile(files, matcher).setTablesOnly(DocComplianceUtils.getIsTablesOnly(applicationPart));
+            } else if ((matcher = MIME_TYPE_PART.matcher(name)).matches()) {
+                (matcher.group(2) == null ? sharedMimeTypes : getFile(files, matcher).getMimeTypes())
+                        .addAll(DocComplianceUtils.getParams(applicationPart));
+            } else if ((matcher = NONTEXT_COLUMN_PART.matcher(name)).matches()) {
+                (matcher.group(2) == null ? sharedNonTextColumns : getFile(files, matcher).getNonTextColumns())
+                        .addAll(DocComplianceUtils.getParams(applicationPart));
+            } else if ((matcher = PAGE_RANGES_PART.matcher(name)).matches()) {
+                getFile(files, matcher).setPageRanges(DocComplianceUtils.getParams(applicationPart).get(0));
+            } else if ((matcher = PAGE_SAMPLE_PART.matcher(name)).matches()) {
+                getFile(files, matcher).setPageSample(DocComplianceUtils.getParams(applicationPart).get(0));
+            }
+        }
+        for (Map.Entry<Integer, RequestParameters> file : files.entrySet()) {
+            RequestParameters requestParams = file.getValue();
+            if (requestParams.getFilePart() == null) {
+                throw new CommonUtilException("Parameters sent for file " + file.getKey() + " without a "
+                        + Constants.PARAM_FILE + "_" + file.getKey() + " part");
+            }
+            requestParams.getMimeTypes().addAll(sharedMimeTypes);
+            requestParams.getNonTextColumns().addAll(sharedNonTextColumns);
+        }
+        return files;
+    }
+
+    private static RequestParameters getFile(Map<Integer, RequestParameters> files, Matcher matcher) {
+        Integer index = Integer.valueOf(matcher.group(1));
+        RequestParameters requestParams = files.get(index);
+        if (requestParams == null) {
+            requestParams = new RequestParameters();
+            files.put(index, requestParams);
+        }
+        return requestParams;
+    }
+
+    // Files sent twice under the same name are told apart by their position
+    private static String getUniqueFileName(String fileName, List<String> fileNames) {
+        String uniqueFileName = fileName;
+        int i = 2;
+        while (fileNames.contains(uniqueFileName)) {
+            uniqueFileName = fileName + " (" + i++ + ")";
+        }
+        return uniqueFileName;
+    }
+
+}
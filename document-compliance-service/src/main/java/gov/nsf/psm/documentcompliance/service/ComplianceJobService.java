@@ -0,0 +1,20 @@
+package gov.nsf.psm.documentcompliance.service;
+
+import java.util.Collection;
+
+import javax.servlet.http.Part;
+
+import gov.nsf.psm.documentcompliance.service.job.ComplianceJob;
+import gov.nsf.psm.foundation.exception.CommonUtilException;
+
+public interface ComplianceJobService {
+
+    // Throws RejectedExecutionException when the job queue is full
+    public ComplianceJob submit(Collection<Part> parts, boolean metadataOnly) throws CommonUtilException;
+
+    // Null if the job is unknown or has expired
+    public ComplianceJob getJob(String id);
+
+    public int getRetryAfterSeconds();
+
+}
@@ -0,0 +1,190 @@
+package gov.nsf.psm.documentcompliance.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.Part;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
+
+import gov.nsf.psm.documentcompliance.compliance.common.io.UploadBuffer;
+import gov.nsf.psm.documentcompliance.compliance.common.io.UploadBufferPool;
+import gov.nsf.psm.documentcompliance.service.job.ComplianceJob;
+import gov.nsf.psm.documentcompliance.service.parameter.RequestParameters;
+import gov.nsf.psm.foundation.exception.CommonUtilException;
+import gov.nsf.psm.foundation.model.compliance.ComplianceModel;
+
+/*
+ * Runs compliance model requests on a bounded executor. The upload is spooled while the request
+ * is still open, since the multipart files go away with it, and released when the job ends.
+ * Finished jobs are kept for the retention period so their result can be collected, weighed by
+ * the size of their result as JSON. Once their total weight reaches the maximum size the least
+ * recently read finished jobs are evicted first. Queued and running jobs are bounded by the
+ * executor and are never evicted
+ */
+public class ComplianceJobServiceImpl implements ComplianceJobService, PublicMetrics {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ComplianceJobServiceImpl.class);
+
+    private static final String METRIC_PREFIX = "jobs.compliance.";
+
+    private final ThreadPoolExecutor executor;
+    private final int retryAfterSeconds;
+    private final Map<String, ComplianceJob> activeJobs = new ConcurrentHashMap<>();
+    private final Cache<String, FinishedJob> finishedJobs;
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DocumentComplianceService documentComplianceService;
+
+    @Autowired
+    private UploadBufferPool uploadBufferPool;
+
+    public ComplianceJobServiceImpl(ThreadPoolExecutor executor, long retentionMinutes, long retentionMaxSizeKb,
+            int retryAfterSeconds) {
+        this.executor = executor;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.finishedJobs = CacheBuilder.newBuilder().maximumWeight(Math.max(1, retentionMaxSizeKb))
+                .weigher(new Weigher<String, FinishedJob>() {
+                    @Override
+                    public int weigh(String key, FinishedJob value) {
+                        return value.getWeight();
+                    }
+                }).expireAfterWrite(retentionMinutes, TimeUnit.MINUTES).recordStats().build();
+    }
+
+    @Override
+    public ComplianceJob submit(Collection<Part> parts, boolean metadataOnly) throws CommonUtilException {
+        if (executor.getQueue().remainingCapacity() == 0) {
+            // Rejected before the upload is spooled
+            rejectedCount.incrementAndGet();
+            throw new RejectedExecutionException("The compliance job queue is full");
+        }
+        RequestParameters requestParams = documentComplianceService.getRequestParameters(parts);
+        UploadBuffer upload = uploadBufferPool.spool(requestParams.getFilePart());
+        ComplianceJob job = new ComplianceJob(UUID.randomUUID().toString(), requestParams.getFileName(),
+                metadataOnly);
+        activeJobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job, upload, requestParams));
+        } catch (RejectedExecutionException e) {
+            activeJobs.remove(job.getId());
+            upload.close();
+            rejectedCount.incrementAndGet();
+            throw e;
+        }
+        LOGGER.info("Compliance job " + job.getId() + " queued for " + job.getFileName());
+        return job;
+    }
+
+    @Override
+    public ComplianceJob getJob(String id) {
+        ComplianceJob job = activeJobs.get(id);
+        if (job != null) {
+            return job;
+        }
+        FinishedJob finishedJob = finishedJobs.getIfPresent(id);
+        return finishedJob != null ? finishedJob.getJob() : null;
+    }
+
+    @Override
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        Collection<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<Integer>(METRIC_PREFIX + "queued", executor.getQueue().size()));
+        metrics.add(new Metric<Integer>(METRIC_PREFIX + "running", executor.getActiveCount()));
+        metrics.add(new Metric<Long>(METRIC_PREFIX + "retained", finishedJobs.size()));
+        metrics.add(new Metric<Long>(METRIC_PREFIX + "evicted", finishedJobs.stats().evictionCount()));
+        metrics.add(new Metric<Long>(METRIC_PREFIX + "rejected", rejectedCount.get()));
+        return metrics;
+    }
+
+    // A job that is not admitted in time goes back to waiting for admission. The job was accepted
+    // when it was queued, so a busy service delays it rather than failing it
+    private void run(ComplianceJob job, UploadBuffer upload, RequestParameters requestParams) {
+        try {
+            boolean done = false;
+            while (!done) {
+                job.started();
+                try {
+                    ComplianceModel compliance = documentComplianceService.getComplianceModel(upload, requestParams,
+                            job.isMetadataOnly(), job);
+                    done = true;
+                    job.completed(compliance);
+                } catch (AdmissionRejectedException e) {
+                    LOGGER.debug("Compliance job " + job.getId() + " not admitted yet: " + e.getMessage());
+                    job.requeued();
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.info("Compliance job " + job.getId() + " failed: " + e.getMessage(), e);
+            job.failed(e.getMessage());
+        } finally {
+            upload.close();
+            // Retained before it leaves the active jobs, so the job can always be looked up
+            finishedJobs.put(job.getId(), new FinishedJob(job, getWeight(job.getComplianceModel())));
+            activeJobs.remove(job.getId());
+        }
+    }
+
+    // Weight in KB of the result as it is returned to clients
+    private int getWeight(ComplianceModel compliance) {
+        if (compliance == null) {
+            return 1;
+        }
+        CountingOutputStream out = new CountingOutputStream(ByteStreams.nullOutputStream());
+        try {
+            objectMapper.writeValue(out, compliance);
+        } catch (IOException e) {
+            LOGGER.debug(e.getMessage(), e);
+        }
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1, out.getCount() / 1024));
+    }
+
+    private static class FinishedJob {
+
+        private final ComplianceJob job;
+        private final int weight;
+
+        FinishedJob(ComplianceJob job, int weight) {
+            this.job = job;
+            this.weight = weight;
+        }
+
+        public ComplianceJob getJob() {
+            return job;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+
+    }
+
+}
@@ -0,0 +1,55 @@
+package gov.nsf.psm.documentcompliance.service;
+
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+/*
+ * Throughput meters and nanosecond timers kept in the Dropwizard registry, which the actuator
+ * publishes under /internal/manage/metrics: counts and rates for meters, and for timers the
+ * count, rates and snapshot percentiles (e.g. timer.mime.detection.snapshot.99thPercentile), in ns
+ */
+public class ComplianceMetrics {
+
+    public static final String METER_PAGES = "meter.pages.processed";
+    public static final String METER_CHARACTERS = "meter.characters.extracted";
+    public static final String METER_SHEETS = "meter.sheets.processed";
+    public static final String METER_ROWS = "meter.rows.processed";
+    public static final String METER_BYTES = "meter.bytes.ingested";
+
+    private final MetricRegistry registry;
+    private final Meter pages;
+    private final Meter characters;
+    private final Meter sheets;
+    private final Meter rows;
+    private final Meter bytes;
+
+    public ComplianceMetrics(MetricRegistry registry) {
+        this.registry = registry;
+        this.pages = registry.meter(METER_PAGES);
+        this.characters = registry.meter(METER_CHARACTERS);
+        this.sheets = registry.meter(METER_SHEETS);
+        this.rows = registry.meter(METER_ROWS);
+        this.bytes = registry.meter(METER_BYTES);
+    }
+
+    public void pageProcessed(long noOfTextChars) {
+        pages.mark();
+        characters.mark(noOfTextChars);
+    }
+
+    public void sheetProcessed(long noOfRows) {
+        sheets.mark();
+        rows.mark(noOfRows);
+    }
+
+    public void bytesIngested(long noOfBytes) {
+        bytes.mark(noOfBytes);
+    }
+
+    public void recordTime(String name, long nanos) {
+        registry.timer(name).update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+}
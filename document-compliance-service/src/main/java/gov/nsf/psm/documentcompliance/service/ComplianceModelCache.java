@@ -0,0 +1,151 @@
+package gov.nsf.psm.documentcompliance.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.BaseEncoding;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import gov.nsf.psm.documentcompliance.compliance.common.io.UploadBuffer;
+import gov.nsf.psm.foundation.exception.CommonUtilException;
+import gov.nsf.psm.foundation.model.compliance.ComplianceModel;
+import gov.nsf.psm.foundation.model.compliance.ss.SpreadsheetModel;
+
+/*
+ * Compliance models keyed by the SHA-256 of the uploaded bytes and a fingerprint of the parameters
+ * they were built with. Models are kept as JSON written by the service's ObjectMapper, weighed by
+ * its size and evicted least recently used first, or once they have not been read for the
+ * configured time. Every hit is a private copy, so callers may change the model they are given.
+ * Only builds that ended without an exception, on a thread that was not interrupted, are kept
+ */
+public class ComplianceModelCache implements PublicMetrics {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ComplianceModelCache.class);
+
+    private static final String METRIC_PREFIX = "cache.complianceModel.";
+
+    private final Cache<String, byte[]> cache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // A maximum size of 0 disables the cache
+    public ComplianceModelCache(long maxSizeKb, long expireAfterAccessMinutes) {
+        if (maxSizeKb > 0) {
+            CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().maximumWeight(maxSizeKb)
+                    .weigher(new Weigher<String, byte[]>() {
+                        @Override
+                        public int weigh(String key, byte[] value) {
+                            return Math.max(1, value.length / 1024);
+                        }
+                    }).recordStats();
+            if (expireAfterAccessMinutes > 0) {
+                builder.expireAfterAccess(expireAfterAccessMinutes, TimeUnit.MINUTES);
+            }
+            this.cache = builder.build();
+        } else {
+            this.cache = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    public String getKey(UploadBuffer upload, String parameterFingerprint) throws CommonUtilException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            upload.update(digest);
+            return BaseEncoding.base16().encode(digest.digest()) + ":"
+                    + Hashing.sha256().hashString(parameterFingerprint, StandardCharsets.UTF_8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new CommonUtilException(e);
+        }
+    }
+
+    // Returns the cached model, or builds and caches it; concurrent requests for the same key wait for one build
+    public ComplianceModel get(String key, Callable<ComplianceModel> loader) throws CommonUtilException {
+        ComplianceModel[] built = new ComplianceModel[1];
+        byte[] json;
+        try {
+            json = cache.get(key, () -> {
+                ComplianceModel compliance = loader.call();
+                if (Thread.currentThread().isInterrupted()) {
+                    // The builders may have stopped early, so the model is not known to be complete
+                    throw new CommonUtilException("Interrupted while building the compliance model");
+                }
+                built[0] = compliance;
+                return objectMapper.writeValueAsBytes(compliance);
+            });
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof CommonUtilException) {
+                throw (CommonUtilException) e.getCause();
+            }
+            throw new CommonUtilException(e.getCause());
+        }
+        // The model built by this request is not shared, the cache only holds its JSON
+        if (built[0] != null) {
+            return built[0];
+        }
+        try {
+            ComplianceModel compliance = objectMapper.readValue(json, ComplianceModel.class);
+            resetProcessingTime(compliance);
+            return compliance;
+        } catch (IOException e) {
+            LOGGER.debug(e.getMessage(), e);
+            cache.invalidate(key);
+            return get(key, loader);
+        }
+    }
+
+    public void invalidateAll() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        Collection<Metric<?>> metrics = new ArrayList<>();
+        if (cache == null) {
+            return metrics;
+        }
+        CacheStats stats = cache.stats();
+        metrics.add(new Metric<Long>(METRIC_PREFIX + "size", cache.size()));
+        metrics.add(new Metric<Long>(METRIC_PREFIX + "hits", stats.hitCount()));
+        metrics.add(new Metric<Long>(METRIC_PREFIX + "misses", stats.missCount()));
+        metrics.add(new Metric<Long>(METRIC_PREFIX + "evictions", stats.evictionCount()));
+        metrics.add(new Metric<Double>(METRIC_PREFIX + "hit.ratio", stats.hitRate()));
+        metrics.add(new Metric<Double>(METRIC_PREFIX + "load.average", stats.averageLoadPenalty() / 1000000d));
+        return metrics;
+    }
+
+    // A hit carries the processing time of the request that built it, so it is set for this request as
+    // the spreadsheet builder sets it
+    private static void resetProcessingTime(ComplianceModel compliance) {
+        SpreadsheetModel ssModel = compliance.getSsModel();
+        if (ssModel != null) {
+            ssModel.setProcessingTime(System.currentTimeMillis() / 1000);
+        }
+    }
+
+}
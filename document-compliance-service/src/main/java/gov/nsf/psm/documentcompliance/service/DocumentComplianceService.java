@@ -7,6 +7,10 @@ import javax.servlet.http.Part;
 
 import org.apache.catalina.core.ApplicationPart;
 
+import gov.nsf.psm.documentcompliance.compliance.common.io.UploadBuffer;
+import gov.nsf.psm.documentcompliance.model.builder.pdf.PageModelListener;
+import gov.nsf.psm.documentcompliance.service.parameter.PageSelection;
+import gov.nsf.psm.documentcompliance.service.parameter.RequestParameters;
 import gov.nsf.psm.foundation.exception.CommonUtilException;
 import gov.nsf.psm.foundation.model.compliance.ComplianceModel;
 
@@ -14,9 +18,27 @@ public interface DocumentComplianceService {
 
     public ComplianceModel getComplianceModel(Collection<Part> parts, boolean metadataOnly) throws CommonUtilException;
 
+    public ComplianceModel getComplianceModel(Collection<Part> parts, PageModelListener listener)
+            throws CommonUtilException;
+
+    public ComplianceModel getComplianceModel(UploadBuffer upload, RequestParameters requestParams,
+            boolean metadataOnly, PageModelListener listener) throws CommonUtilException;
+
+    public RequestParameters getRequestParameters(Collection<Part> parts) throws CommonUtilException;
+
     public ComplianceModel getMetadata(ApplicationPart filePart, List<String> mimeTypes) throws CommonUtilException;
 
     public ComplianceModel getModel(ApplicationPart filePart, List<String> mimeTypes, List<String> nonTextColumns,
             boolean isTablesOnly) throws CommonUtilException;
 
+    public ComplianceModel getModel(ApplicationPart filePart, List<String> mimeTypes, List<String> nonTextColumns,
+            boolean isTablesOnly, PageModelListener listener) throws CommonUtilException;
+
+    public ComplianceModel getMetadata(UploadBuffer upload, String fileName, List<String> mimeTypes)
+            throws CommonUtilException;
+
+    public ComplianceModel getModel(UploadBuffer upload, String fileName, List<String> mimeTypes,
+            List<String> nonTextColumns, boolean isTablesOnly, PageSelection pageSelection, PageModelListener listener)
+            throws CommonUtilException;
+
 }
@@ -1,21 +1,36 @@
 package gov.nsf.psm.documentcompliance.service;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
 
 import javax.servlet.http.Part;
 
 import org.apache.catalina.core.ApplicationPart;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Joiner;
+
+import gov.nsf.psm.documentcompliance.compliance.common.io.UploadBuffer;
+import gov.nsf.psm.documentcompliance.compliance.common.io.UploadBufferPool;
 import gov.nsf.psm.documentcompliance.compliance.common.utility.Constants;
+import gov.nsf.psm.documentcompliance.compliance.common.utility.DiagnosticsReport;
+import gov.nsf.psm.documentcompliance.compliance.common.utility.StageProfiler;
 import gov.nsf.psm.documentcompliance.compliance.common.utility.DocComplianceUtils;
+import gov.nsf.psm.documentcompliance.model.builder.pdf.PageModelListener;
+import gov.nsf.psm.documentcompliance.service.parameter.PageSelection;
 import gov.nsf.psm.documentcompliance.service.parameter.PdfParameters;
+import gov.nsf.psm.documentcompliance.service.parameter.RequestParameters;
 import gov.nsf.psm.documentcompliance.service.parameter.SpreadsheetParameters;
 import gov.nsf.psm.foundation.exception.CommonUtilException;
 import gov.nsf.psm.foundation.model.compliance.ComplianceConfig;
@@ -41,6 +56,46 @@ public class DocumentComplianceServiceImpl implements DocumentComplianceService
 
     @Value("${pdf.logging.text.extractor.use}")
     private Boolean useTextExtractor;
+
+    @Value("${pdf.extraction.single-pass}")
+    private Boolean singlePassExtraction;
+
+    @Value("${pdf.extraction.chunk-events}")
+    private Boolean chunkEvents;
+
+    @Value("${pdf.leading.precision}")
+    private Double leadingPrecision;
+
+    @Value("${pdf.metadata.scan}")
+    private Boolean metadataScan;
+
+    @Value("${pdf.extraction.parallelism}")
+    private Integer extractionParallelism;
+
+    @Value("${pdf.extraction.min-pages-per-worker}")
+    private Integer extractionMinPagesPerWorker;
+
+    @Autowired
+    @Qualifier("pdfExtractionExecutor")
+    private ExecutorService pdfExtractionExecutor;
+
+    @Autowired
+    private UploadBufferPool uploadBufferPool;
+
+    @Autowired
+    private MimeTypeDetectionService mimeTypeDetectionService;
+
+    @Autowired
+    private ComplianceModelCache complianceModelCache;
+
+    @Autowired
+    private DocumentPartCache documentPartCache;
+
+    @Autowired
+    private AdmissionController admissionController;
+
+    @Autowired
+    private ComplianceMetrics complianceMetrics;
     
     @Value("${spreadsheet.encoding.charset.check}")
     private Boolean checkCharset;
@@ -48,70 +103,85 @@ public class DocumentComplianceServiceImpl implements DocumentComplianceService
     @Value("${spreadsheet.encoding.charset.default}")
     private String defaultEncoding;
 
+    @Value("${spreadsheet.streaming.threshold-kb}")
+    private Integer spreadsheetStreamingThresholdKb;
+
+    @Value("${diagnostics.sample-rate}")
+    private Double diagnosticsSampleRate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
     private String logNotACorrectMimeType = "The document to be checked is not an allowed MIME type";
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DocumentComplianceServiceImpl.class);
+    private static final Logger DIAGNOSTICS_LOGGER = LoggerFactory.getLogger(Constants.DIAGNOSTICS_LOGGER);
 
     @Override
     public ComplianceModel getComplianceModel(Collection<Part> parts, boolean metadataOnly) throws CommonUtilException {
-        int i = 0;
-        boolean isTablesOnly = false;
-        ApplicationPart filePart = null;
-        List<String> mimeTypes = new ArrayList<>();
-        List<String> nonTextColumns = new ArrayList<>();
-        for (Part part : parts) {
-            boolean addValues = false;
-            switch (i) {
-            case 0:
-                filePart = (ApplicationPart) part;
-                break;
-            case 1:
-                isTablesOnly = DocComplianceUtils.getIsTablesOnly((ApplicationPart) part);
-                break;
-            default:
-                addValues = true;
-                break;
-            }
-            if (addValues) {
-                if (part.getName().indexOf(ComplianceConfig.MIME_TYPE + "_") > -1) {
-                    mimeTypes.addAll(DocComplianceUtils.getParams((ApplicationPart) part));
-                }
-                if (part.getName().indexOf(ComplianceConfig.NONTEXT_COLUMN + "_") > -1) {
-                    nonTextColumns.addAll(DocComplianceUtils.getParams((ApplicationPart) part));
-                }
-            }
-            i++;
+        RequestParameters requestParams = getRequestParameters(parts);
+        try (UploadBuffer upload = spool(requestParams.getFilePart())) {
+            return getComplianceModel(upload, requestParams, metadataOnly, null);
         }
-        if (metadataOnly) {
-            return getMetadata(filePart, mimeTypes);
-        } else {
-            return getModel(filePart, mimeTypes, nonTextColumns, isTablesOnly);
+    }
+
+    @Override
+    public ComplianceModel getComplianceModel(Collection<Part> parts, PageModelListener listener)
+            throws CommonUtilException {
+        RequestParameters requestParams = getRequestParameters(parts);
+        try (UploadBuffer upload = spool(requestParams.getFilePart())) {
+            // Pages are only streamed while the document is parsed, so the result cache is not used
+            return buildComplianceModel(upload, requestParams, false, listener);
         }
     }
 
+    @Override
+    public ComplianceModel getComplianceModel(UploadBuffer upload, RequestParameters requestParams,
+            boolean metadataOnly, PageModelListener listener) throws CommonUtilException {
+        // A profiled request is always analysed, so its timings describe the work. So is a request
+        // with a listener, which has to see its pages as they are processed
+        if (!complianceModelCache.isEnabled() || StageProfiler.current() != null || listener != null) {
+            return buildComplianceModel(upload, requestParams, metadataOnly, listener);
+        }
+        String key = complianceModelCache.getKey(upload, getParameterFingerprint(requestParams, metadataOnly));
+        return complianceModelCache.get(key,
+                () -> buildComplianceModel(upload, requestParams, metadataOnly, listener));
+    }
+
     @Override
     public ComplianceModel getMetadata(ApplicationPart filePart, List<String> mimeTypes) throws CommonUtilException {
+        try (UploadBuffer upload = uploadBufferPool.spool(filePart)) {
+            return getMetadata(upload, DocComplianceUtils.getFileName(filePart), mimeTypes);
+        }
+    }
+
+    @Override
+    public ComplianceModel getMetadata(UploadBuffer upload, String fileName, List<String> mimeTypes)
+            throws CommonUtilException {
         ComplianceModel compliance = new ComplianceModel();
         try {
-            String mimeType = DocComplianceUtils.getMimeType(filePart);
+            String mimeType = detectMimeType(upload, fileName);
             compliance.setMimeType(mimeType);
-            float fileSize = DocComplianceUtils.convertFileSizeFromBytesToMB(filePart.getSize());
+            float fileSize = DocComplianceUtils.convertFileSizeFromBytesToMB(upload.getLength());
             if (fileUploadSizeLimit != null
                     && fileSize < Float.parseFloat(fileUploadSizeLimit.toUpperCase().replace("MB", ""))) {
                 LOGGER.info("MIME Type: " + mimeType);
-                switch (mimeType) {
-                case ComplianceModel.MIME_TYPE_PDF:
-                    compliance = DocComplianceUtils.getDocumentMetadata(compliance, mimeTypes, mimeType, filePart);
-                    break;
-                case ComplianceModel.MIME_TYPE_OOP:
-                case ComplianceModel.MIME_TYPE_XLS:
-                case ComplianceModel.MIME_TYPE_XLSX:
-                case ComplianceModel.MIME_TYPE_MSO:
-                    compliance = DocComplianceUtils.getSpreadsheetMetadata(compliance, mimeTypes, mimeType, filePart);
-                    break;
-                default:
-                    LOGGER.info(logNotACorrectMimeType);
-                    break;
+                try (AdmissionController.Admission admission = admit(upload, mimeType, true)) {
+                    switch (mimeType) {
+                    case ComplianceModel.MIME_TYPE_PDF:
+                        compliance = DocComplianceUtils.getDocumentMetadata(compliance, mimeTypes, mimeType, upload,
+                                fileName, metadataScan);
+                        break;
+                    case ComplianceModel.MIME_TYPE_OOP:
+                    case ComplianceModel.MIME_TYPE_XLS:
+                    case ComplianceModel.MIME_TYPE_XLSX:
+                    case ComplianceModel.MIME_TYPE_MSO:
+                        compliance = DocComplianceUtils.getSpreadsheetMetadata(compliance, mimeTypes, mimeType, upload,
+                                fileName);
+                        break;
+                    default:
+                        LOGGER.info(logNotACorrectMimeType);
+                        break;
+                    }
                 }
             }
         } catch (IOException e) {
@@ -123,30 +193,64 @@ public class DocumentComplianceServiceImpl implements DocumentComplianceService
     @Override
     public ComplianceModel getModel(ApplicationPart filePart, List<String> mimeTypes, List<String> nonTextColumns,
             boolean isTablesOnly) throws CommonUtilException {
+        return getModel(filePart, mimeTypes, nonTextColumns, isTablesOnly, null);
+    }
+
+    @Override
+    public ComplianceModel getModel(ApplicationPart filePart, List<String> mimeTypes, List<String> nonTextColumns,
+            boolean isTablesOnly, PageModelListener listener) throws CommonUtilException {
+        try (UploadBuffer upload = uploadBufferPool.spool(filePart)) {
+            return getModel(upload, DocComplianceUtils.getFileName(filePart), mimeTypes, nonTextColumns, isTablesOnly,
+                    null, listener);
+        }
+    }
+
+    @Override
+    public ComplianceModel getModel(UploadBuffer upload, String fileName, List<String> mimeTypes,
+            List<String> nonTextColumns, boolean isTablesOnly, PageSelection pageSelection, PageModelListener listener)
+            throws CommonUtilException {
         ComplianceModel compliance = new ComplianceModel();
         try {
-            String mimeType = DocComplianceUtils.getMimeType(filePart);
+            String mimeType = detectMimeType(upload, fileName);
             compliance.setMimeType(mimeType);
             LOGGER.info("MIME Type: " + mimeType);
-            float fileSize = DocComplianceUtils.convertFileSizeFromBytesToMB(filePart.getSize());
+            float fileSize = DocComplianceUtils.convertFileSizeFromBytesToMB(upload.getLength());
             if (fileUploadSizeLimit != null
                     && fileSize < Float.parseFloat(fileUploadSizeLimit.toUpperCase().replace("MB", ""))) {
-                switch (mimeType) {
-                case ComplianceModel.MIME_TYPE_PDF:
-                    PdfParameters pdfParams = new PdfParameters(fontDetectionIgnoreBlankSpaces,
-                            fontDetectionIgnoreSuperSubscript, useTextExtractor, specialCharacters, DocComplianceUtils.convertToMap(fonts));
-                    compliance = DocComplianceUtils.getDocumentModel(compliance, mimeTypes, filePart, pdfParams);
-                    break;
-                case ComplianceModel.MIME_TYPE_XLS:
-                case ComplianceModel.MIME_TYPE_XLSX:
-                case ComplianceModel.MIME_TYPE_MSO:
-                    SpreadsheetParameters spreadsheetParams = new SpreadsheetParameters(checkCharset, defaultEncoding);
-                    compliance = DocComplianceUtils.getSpreadsheetModel(compliance, mimeTypes, mimeType, nonTextColumns,
-                            filePart, spreadsheetParams, isTablesOnly);
-                    break;
-                default:
-                    LOGGER.info(logNotACorrectMimeType);
-                    break;
+                try (AdmissionController.Admission admission = admit(upload, mimeType, false)) {
+                    switch (mimeType) {
+                    case ComplianceModel.MIME_TYPE_PDF:
+                        PdfParameters pdfParams = new PdfParameters(fontDetectionIgnoreBlankSpaces,
+                                fontDetectionIgnoreSuperSubscript, useTextExtractor, specialCharacters,
+                                DocComplianceUtils.convertToMap(fonts));
+                        pdfParams.setSinglePassExtraction(singlePassExtraction);
+                        pdfParams.setChunkEvents(chunkEvents);
+                        pdfParams.setLeadingPrecision(leadingPrecision);
+                        pdfParams.setExtractionParallelism(extractionParallelism);
+                        pdfParams.setExtractionMinPagesPerWorker(extractionMinPagesPerWorker);
+                        pdfParams.setExtractionExecutor(pdfExtractionExecutor);
+                        pdfParams.setPageSelection(pageSelection);
+                        pdfParams.setDocumentPartCache(documentPartCache.isEnabled() ? documentPartCache : null);
+                        pdfParams.setComplianceMetrics(complianceMetrics);
+                        pdfParams.setDiagnosticsReport(getDiagnosticsReport(fileName));
+                        compliance = DocComplianceUtils.getDocumentModel(compliance, mimeTypes, upload, fileName,
+                                pdfParams, listener);
+                        publishDiagnostics(pdfParams.getDiagnosticsReport());
+                        break;
+                    case ComplianceModel.MIME_TYPE_XLS:
+                    case ComplianceModel.MIME_TYPE_XLSX:
+                    case ComplianceModel.MIME_TYPE_MSO:
+                        SpreadsheetParameters spreadsheetParams = new SpreadsheetParameters(checkCharset,
+                                defaultEncoding);
+                        spreadsheetParams.setComplianceMetrics(complianceMetrics);
+                        spreadsheetParams.setStreamingThresholdKb(spreadsheetStreamingThresholdKb);
+                        compliance = DocComplianceUtils.getSpreadsheetModel(compliance, mimeTypes, mimeType,
+                                nonTextColumns, upload, fileName, spreadsheetParams, isTablesOnly);
+                        break;
+                    default:
+                        LOGGER.info(logNotACorrectMimeType);
+                        break;
+                    }
                 }
             }
         } catch (IOException e) {
@@ -156,4 +260,115 @@ public class DocumentComplianceServiceImpl implements DocumentComplianceService
         return compliance;
     }
 
+    private UploadBuffer spool(ApplicationPart filePart) throws CommonUtilException {
+        try (StageProfiler.Stage stage = StageProfiler.stage(StageProfiler.STAGE_SPOOL)) {
+            return uploadBufferPool.spool(filePart);
+        }
+    }
+
+    private String detectMimeType(UploadBuffer upload, String fileName) throws IOException {
+        try (StageProfiler.Stage stage = StageProfiler.stage(StageProfiler.STAGE_DETECT)) {
+            return mimeTypeDetectionService.getMimeType(upload, fileName);
+        }
+    }
+
+    private AdmissionController.Admission admit(UploadBuffer upload, String mimeType, boolean metadataOnly)
+            throws CommonUtilException {
+        try (StageProfiler.Stage stage = StageProfiler.stage(StageProfiler.STAGE_ADMISSION)) {
+            return admissionController.admit(upload, mimeType, metadataOnly);
+        }
+    }
+
+    // Requested with the diagnostics profile, or sampled at the configured rate
+    private DiagnosticsReport getDiagnosticsReport(String fileName) {
+        StageProfiler profiler = StageProfiler.current();
+        if (profiler != null && profiler.isDiagnostics()) {
+            return new DiagnosticsReport(fileName, DiagnosticsReport.REASON_REQUESTED);
+        }
+        if (diagnosticsSampleRate != null && diagnosticsSampleRate > 0
+                && ThreadLocalRandom.current().nextDouble() < diagnosticsSampleRate) {
+            return new DiagnosticsReport(fileName, DiagnosticsReport.REASON_SAMPLED);
+        }
+        return null;
+    }
+
+    private void publishDiagnostics(DiagnosticsReport report) {
+        if (report == null) {
+            return;
+        }
+        Map<String, Object> result = report.toMap();
+        StageProfiler profiler = StageProfiler.current();
+        if (profiler != null && profiler.isDiagnostics()) {
+            profiler.setReport(result);
+        }
+        if (DIAGNOSTICS_LOGGER.isInfoEnabled()) {
+            try {
+                DIAGNOSTICS_LOGGER.info(objectMapper.writeValueAsString(result));
+            } catch (JsonProcessingException e) {
+                LOGGER.debug(e.getMessage(), e);
+            }
+        }
+    }
+
+    private ComplianceModel buildComplianceModel(UploadBuffer upload, RequestParameters requestParams,
+            boolean metadataOnly, PageModelListener listener) throws CommonUtilException {
+        if (metadataOnly) {
+            return getMetadata(upload, requestParams.getFileName(), requestParams.getMimeTypes());
+        }
+        PageSelection pageSelection = requestParams.getPageSelection();
+        return getModel(upload, requestParams.getFileName(), requestParams.getMimeTypes(),
+                requestParams.getNonTextColumns(), requestParams.isTablesOnly(),
+                pageSelection == null || pageSelection.isAllPages() ? null : pageSelection, listener);
+    }
+
+    // Everything besides the file bytes that the returned model depends on
+    private String getParameterFingerprint(RequestParameters requestParams, boolean metadataOnly) {
+        return Joiner.on('|').useForNull("").join(requestParams.getFileName(), metadataOnly,
+                requestParams.getMimeTypes(), requestParams.getNonTextColumns(), requestParams.isTablesOnly(), requestParams.getPageRanges(),
+                requestParams.getPageSample(), fileUploadSizeLimit, fontDetectionIgnoreBlankSpaces,
+                fontDetectionIgnoreSuperSubscript, specialCharacters, fonts, useTextExtractor, singlePassExtraction,
+                chunkEvents, leadingPrecision, metadataScan, checkCharset, defaultEncoding,
+                spreadsheetStreamingThresholdKb);
+    }
+
+    @Override
+    public RequestParameters getRequestParameters(Collection<Part> parts) throws CommonUtilException {
+        int i = 0;
+        RequestParameters requestParams = new RequestParameters();
+        for (Part part : parts) {
+            boolean addValues = false;
+            switch (i) {
+            case 0:
+                requestParams.setFilePart((ApplicationPart) part);
+                break;
+            case 1:
+                requestParams.setTablesOnly(DocComplianceUtils.getIsTablesOnly((ApplicationPart) part));
+                break;
+            default:
+                addValues = true;
+                break;
+            }
+            if (addValues) {
+                if (part.getName().indexOf(ComplianceConfig.MIME_TYPE + "_") > -1) {
+                    requestParams.getMimeTypes().addAll(DocComplianceUtils.getParams((ApplicationPart) part));
+                }
+                if (part.getName().indexOf(ComplianceConfig.NONTEXT_COLUMN + "_") > -1) {
+                    requestParams.getNonTextColumns().addAll(DocComplianceUtils.getParams((ApplicationPart) part));
+                }
+                if (part.getName().equals(Constants.PARAM_PAGE_RANGES)) {
+                    requestParams.setPageRanges(DocComplianceUtils.getParams((ApplicationPart) part).get(0));
+                }
+                if (part.getName().equals(Constants.PARAM_PAGE_SAMPLE)) {
+                    requestParams.setPageSample(DocComplianceUtils.getParams((ApplicationPart) part).get(0));
+                }
+            }
+            i++;
+        }
+        requestParams.setFileName(DocComplianceUtils.getFileName(requestParams.getFilePart()));
+        // The selection is checked before the upload is spooled
+        requestParams.setPageSelection(
+                new PageSelection(requestParams.getPageRanges(), requestParams.getPageSample()));
+        return requestParams;
+    }
+
 }
@@ -0,0 +1,121 @@
+package gov.nsf.psm.documentcompliance.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+
+import gov.nsf.psm.foundation.model.compliance.DocumentPart;
+import gov.nsf.psm.foundation.model.compliance.doc.PageModel;
+import gov.nsf.psm.foundation.model.compliance.doc.SectionModel;
+
+/*
+ * Extracted pages shared across documents, keyed by the content hash of the page. Parts are kept
+ * as JSON written by the service's ObjectMapper, so every hit is a private copy that reads back
+ * as the response would serialize it and can be renumbered for the page it stands in for
+ */
+public class DocumentPartCache implements PublicMetrics {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DocumentPartCache.class);
+
+    private static final String METRIC_PREFIX = "cache.documentPart.";
+
+    private final Cache<String, byte[]> cache;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // A maximum size of 0 disables the cache
+    public DocumentPartCache(long maxSizeKb, long expireAfterAccessMinutes) {
+        if (maxSizeKb > 0) {
+            CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().maximumWeight(maxSizeKb)
+                    .weigher(new Weigher<String, byte[]>() {
+                        @Override
+                        public int weigh(String key, byte[] value) {
+                            return Math.max(1, value.length / 1024);
+                        }
+                    }).recordStats();
+            if (expireAfterAccessMinutes > 0) {
+                builder.expireAfterAccess(expireAfterAccessMinutes, TimeUnit.MINUTES);
+            }
+            this.cache = builder.build();
+        } else {
+            this.cache = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    // Returns a copy of the cached part numbered as the given page, or null on a miss
+    public DocumentPart get(String key, int pageNumber) {
+        byte[] json = cache.getIfPresent(key);
+        if (json == null) {
+            return null;
+        }
+        try {
+            DocumentPart docPart = objectMapper.readValue(json, DocumentPart.class);
+            renumber(docPart, pageNumber);
+            return docPart;
+        } catch (IOException e) {
+            LOGGER.debug(e.getMessage(), e);
+            cache.invalidate(key);
+            return null;
+        }
+    }
+
+    public void put(String key, DocumentPart docPart) {
+        try {
+            cache.put(key, objectMapper.writeValueAsBytes(docPart));
+        } catch (IOException e) {
+            LOGGER.debug(e.getMessage(), e);
+        }
+    }
+
+    public void invalidateAll() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        Collection<Metric<?>> metrics = new ArrayList<>();
+        if (cache == null) {
+            return metrics;
+        }
+        CacheStats stats = cache.stats();
+        metrics.add(new Metric<Long>(METRIC_PREFIX + "size", cache.size()));
+        metrics.add(new Metric<Long>(METRIC_PREFIX + "hits", stats.hitCount()));
+        metrics.add(new Metric<Long>(METRIC_PREFIX + "misses", stats.missCount()));
+        metrics.add(new Metric<Long>(METRIC_PREFIX + "evictions", stats.evictionCount()));
+        metrics.add(new Metric<Double>(METRIC_PREFIX + "hit.ratio", stats.hitRate()));
+        return metrics;
+    }
+
+    // Pages without text carry no page number, so only those with text lines are renumbered
+    private static void renumber(DocumentPart docPart, int pageNumber) {
+        PageModel page = docPart.getPage();
+        if (page != null && page.getTextLines() != null) {
+            page.setPageNumber(pageNumber);
+        }
+        if (docPart.getSectionHeadings() != null) {
+            for (SectionModel section : docPart.getSectionHeadings()) {
+                section.setBeginPage(pageNumber);
+            }
+        }
+    }
+
+}
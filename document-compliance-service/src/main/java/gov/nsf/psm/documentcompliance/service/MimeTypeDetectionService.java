@@ -0,0 +1,11 @@
+package gov.nsf.psm.documentcompliance.service;
+
+import java.io.IOException;
+
+import gov.nsf.psm.documentcompliance.compliance.common.io.UploadBuffer;
+
+public interface MimeTypeDetectionService {
+
+    public String getMimeType(UploadBuffer upload, String fileName) throws IOException;
+
+}
@@ -0,0 +1,102 @@
+package gov.nsf.psm.documentcompliance.service;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import org.apache.tika.config.TikaConfig;
+import org.apache.tika.detect.Detector;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.CounterService;
+
+import com.google.common.collect.ImmutableMap;
+import com.itextpdf.io.source.IRandomAccessSource;
+
+import gov.nsf.psm.documentcompliance.compliance.common.io.MagicByteDetector;
+import gov.nsf.psm.documentcompliance.compliance.common.io.UploadBuffer;
+import gov.nsf.psm.foundation.model.compliance.ComplianceModel;
+
+/*
+ * Detects the MIME type of an upload from its first bytes, and only asks the Tika detector,
+ * built once, when the bytes are not conclusive or the file name points to another type
+ */
+public class MimeTypeDetectionServiceImpl implements MimeTypeDetectionService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MimeTypeDetectionServiceImpl.class);
+
+    public static final String METRIC_DETECTION_TIME = "timer.mime.detection";
+    public static final String METRIC_MAGIC_BYTE_DETECTIONS = "mime.detection.magic";
+    public static final String METRIC_TIKA_DETECTIONS = "mime.detection.tika";
+
+    // A name hint may make Tika settle on a more specific type than the magic bytes
+    private static final ImmutableMap<String, String> EXTENSIONS = ImmutableMap.of(ComplianceModel.MIME_TYPE_PDF,
+            "pdf", ComplianceModel.MIME_TYPE_XLS, "xls", ComplianceModel.MIME_TYPE_XLSX, "xlsx");
+
+    private final Detector detector;
+    private final int probeSize;
+
+    @Autowired
+    private ComplianceMetrics complianceMetrics;
+
+    @Autowired
+    private CounterService counterService;
+
+    public MimeTypeDetectionServiceImpl(int probeSize) {
+        this.detector = TikaConfig.getDefaultConfig().getDetector();
+        this.probeSize = probeSize;
+    }
+
+    @Override
+    public String getMimeType(UploadBuffer upload, String fileName) throws IOException {
+        long start = System.nanoTime();
+        String mimeType = null;
+        if (probeSize > 0) {
+            IRandomAccessSource source = upload.newRandomAccessSource();
+            try {
+                mimeType = MagicByteDetector.detect(source, probeSize);
+            } finally {
+                source.close();
+            }
+            if (mimeType != null && !matchesExtension(mimeType, fileName)) {
+                mimeType = null;
+            }
+        }
+        if (mimeType != null) {
+            counterService.increment(METRIC_MAGIC_BYTE_DETECTIONS);
+        } else {
+            mimeType = detectWithTika(upload, fileName);
+            counterService.increment(METRIC_TIKA_DETECTIONS);
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        complianceMetrics.recordTime(METRIC_DETECTION_TIME, elapsedNanos);
+        double elapsed = elapsedNanos / 1000000d;
+        LOGGER.debug("MIME type detection: " + mimeType + " in " + elapsed + " ms");
+        return mimeType;
+    }
+
+    private String detectWithTika(UploadBuffer upload, String fileName) throws IOException {
+        // A spooled file is handed to Tika as is so container detection does not copy it again
+        try (TikaInputStream stream = upload.isMapped() ? TikaInputStream.get(upload.getFile())
+                : TikaInputStream.get(upload.newInputStream())) {
+            Metadata metadata = new Metadata();
+            metadata.add(Metadata.RESOURCE_NAME_KEY, fileName);
+            return detector.detect(stream, metadata).toString();
+        }
+    }
+
+    // True when the name has no extension or the one expected for the type
+    private static boolean matchesExtension(String mimeType, String fileName) {
+        if (fileName == null) {
+            return true;
+        }
+        int idx = fileName.lastIndexOf('.');
+        if (idx < 0 || idx < Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf('\\'))) {
+            return true;
+        }
+        return fileName.substring(idx + 1).toLowerCase(Locale.ROOT).equals(EXTENSIONS.get(mimeType));
+    }
+
+}
@@ -0,0 +1,128 @@
+package gov.nsf.psm.documentcompliance.service.job;
+
+import java.util.Date;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import gov.nsf.psm.documentcompliance.model.builder.pdf.PageModelListener;
+import gov.nsf.psm.factmodel.PageFactModel;
+import gov.nsf.psm.foundation.model.compliance.ComplianceModel;
+import gov.nsf.psm.foundation.model.compliance.doc.PageModel;
+
+/*
+ * A compliance model request processed in the background. The job follows the PDF model builder
+ * to report how many of the pages to analyse are done
+ */
+public class ComplianceJob implements PageModelListener {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private final String id;
+    private final String fileName;
+    private final boolean metadataOnly;
+    private final Date submitted = new Date();
+    private volatile Status status = Status.QUEUED;
+    private volatile Date started;
+    private volatile Date completed;
+    private volatile int pagesCompleted;
+    private volatile int pagesTotal;
+    private volatile ComplianceModel complianceModel;
+    private volatile String error;
+
+    public ComplianceJob(String id, String fileName, boolean metadataOnly) {
+        this.id = id;
+        this.fileName = fileName;
+        this.metadataOnly = metadataOnly;
+    }
+
+    // The job only counts pages, its result is the whole compliance model
+    @Override
+    public boolean isRetainPages() {
+        return true;
+    }
+
+    @Override
+    public void documentStarted(int numberOfPages) {
+        pagesTotal = numberOfPages;
+    }
+
+    // Pages are reported one at a time, in page order
+    @Override
+    public void pageCompleted(int pageNumber, PageModel page, PageFactModel pageFactModel) {
+        pagesCompleted++;
+    }
+
+    public void started() {
+        started = new Date();
+        status = Status.RUNNING;
+    }
+
+    public void requeued() {
+        started = null;
+        status = Status.QUEUED;
+    }
+
+    public void completed(ComplianceModel complianceModel) {
+        this.complianceModel = complianceModel;
+        completed = new Date();
+        status = Status.COMPLETED;
+    }
+
+    public void failed(String error) {
+        this.error = error;
+        completed = new Date();
+        status = Status.FAILED;
+    }
+
+    @JsonIgnore
+    public boolean isDone() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public boolean isMetadataOnly() {
+        return metadataOnly;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Date getSubmitted() {
+        return submitted;
+    }
+
+    public Date getStarted() {
+        return started;
+    }
+
+    public Date getCompleted() {
+        return completed;
+    }
+
+    public int getPagesCompleted() {
+        return pagesCompleted;
+    }
+
+    public int getPagesTotal() {
+        return pagesTotal;
+    }
+
+    public ComplianceModel getComplianceModel() {
+        return complianceModel;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+}
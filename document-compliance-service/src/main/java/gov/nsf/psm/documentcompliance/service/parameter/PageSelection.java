@@ -0,0 +1,166 @@
+package gov.nsf.psm.documentcompliance.service.parameter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.cxf.common.util.StringUtils;
+
+import gov.nsf.psm.foundation.exception.CommonUtilException;
+
+/*
+ * Pages of a PDF to analyse, given as explicit ranges ("1-5,12,40-") and/or a sample of those pages:
+ * "first:N", "every:K" (pages 1, 1+K, 1+2K, ...) or "random:N[:SEED]"
+ */
+public class PageSelection {
+
+    public enum SampleMode {
+        FIRST, EVERY, RANDOM
+    }
+
+    private static final String SAMPLE_SEPARATOR = ":";
+    private static final String RANGE_SEPARATOR = "-";
+
+    private final String pageRanges;
+    private final String pageSample;
+    private final List<int[]> ranges = new ArrayList<>();
+    private SampleMode sampleMode = null;
+    private int sampleValue = 0;
+    private long seed = 0L;
+
+    public PageSelection(String pageRanges, String pageSample) throws CommonUtilException {
+        this.pageRanges = StringUtils.isEmpty(pageRanges) ? null : pageRanges.trim();
+        this.pageSample = StringUtils.isEmpty(pageSample) ? null : pageSample.trim();
+        if (this.pageRanges != null) {
+            parseRanges(this.pageRanges);
+        }
+        if (this.pageSample != null) {
+            parseSample(this.pageSample);
+        }
+    }
+
+    public boolean isAllPages() {
+        return ranges.isEmpty() && sampleMode == null;
+    }
+
+    // Selected page numbers, in ascending order, for a document with the given number of pages
+    public int[] getPages(int numberOfPages) {
+        BitSet candidates = new BitSet(numberOfPages + 1);
+        if (ranges.isEmpty()) {
+            candidates.set(1, numberOfPages + 1);
+        } else {
+            for (int[] range : ranges) {
+                int last = Math.min(range[1], numberOfPages);
+                if (range[0] <= last) {
+                    candidates.set(range[0], last + 1);
+                }
+            }
+        }
+        int[] pages = candidates.stream().toArray();
+        if (sampleMode == null) {
+            return pages;
+        }
+        switch (sampleMode) {
+        case FIRST:
+            return Arrays.copyOf(pages, Math.min(sampleValue, pages.length));
+        case EVERY:
+            int[] every = new int[(pages.length + sampleValue - 1) / sampleValue];
+            for (int i = 0; i < every.length; i++) {
+                every[i] = pages[i * sampleValue];
+            }
+            return every;
+        case RANDOM:
+            int size = Math.min(sampleValue, pages.length);
+            Random random = new Random(seed);
+            for (int i = 0; i < size; i++) {
+                int j = i + random.nextInt(pages.length - i);
+                int page = pages[i];
+                pages[i] = pages[j];
+                pages[j] = page;
+            }
+            int[] sample = Arrays.copyOf(pages, size);
+            Arrays.sort(sample);
+            return sample;
+        default:
+            return pages;
+        }
+    }
+
+    public String getPageRanges() {
+        return pageRanges;
+    }
+
+    public String getPageSample() {
+        return pageSample;
+    }
+
+    public SampleMode getSampleMode() {
+        return sampleMode;
+    }
+
+    @Override
+    public String toString() {
+        if (pageRanges != null && pageSample != null) {
+            return pageRanges + " (" + pageSample + ")";
+        }
+        return pageRanges != null ? pageRanges : String.valueOf(pageSample);
+    }
+
+    private void parseRanges(String value) throws CommonUtilException {
+        for (String range : value.split("\\s*,\\s*")) {
+            if (range.isEmpty()) {
+                continue;
+            }
+            int idx = range.indexOf(RANGE_SEPARATOR);
+            int first;
+            int last;
+            if (idx < 0) {
+                first = parsePageNumber(range);
+                last = first;
+            } else {
+                first = parsePageNumber(range.substring(0, idx).trim());
+                String end = range.substring(idx + 1).trim();
+                last = end.isEmpty() ? Integer.MAX_VALUE : parsePageNumber(end);
+            }
+            if (last < first) {
+                throw new CommonUtilException("Invalid page range: " + range);
+            }
+            ranges.add(new int[] { first, last });
+        }
+    }
+
+    private void parseSample(String value) throws CommonUtilException {
+        String[] tokens = value.split(SAMPLE_SEPARATOR);
+        try {
+            sampleMode = SampleMode.valueOf(tokens[0].trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new CommonUtilException("Invalid page sample: " + value, e);
+        }
+        if (tokens.length < 2 || tokens.length > (sampleMode == SampleMode.RANDOM ? 3 : 2)) {
+            throw new CommonUtilException("Invalid page sample: " + value);
+        }
+        sampleValue = parsePageNumber(tokens[1].trim());
+        if (tokens.length == 3) {
+            try {
+                seed = Long.parseLong(tokens[2].trim());
+            } catch (NumberFormatException e) {
+                throw new CommonUtilException("Invalid page sample seed: " + value, e);
+            }
+        }
+    }
+
+    private static int parsePageNumber(String value) throws CommonUtilException {
+        try {
+            int number = Integer.parseInt(value);
+            if (number < 1) {
+                throw new CommonUtilException("Page numbers start at 1: " + value);
+            }
+            return number;
+        } catch (NumberFormatException e) {
+            throw new CommonUtilException("Invalid page number: " + value, e);
+        }
+    }
+
+}
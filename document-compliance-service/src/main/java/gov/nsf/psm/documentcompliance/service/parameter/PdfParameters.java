@@ -1,6 +1,12 @@
 package gov.nsf.psm.documentcompliance.service.parameter;
 
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import gov.nsf.psm.documentcompliance.compliance.common.utility.DiagnosticsReport;
+import gov.nsf.psm.documentcompliance.compliance.pdf.utility.CharacterMatcher;
+import gov.nsf.psm.documentcompliance.service.ComplianceMetrics;
+import gov.nsf.psm.documentcompliance.service.DocumentPartCache;
 
 public class PdfParameters {
 
@@ -8,13 +14,25 @@ public class PdfParameters {
     private Boolean fontDetectionIgnoreSuperSubscript;
     private Boolean useTextExtractor;
     private String specialCharacters;
+    private CharacterMatcher specialCharacterMatcher;
     private Map<String, String> fontMap;
+    private Boolean singlePassExtraction;
+    private Boolean chunkEvents;
+    private Double leadingPrecision;
+    private Integer extractionParallelism;
+    private Integer extractionMinPagesPerWorker;
+    private ExecutorService extractionExecutor;
+    private PageSelection pageSelection;
+    private DocumentPartCache documentPartCache;
+    private ComplianceMetrics complianceMetrics;
+    private DiagnosticsReport diagnosticsReport;
 
     public PdfParameters(Boolean fontDetectionIgnoreBlankSpaces, Boolean fontDetectionIgnoreSuperSubscript,
             Boolean useTextExtractor, String specialCharacters, Map<String, String> fontMap) {
         this.fontDetectionIgnoreBlankSpaces = fontDetectionIgnoreBlankSpaces;
         this.fontDetectionIgnoreSuperSubscript = fontDetectionIgnoreSuperSubscript;
         this.specialCharacters = specialCharacters;
+        this.specialCharacterMatcher = CharacterMatcher.compile(specialCharacters);
         this.useTextExtractor = useTextExtractor;
         this.fontMap = fontMap;
     }
@@ -41,6 +59,11 @@ public class PdfParameters {
 
     public void setSpecialCharacters(String specialCharacters) {
         this.specialCharacters = specialCharacters;
+        this.specialCharacterMatcher = CharacterMatcher.compile(specialCharacters);
+    }
+
+    public CharacterMatcher getSpecialCharacterMatcher() {
+        return specialCharacterMatcher;
     }
 
     public Boolean getUseTextExtractor() {
@@ -59,4 +82,87 @@ public class PdfParameters {
         this.fontMap = fontMap;
     }
 
+    public Boolean getSinglePassExtraction() {
+        return singlePassExtraction;
+    }
+
+    public void setSinglePassExtraction(Boolean singlePassExtraction) {
+        this.singlePassExtraction = singlePassExtraction;
+    }
+
+    public Boolean getChunkEvents() {
+        return chunkEvents;
+    }
+
+    public void setChunkEvents(Boolean chunkEvents) {
+        this.chunkEvents = chunkEvents;
+    }
+
+    public Double getLeadingPrecision() {
+        return leadingPrecision;
+    }
+
+    public void setLeadingPrecision(Double leadingPrecision) {
+        this.leadingPrecision = leadingPrecision;
+    }
+
+    public Integer getExtractionParallelism() {
+        return extractionParallelism;
+    }
+
+    public void setExtractionParallelism(Integer extractionParallelism) {
+        this.extractionParallelism = extractionParallelism;
+    }
+
+    public Integer getExtractionMinPagesPerWorker() {
+        return extractionMinPagesPerWorker;
+    }
+
+    public void setExtractionMinPagesPerWorker(Integer extractionMinPagesPerWorker) {
+        this.extractionMinPagesPerWorker = extractionMinPagesPerWorker;
+    }
+
+    public ExecutorService getExtractionExecutor() {
+        return extractionExecutor;
+    }
+
+    public void setExtractionExecutor(ExecutorService extractionExecutor) {
+        this.extractionExecutor = extractionExecutor;
+    }
+
+    // Null analyses every page
+    public PageSelection getPageSelection() {
+        return pageSelection;
+    }
+
+    public void setPageSelection(PageSelection pageSelection) {
+        this.pageSelection = pageSelection;
+    }
+
+    // Null disables the page cache
+    public DocumentPartCache getDocumentPartCache() {
+        return documentPartCache;
+    }
+
+    public void setDocumentPartCache(DocumentPartCache documentPartCache) {
+        this.documentPartCache = documentPartCache;
+    }
+
+    public ComplianceMetrics getComplianceMetrics() {
+        return complianceMetrics;
+    }
+
+    public void setComplianceMetrics(ComplianceMetrics complianceMetrics) {
+        this.complianceMetrics = complianceMetrics;
+    }
+
+    // Null skips the per-page diagnostics
+    public DiagnosticsReport getDiagnosticsReport() {
+        return diagnosticsReport;
+    }
+
+    public void setDiagnosticsReport(DiagnosticsReport diagnosticsReport) {
+        this.diagnosticsReport = diagnosticsReport;
+    }
+
 }
@@ -0,0 +1,83 @@
+package gov.nsf.psm.documentcompliance.service.parameter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.catalina.core.ApplicationPart;
+
+public class RequestParameters {
+
+    private ApplicationPart filePart;
+    private String fileName;
+    private boolean isTablesOnly;
+    private List<String> mimeTypes = new ArrayList<>();
+    private List<String> nonTextColumns = new ArrayList<>();
+    private String pageRanges;
+    private String pageSample;
+    private PageSelection pageSelection;
+
+    public ApplicationPart getFilePart() {
+        return filePart;
+    }
+
+    public void setFilePart(ApplicationPart filePart) {
+        this.filePart = filePart;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public boolean isTablesOnly() {
+        return isTablesOnly;
+    }
+
+    public void setTablesOnly(boolean isTablesOnly) {
+        this.isTablesOnly = isTablesOnly;
+    }
+
+    public List<String> getMimeTypes() {
+        return mimeTypes;
+    }
+
+    public void setMimeTypes(List<String> mimeTypes) {
+        this.mimeTypes = mimeTypes;
+    }
+
+    public List<String> getNonTextColumns() {
+        return nonTextColumns;
+    }
+
+    public void setNonTextColumns(List<String> nonTextColumns) {
+        this.nonTextColumns = nonTextColumns;
+    }
+
+    public String getPageRanges() {
+        return pageRanges;
+    }
+
+    public void setPageRanges(String pageRanges) {
+        this.pageRanges = pageRanges;
+    }
+
+    public String getPageSample() {
+        return pageSample;
+    }
+
+    public void setPageSample(String pageSample) {
+        this.pageSample = pageSample;
+    }
+
+    public PageSelection getPageSelection() {
+        return pageSelection;
+    }
+
+    public void setPageSelection(PageSelection pageSelection) {
+        this.pageSelection = pageSelection;
+    }
+
+}
@@ -1,9 +1,13 @@
 package gov.nsf.psm.documentcompliance.service.parameter;
 
+import gov.nsf.psm.documentcompliance.service.ComplianceMetrics;
+
 public class SpreadsheetParameters {
     
     private Boolean checkCharset;
     private String defaultEncoding;
+    private ComplianceMetrics complianceMetrics;
+    private Integer streamingThresholdKb;
     
     public SpreadsheetParameters(Boolean checkCharset, String defaultEncoding) {
         this.checkCharset = checkCharset;
@@ -22,5 +26,18 @@ public class SpreadsheetParameters {
     public void setDefaultEncoding(String defaultEncoding) {
         this.defaultEncoding = defaultEncoding;
     }
+    public ComplianceMetrics getComplianceMetrics() {
+        return complianceMetrics;
+    }
+    public void setComplianceMetrics(ComplianceMetrics complianceMetrics) {
+        this.complianceMetrics = complianceMetrics;
+    }
+    // Null or negative always loads the whole workbook
+    public Integer getStreamingThresholdKb() {
+        return streamingThresholdKb;
+    }
+    public void setStreamingThresholdKb(Integer streamingThresholdKb) {
+        this.streamingThresholdKb = streamingThresholdKb;
+    }
     
-}
\ No newline at end of file
+}